@@ -42,22 +42,33 @@
 var Token = require('./Token').Token;
 var Lexer = require('./Lexer').Lexer;
 var Interval = require('./IntervalSet').Interval;
+var TokenArena = require('./TokenArena').TokenArena;
 
 // this is just to keep meaningful parameter types to Parser
 function TokenStream() {
 	return this;
 }
 
-function BufferedTokenStream(tokenSource) {
+function BufferedTokenStream(tokenSource, useTokenArena) {
 
 	TokenStream.call(this);
 	// The {@link TokenSource} from which tokens for this stream are fetched.
 	this.tokenSource = tokenSource;
 
+	// If {@code true}, {@link //tokens} is a {@link TokenArena} holding the
+	// token fields in typed arrays, and tokens are handed out as views on it.
+	// This trades the cost of creating a view on each access for a much
+	// smaller heap when the input has many tokens. {@link //get}, {@link //LT}
+	// and the other methods returning tokens create a new {@link TokenView}
+	// on every call, so unlike with a list, two calls for the same token
+	// return different objects: compare tokens by
+	// {@link Token//tokenIndex}, and do not keep state on the token objects.
+	this.useTokenArena = useTokenArena || false;
+
 	// A collection of all tokens fetched from the token source. The list is
 	// considered a complete view of the input once {@link //fetchedEOF} is set
 	// to {@code true}.
-	this.tokens = [];
+	this.tokens = this.useTokenArena ? new TokenArena() : [];
 
 	// The index into {@link //tokens} of the current token (next token to
 	// {@link //consume}). {@link //tokens}{@code [}{@link //p}{@code ]} should
@@ -111,7 +122,24 @@ BufferedTokenStream.prototype.seek = function(index) {
 
 BufferedTokenStream.prototype.get = function(index) {
 	this.lazyInit();
-	return this.tokens[index];
+	return this.tokenAt(index);
+};
+
+// Return the buffered token at index {@code i}, or {@code undefined}.
+BufferedTokenStream.prototype.tokenAt = function(i) {
+	return this.useTokenArena ? this.tokens.get(i) : this.tokens[i];
+};
+
+// Return the type of the buffered token at index {@code i}. Unlike
+// {@link //tokenAt}, this does not create a view when the tokens are held in
+// a {@link TokenArena}, so lookahead and channel scans allocate nothing.
+BufferedTokenStream.prototype.typeAt = function(i) {
+	return this.useTokenArena ? this.tokens.types[i] : this.tokens[i].type;
+};
+
+// Return the channel of the buffered token at index {@code i}.
+BufferedTokenStream.prototype.channelAt = function(i) {
+	return this.useTokenArena ? this.tokens.channels[i] : this.tokens[i].channel;
 };
 
 BufferedTokenStream.prototype.consume = function() {
@@ -186,7 +214,7 @@ BufferedTokenStream.prototype.getTokens = function(start, stop, types) {
 		stop = this.tokens.length - 1;
 	}
 	for (var i = start; i < stop; i++) {
-		var t = this.tokens[i];
+		var t = this.tokenAt(i);
 		if (t.type === Token.EOF) {
 			break;
 		}
@@ -198,31 +226,42 @@ BufferedTokenStream.prototype.getTokens = function(start, stop, types) {
 };
 
 BufferedTokenStream.prototype.LA = function(i) {
-	return this.LT(i).type;
+	return this.typeAt(this.lookahead(i));
 };
 
 BufferedTokenStream.prototype.LB = function(k) {
-	if (this.index - k < 0) {
-		return null;
-	}
-	return this.tokens[this.index - k];
+	var i = this.lookbehind(k);
+	return i < 0 ? null : this.tokenAt(i);
 };
 
 BufferedTokenStream.prototype.LT = function(k) {
+	var i = this.lookahead(k);
+	return i < 0 ? null : this.tokenAt(i);
+};
+
+// Return the index of the token {@link //LB LB(k)} returns, or -1 if it
+// returns {@code null}.
+BufferedTokenStream.prototype.lookbehind = function(k) {
+	return this.index - k;
+};
+
+// Return the index of the token {@link //LT LT(k)} returns, or -1 if it
+// returns {@code null}.
+BufferedTokenStream.prototype.lookahead = function(k) {
 	this.lazyInit();
 	if (k === 0) {
-		return null;
+		return -1;
 	}
 	if (k < 0) {
-		return this.LB(-k);
+		return this.lookbehind(-k);
 	}
 	var i = this.index + k - 1;
 	this.sync(i);
 	if (i >= this.tokens.length) { // return EOF token
 		// EOF must be last token
-		return this.tokens[this.tokens.length - 1];
+		return this.tokens.length - 1;
 	}
-	return this.tokens[i];
+	return i;
 };
 
 // Allowed derived classes to modify the behavior of operations which change
@@ -253,10 +292,14 @@ BufferedTokenStream.prototype.setup = function() {
 	this.index = this.adjustSeekIndex(0);
 };
 
+BufferedTokenStream.prototype.getTokenSource = function() {
+	return this.tokenSource;
+};
+
 // Reset this token stream by setting its token source.///
 BufferedTokenStream.prototype.setTokenSource = function(tokenSource) {
 	this.tokenSource = tokenSource;
-	this.tokens = [];
+	this.tokens = this.useTokenArena ? new TokenArena() : [];
 	this.index = -1;
 };
 
@@ -269,14 +312,12 @@ BufferedTokenStream.prototype.nextTokenOnChannel = function(i, channel) {
 	if (i >= this.tokens.length) {
 		return -1;
 	}
-	var token = this.tokens[i];
-	while (token.channel !== this.channel) {
-		if (token.type === Token.EOF) {
+	while (this.channelAt(i) !== this.channel) {
+		if (this.typeAt(i) === Token.EOF) {
 			return -1;
 		}
 		i += 1;
 		this.sync(i);
-		token = this.tokens[i];
 	}
 	return i;
 };
@@ -285,7 +326,7 @@ BufferedTokenStream.prototype.nextTokenOnChannel = function(i, channel) {
 // Return i if tokens[i] is on channel. Return -1 if there are no tokens
 // on channel between i and 0.
 BufferedTokenStream.prototype.previousTokenOnChannel = function(i, channel) {
-	while (i >= 0 && this.tokens[i].channel !== channel) {
+	while (i >= 0 && this.channelAt(i) !== channel) {
 		i -= 1;
 	}
 	return i;
@@ -300,7 +341,7 @@ BufferedTokenStream.prototype.getHiddenTokensToRight = function(tokenIndex,
 		channel = -1;
 	}
 	this.lazyInit();
-	if (this.tokenIndex < 0 || tokenIndex >= this.tokens.length) {
+	if (tokenIndex < 0 || tokenIndex >= this.tokens.length) {
 		throw "" + tokenIndex + " not in 0.." + this.tokens.length - 1;
 	}
 	var nextOnChannel = this.nextTokenOnChannel(tokenIndex + 1,
@@ -337,7 +378,7 @@ BufferedTokenStream.prototype.getHiddenTokensToLeft = function(tokenIndex,
 BufferedTokenStream.prototype.filterForChannel = function(left, right, channel) {
 	var hidden = [];
 	for (var i = left; i < right + 1; i++) {
-		var t = this.tokens[i];
+		var t = this.tokenAt(i);
 		if (channel === -1) {
 			if (t.channel !== Lexer.DEFAULT_TOKEN_CHANNEL) {
 				hidden.push(t);
@@ -379,7 +420,7 @@ BufferedTokenStream.prototype.getText = function(interval) {
 	}
 	var s = "";
 	for (var i = start; i < stop + 1; i++) {
-		var t = this.tokens[i];
+		var t = this.tokenAt(i);
 		if (t.type === Token.EOF) {
 			break;
 		}
@@ -0,0 +1,107 @@
+// 
+//  [The "BSD license"]
+//   Copyright (c) 2012 Terence Parr
+//   Copyright (c) 2012 Sam Harwell
+//   Copyright (c) 2014 Eric Vergnaud
+//   All rights reserved.
+// 
+//   Redistribution and use in source and binary forms, with or without
+//   modification, are permitted provided that the following conditions
+//   are met:
+// 
+//   1. Redistributions of source code must retain the above copyright
+//      notice, this list of conditions and the following disclaimer.
+//   2. Redistributions in binary form must reproduce the above copyright
+//      notice, this list of conditions and the following disclaimer in the
+//      documentation and/or other materials provided with the distribution.
+//   3. The name of the author may not be used to endorse or promote products
+//      derived from this software without specific prior written permission.
+// 
+//   THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+//   IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+//   OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+//   IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+//   INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+//   NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+//   DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+//   THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+//   (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+//   THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+// An {@link UnbufferedCharStream} whose input is pushed in, one chunk at a
+// time, with {@link //write} and {@link //end} instead of being read from a
+// file. Chunks may be strings or UTF-8 {@code Buffer}s; a multi-byte
+// character split across two buffers is decoded once both have arrived.
+//
+// <p>When the lexer reads past the input written so far, before {@link //end}
+// is called, the stream answers EOF and sets {@link //starved}. The token
+// produced by that attempt is incomplete; {@link LexerStream} uses the flag
+// to rewind and retry once more input has been written.</p>
+
+var Token = require('./Token').Token;
+var UnbufferedCharStream = require('./UnbufferedCharStream').UnbufferedCharStream;
+
+function ChunkedCharStream(bufferSize) {
+	// Decoded chunks not yet read by the stream, oldest first.
+	this.chunks = [];
+	// The number of characters written so far.
+	this.written = 0;
+	this.ended = false;
+	// Set when a read found no input left and more may still be written.
+	this.starved = false;
+	UnbufferedCharStream.call(this, null, bufferSize);
+	return this;
+}
+
+ChunkedCharStream.prototype = Object.create(UnbufferedCharStream.prototype);
+ChunkedCharStream.prototype.constructor = ChunkedCharStream;
+
+ChunkedCharStream.prototype.write = function(chunk) {
+	if (this.ended) {
+		throw "write after end";
+	}
+	var text = typeof chunk === "string" ? chunk : this.decoder.write(chunk);
+	if (text.length > 0) {
+		this.chunks.push(text);
+		this.written += text.length;
+	}
+};
+
+ChunkedCharStream.prototype.end = function() {
+	var text = this.decoder.end();
+	if (text.length > 0) {
+		this.chunks.push(text);
+		this.written += text.length;
+	}
+	this.ended = true;
+};
+
+ChunkedCharStream.prototype.nextChar = function() {
+	while (this.pendingIndex >= this.pending.length) {
+		if (this.chunks.length === 0) {
+			if (this.ended) {
+				return Token.EOF;
+			}
+			this.starved = true;
+			return null;
+		}
+		this.pending = this.chunks.shift();
+		this.pendingIndex = 0;
+	}
+	var c = this.pending.charCodeAt(this.pendingIndex);
+	this.pendingIndex += 1;
+	return c;
+};
+
+// A starved read leaves no EOF in the window to stop text at, as a read at the
+// end of the input does, so stop it at the last character read instead. The
+// lexer asks for text up to the char after an error, but the attempt, and
+// the error, will be dropped anyway.
+ChunkedCharStream.prototype.getText = function(start, stop) {
+	if (this.starved) {
+		stop = Math.min(stop, this.getBufferStartIndex() + this.n - 1);
+	}
+	return UnbufferedCharStream.prototype.getText.call(this, start, stop);
+};
+
+exports.ChunkedCharStream = ChunkedCharStream;
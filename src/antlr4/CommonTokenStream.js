@@ -57,8 +57,8 @@
 var Token = require('./Token').Token;
 var BufferedTokenStream = require('./BufferedTokenStream').BufferedTokenStream;
 
-function CommonTokenStream(lexer, channel) {
-	BufferedTokenStream.call(this, lexer);
+function CommonTokenStream(lexer, channel, useTokenArena) {
+	BufferedTokenStream.call(this, lexer, useTokenArena);
     this.channel = channel===undefined ? Token.DEFAULT_CHANNEL : channel;
     return this;
 }
@@ -70,9 +70,9 @@ CommonTokenStream.prototype.adjustSeekIndex = function(i) {
     return this.nextTokenOnChannel(i, this.channel);
 };
 
-CommonTokenStream.prototype.LB = function(k) {
+CommonTokenStream.prototype.lookbehind = function(k) {
     if (k===0 || this.index-k<0) {
-        return null;
+        return -1;
     }
     var i = this.index;
     var n = 1;
@@ -82,19 +82,16 @@ CommonTokenStream.prototype.LB = function(k) {
         i = this.previousTokenOnChannel(i - 1, this.channel);
         n += 1;
     }
-    if (i < 0) {
-        return null;
-    }
-    return this.tokens[i];
+    return i;
 };
 
-CommonTokenStream.prototype.LT = function(k) {
+CommonTokenStream.prototype.lookahead = function(k) {
     this.lazyInit();
     if (k === 0) {
-        return null;
+        return -1;
     }
     if (k < 0) {
-        return this.LB(-k);
+        return this.lookbehind(-k);
     }
     var i = this.index;
     var n = 1; // we know tokens[pos] is a good one
@@ -106,7 +103,7 @@ CommonTokenStream.prototype.LT = function(k) {
         }
         n += 1;
     }
-    return this.tokens[i];
+    return i;
 };
 
 // Count EOF just once.///
@@ -114,11 +111,10 @@ CommonTokenStream.prototype.getNumberOfOnChannelTokens = function() {
     var n = 0;
     this.fill();
     for (var i =0; i< this.tokens.length;i++) {
-        var t = this.tokens[i];
-        if( t.channel===this.channel) {
+        if( this.channelAt(i)===this.channel) {
             n += 1;
         }
-        if( t.type===Token.EOF) {
+        if( this.typeAt(i)===Token.EOF) {
             break;
         }
     }
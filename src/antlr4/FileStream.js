@@ -36,8 +36,11 @@
 var InputStream = require('./InputStream').InputStream;
 var fs = require("fs");
 
-function FileStream(fileName) {
-	var data = fs.readFileSync(fileName, "utf8");
+// If {@code decodeToUnicodeCodePoints} is {@code true}, the UTF-8 bytes of the
+// file are decoded straight to code points; see {@link InputStream}.
+function FileStream(fileName, decodeToUnicodeCodePoints) {
+	var data = decodeToUnicodeCodePoints ? fs.readFileSync(fileName) :
+		fs.readFileSync(fileName, "utf8");
 	InputStream.call(this, data);
 	this.fileName = fileName;
 	return this;
@@ -31,24 +31,139 @@
 
 var Token = require('./Token').Token;
 
-// Vacuum all input from a string and then treat it like a buffer.
+// Treat the entire input as a buffer. Symbols are read in place, either from
+// the source string with {@code charCodeAt} or from a typed array of symbols
+// ({@code Uint16Array} of UTF-16 code units or {@code Uint32Array} of code
+// points), so no copy of the input is made.
+//
+// <p>If {@code decodeToUnicodeCodePoints} is {@code true}, a string is read as
+// Unicode code points rather than UTF-16 code units, so a supplementary
+// character is a single symbol and {@link //index}, {@link //LA} and
+// {@link //getText} count code points. The string is decoded once into a
+// {@code Uint32Array}, unless it contains no surrogates at all, in which case
+// code units and code points coincide and it is read in place.</p>
+//
+// <p>A {@code Uint8Array} (including a node {@code Buffer}) holds UTF-8 bytes
+// and is always decoded to code points; pure ASCII input is read in place.</p>
 
-function _loadString(stream) {
+function _loadString(stream, data, decodeToUnicodeCodePoints) {
 	stream._index = 0;
-	stream.data = [];
-	for (var i = 0; i < stream.strdata.length; i++) {
-		stream.data.push(stream.strdata.charCodeAt(i));
+	if (data instanceof Uint8Array) {
+		data = hasOnlyAscii(data) ? data : decodeUTF8(data);
+	} else if (typeof data === "string" && decodeToUnicodeCodePoints) {
+		var codePoints = countCodePoints(data);
+		if (codePoints !== data.length) {
+			data = decodeUTF16(data, codePoints);
+		}
+	}
+	if (typeof data === "string") {
+		stream.strdata = data;
+		stream.data = null;
+	} else {
+		stream.strdata = null;
+		stream.data = data;
+	}
+	stream._size = data.length;
+}
+
+function countCodePoints(s) {
+	var n = s.length;
+	for (var i = 0; i < s.length; i++) {
+		var c = s.charCodeAt(i);
+		if (c >= 0xD800 && c <= 0xDBFF && i + 1 < s.length) {
+			var d = s.charCodeAt(i + 1);
+			if (d >= 0xDC00 && d <= 0xDFFF) {
+				n -= 1;
+				i += 1;
+			}
+		}
+	}
+	return n;
+}
+
+function decodeUTF16(s, codePoints) {
+	var data = new Uint32Array(codePoints);
+	var j = 0;
+	for (var i = 0; i < s.length; i++) {
+		var c = s.charCodeAt(i);
+		if (c >= 0xD800 && c <= 0xDBFF && i + 1 < s.length) {
+			var d = s.charCodeAt(i + 1);
+			if (d >= 0xDC00 && d <= 0xDFFF) {
+				c = ((c - 0xD800) << 10) + (d - 0xDC00) + 0x10000;
+				i += 1;
+			}
+		}
+		data[j++] = c;
+	}
+	return data;
+}
+
+function hasOnlyAscii(bytes) {
+	for (var i = 0; i < bytes.length; i++) {
+		if (bytes[i] > 0x7F) {
+			return false;
+		}
+	}
+	return true;
+}
+
+// Malformed sequences decode to U+FFFD, one per offending byte.
+function decodeUTF8(bytes) {
+	var data = new Uint32Array(bytes.length);
+	var j = 0;
+	var i = 0;
+	while (i < bytes.length) {
+		var b = bytes[i];
+		var needed = 0;
+		var c = b;
+		if (b >= 0xC2 && b <= 0xDF) {
+			needed = 1;
+			c = b & 0x1F;
+		} else if (b >= 0xE0 && b <= 0xEF) {
+			needed = 2;
+			c = b & 0x0F;
+		} else if (b >= 0xF0 && b <= 0xF4) {
+			needed = 3;
+			c = b & 0x07;
+		} else if (b > 0x7F) {
+			needed = -1;
+		}
+		var k = 1;
+		for (; k <= needed; k++) {
+			var cont = i + k < bytes.length ? bytes[i + k] : 0;
+			if ((cont & 0xC0) !== 0x80) {
+				break;
+			}
+			c = (c << 6) | (cont & 0x3F);
+		}
+		if (needed < 0 || k <= needed || isOverlongOrInvalid(c, needed)) {
+			data[j++] = 0xFFFD;
+			i += 1;
+		} else {
+			data[j++] = c;
+			i += needed + 1;
+		}
 	}
-	stream._size = stream.data.length;
+	// a view would keep the whole allocation alive, so copy when multi-byte
+	// characters left a good part of it unused
+	return j < data.length * 3 / 4 ? data.slice(0, j) : data.subarray(0, j);
+}
+
+function isOverlongOrInvalid(c, needed) {
+	return (needed === 2 && (c < 0x800 || (c >= 0xD800 && c <= 0xDFFF))) ||
+		(needed === 3 && (c < 0x10000 || c > 0x10FFFF));
 }
 
-function InputStream(data) {
+function InputStream(data, decodeToUnicodeCodePoints) {
 	this.name = "<empty>";
-	this.strdata = data;
-	_loadString(this);
+	_loadString(this, data, decodeToUnicodeCodePoints || false);
 	return this;
 }
 
+// Largest number of arguments passed to {@code String.fromCharCode} at once
+// when turning typed array symbols back into text.
+InputStream.TEXT_CHUNK_SIZE = 8192;
+
 Object.defineProperty(InputStream.prototype, "index", {
 	get : function() {
 		return this._index;
@@ -88,7 +203,7 @@ InputStream.prototype.LA = function(offset) {
 	if (pos < 0 || pos >= this._size) { // invalid
 		return Token.EOF;
 	}
-	return this.data[pos];
+	return this.strdata !== null ? this.strdata.charCodeAt(pos) : this.data[pos];
 };
 
 InputStream.prototype.LT = function(offset) {
@@ -122,13 +237,25 @@ InputStream.prototype.getText = function(start, stop) {
 	}
 	if (start >= this._size) {
 		return "";
-	} else {
+	} else if (this.strdata !== null) {
 		return this.strdata.slice(start, stop + 1);
+	} else {
+		return symbolsToString(this.data, start, stop + 1);
 	}
 };
 
+function symbolsToString(data, start, end) {
+	var fromCode = data instanceof Uint32Array ? String.fromCodePoint : String.fromCharCode;
+	var s = "";
+	for (var i = start; i < end; i += InputStream.TEXT_CHUNK_SIZE) {
+		var chunk = data.subarray(i, Math.min(end, i + InputStream.TEXT_CHUNK_SIZE));
+		s += fromCode.apply(String, chunk);
+	}
+	return s;
+}
+
 InputStream.prototype.toString = function() {
-	return this.strdata;
+	return this.strdata !== null ? this.strdata : symbolsToString(this.data, 0, this._size);
 };
 
 exports.InputStream = InputStream;
@@ -30,6 +30,7 @@
 ///
 
 var Set = require('./Utils').Set;
+var BitSet = require('./Utils').BitSet;
 var Token = require('./Token').Token;
 var ATNConfig = require('./atn/ATNConfig').ATNConfig;
 var IntervalSet = require('./IntervalSet').IntervalSet;
@@ -39,6 +40,8 @@ var NotSetTransition = require('./atn/Transition').NotSetTransition;
 var WildcardTransition = require('./atn/Transition').WildcardTransition;
 var AbstractPredicateTransition = require('./atn/Transition').AbstractPredicateTransition;
 
+var PredictionContext = require('./PredictionContext').PredictionContext;
+var SingletonPredictionContext = require('./PredictionContext').SingletonPredictionContext;
 var predictionContextFromRuleContext = require('./PredictionContext').predictionContextFromRuleContext;
 
 function LL1Analyzer (atn) {
@@ -105,7 +108,7 @@ LL1Analyzer.prototype.LOOK = function(s, stopState, ctx) {
     var seeThruPreds = true; // ignore preds; get all lookahead
 	ctx = ctx || null;
     var lookContext = ctx!==null ? predictionContextFromRuleContext(s.atn, ctx) : null;
-    this._LOOK(s, stopState, lookContext, r, new Set(), new Set(), seeThruPreds, true);
+    this._LOOK(s, stopState, lookContext, r, new Set(), new BitSet(), seeThruPreds, true);
     return r;
 };
     
@@ -140,7 +143,7 @@ LL1Analyzer.prototype.LOOK = function(s, stopState, ctx) {
 // is {@code null}.
 ///
 LL1Analyzer.prototype._LOOK = function(s, stopState , ctx, look, lookBusy, calledRuleStack, seeThruPreds, addEOF) {
-    var c = new ATNConfig({state:s, alt:0}, ctx);
+    var c = ATNConfig.create(s, 0, ctx);
     if (lookBusy.contains(c)) {
         return;
     }
@@ -168,8 +171,8 @@ LL1Analyzer.prototype._LOOK = function(s, stopState , ctx, look, lookBusy, calle
                 var returnState = this.atn.states[ctx.getReturnState(i)];
                 var removed = calledRuleStack.contains(returnState.ruleIndex); 
                 try {
-                    calledRuleStack.discard(returnState.ruleIndex);
-                    self._LOOK(returnState, stopState, ctx.getParent(i), look, lookBusy, calledRuleStack, seeThruPreds, addEOF);
+                    calledRuleStack.remove(returnState.ruleIndex);
+                    this._LOOK(returnState, stopState, ctx.getParent(i), look, lookBusy, calledRuleStack, seeThruPreds, addEOF);
                 } finally {
                     if (removed) {
                         calledRuleStack.add(returnState.ruleIndex);
@@ -0,0 +1,192 @@
+// 
+//  [The "BSD license"]
+//   Copyright (c) 2012 Terence Parr
+//   Copyright (c) 2012 Sam Harwell
+//   Copyright (c) 2014 Eric Vergnaud
+//   All rights reserved.
+// 
+//   Redistribution and use in source and binary forms, with or without
+//   modification, are permitted provided that the following conditions
+//   are met:
+// 
+//   1. Redistributions of source code must retain the above copyright
+//      notice, this list of conditions and the following disclaimer.
+//   2. Redistributions in binary form must reproduce the above copyright
+//      notice, this list of conditions and the following disclaimer in the
+//      documentation and/or other materials provided with the distribution.
+//   3. The name of the author may not be used to endorse or promote products
+//      derived from this software without specific prior written permission.
+// 
+//   THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+//   IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+//   OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+//   IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+//   INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+//   NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+//   DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+//   THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+//   (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+//   THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+// Runs a lexer over input that arrives asynchronously, from a node
+// {@code Readable} or any async iterable of {@code Buffer}s or strings, and
+// exposes the tokens as an object mode {@code Readable}. Each token is pushed
+// as soon as the input after it proves it complete, and the last one once
+// the input ends, followed by the EOF token.
+//
+// <p>Backpressure runs both ways: when the token consumer stops reading, the
+// input source is paused until {@code _read} is called again, so neither the
+// tokens nor the undecoded input pile up in memory.</p>
+//
+// <p>A token attempt which reaches the end of the input written so far is
+// undone: the char stream is rewound to the token start, the lexer's line,
+// column and mode stack are restored, and errors reported during the attempt
+// are dropped. The attempt is then retried with more input. Lexer actions
+// with side effects of their own can therefore run more than once for the
+// same token.</p>
+//
+// <p>Each retry lexes the token again from its start, so it is only made once
+// the input received after the token start has doubled. A token which spans
+// many chunks is then lexed a logarithmic number of times, for a total cost
+// of at most twice its length, rather than once per chunk.</p>
+
+var Readable = require('stream').Readable;
+var Token = require('./Token').Token;
+var ErrorListener = require('./error/ErrorListener').ErrorListener;
+var CommonTokenFactory = require('./CommonTokenFactory').CommonTokenFactory;
+var ChunkedCharStream = require('./ChunkedCharStream').ChunkedCharStream;
+
+function LexerStream(lexer, source, options) {
+	options = options || {};
+	Readable.call(this, { objectMode : true, highWaterMark : options.highWaterMark || 256 });
+	this.lexer = lexer;
+	this.chars = new ChunkedCharStream(options.bufferSize);
+	lexer.inputStream = this.chars;
+	if (lexer._factory === CommonTokenFactory.DEFAULT) {
+		// the window only holds the current token, so text must be copied
+		lexer._factory = new CommonTokenFactory(true);
+	}
+	this.source = typeof source.on === "function" ? source : Readable.from(source);
+	this.finished = false;
+	this.waiting = false;
+	// The number of characters {@link //chars} must have received before the
+	// token which last ran out of input is tried again.
+	this.retryAt = 0;
+	var self = this;
+	this.source.on("data", function(chunk) {
+		self.chars.write(chunk);
+		self.pump();
+	});
+	this.source.on("end", function() {
+		self.chars.end();
+		self.pump();
+	});
+	this.source.on("error", function(e) {
+		self.destroy(e);
+	});
+	return this;
+}
+
+LexerStream.prototype = Object.create(Readable.prototype);
+LexerStream.prototype.constructor = LexerStream;
+
+LexerStream.prototype._read = function() {
+	if (this.waiting) {
+		this.waiting = false;
+		this.pump();
+		if (!this.waiting) {
+			this.source.resume();
+		}
+	}
+};
+
+// Push every token that can be completed with the input received so far,
+// pausing the source if the consumer asks us to stop.
+LexerStream.prototype.pump = function() {
+	while (!this.finished && !this.waiting) {
+		var token;
+		try {
+			token = this.nextCompleteToken();
+		} catch (e) {
+			this.destroy(e);
+			return;
+		}
+		if (token === null) {
+			return;
+		}
+		if (token.type === Token.EOF) {
+			this.finished = true;
+			this.push(token);
+			this.push(null);
+		} else if (!this.push(token)) {
+			this.waiting = true;
+			this.source.pause();
+		}
+	}
+};
+
+// Return the next token, or {@code null} if it cannot be completed until more
+// input arrives.
+LexerStream.prototype.nextCompleteToken = function() {
+	var lexer = this.lexer;
+	var chars = this.chars;
+	if (!chars.ended && chars.written < this.retryAt) {
+		return null;
+	}
+	var marker = chars.mark();
+	var start = chars.index;
+	var line = lexer._interp.line;
+	var column = lexer._interp.column;
+	var mode = lexer._mode;
+	var modeStack = lexer._modeStack.slice(0);
+	var hitEOF = lexer._hitEOF;
+	// hold errors back until we know the attempt is kept
+	var listeners = lexer._listeners;
+	var errors = new DeferredErrorListener();
+	lexer._listeners = [ errors ];
+	chars.starved = false;
+	var token;
+	try {
+		token = lexer.nextToken();
+	} finally {
+		lexer._listeners = listeners;
+	}
+	if (chars.starved && !chars.ended) {
+		chars.seek(start);
+		chars.release(marker);
+		lexer._interp.line = line;
+		lexer._interp.column = column;
+		lexer._mode = mode;
+		lexer._modeStack = modeStack;
+		lexer._hitEOF = hitEOF;
+		this.retryAt = 2 * chars.written - start;
+		return null;
+	}
+	chars.release(marker);
+	this.retryAt = 0;
+	errors.replay(lexer.getErrorListenerDispatch());
+	return token;
+};
+
+// Records the errors reported during a token attempt, so that they can be
+// reported to the lexer's own listeners if the attempt is kept.
+function DeferredErrorListener() {
+	ErrorListener.call(this);
+	this.errors = [];
+	return this;
+}
+
+DeferredErrorListener.prototype = Object.create(ErrorListener.prototype);
+DeferredErrorListener.prototype.constructor = DeferredErrorListener;
+
+DeferredErrorListener.prototype.syntaxError = function(recognizer, offendingSymbol, line, column, msg, e) {
+	this.errors.push([recognizer, offendingSymbol, line, column, msg, e]);
+};
+
+DeferredErrorListener.prototype.replay = function(listener) {
+	for (var i = 0; i < this.errors.length; i++) {
+		listener.syntaxError.apply(listener, this.errors[i]);
+	}
+};
+
+exports.LexerStream = LexerStream;
@@ -0,0 +1,252 @@
+//
+// [The "BSD license"]
+//  Copyright (c) 2012 Terence Parr
+//  Copyright (c) 2012 Sam Harwell
+//  Copyright (c) 2014 Eric Vergnaud
+//  All rights reserved.
+//
+//  Redistribution and use in source and binary forms, with or without
+//  modification, are permitted provided that the following conditions
+//  are met:
+//
+//  1. Redistributions of source code must retain the above copyright
+//     notice, this list of conditions and the following disclaimer.
+//  2. Redistributions in binary form must reproduce the above copyright
+//     notice, this list of conditions and the following disclaimer in the
+//     documentation and/or other materials provided with the distribution.
+//  3. The name of the author may not be used to endorse or promote products
+//     derived from this software without specific prior written permission.
+//
+//  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+//  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+//  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+//  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+//  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+//  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+//  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+//  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+//  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+//  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+// Parses many documents in parallel on a pool of {@code worker_threads}.
+//
+// <p>Generated recognizers cannot be handed to another thread, so each
+// worker loads them from a job module, given by its absolute path, which
+// exports:</p>
+//
+// <ul>
+// <li>{@code Lexer} and {@code Parser}: the generated recognizer classes;</li>
+// <li>{@code startRule}: the name of the parser rule to invoke;</li>
+// <li>{@code twoStage} (optional): {@code true} to parse with
+// {@link Parser//parseTwoStage} rather than plain LL prediction;</li>
+// <li>{@code process(tree, parser, name)}: turns the parse tree into the
+// result sent back to the main thread, for instance by walking it with a
+// listener. The result must survive the structured clone algorithm, which
+// the tree itself does not.</li>
+// </ul>
+//
+// <p>The DFA of a generated recognizer lives in its module and is shared by
+// all its instances, but each thread has its own copy of the module. To avoid
+// every worker warming its DFA from nothing, the pool takes a
+// {@link DFASnapshot} of the lexer and parser DFA held by the main thread
+// when it starts, and each worker loads it before its first parse. Warm the
+// main thread first, by parsing representative input or loading a saved
+// snapshot, to get the most out of this. Workers grow their own DFA from
+// there; it is not merged back.</p>
+//
+// <p>{@code options.size} sets the number of workers, by default one per
+// CPU. {@code options.snapshot} set to {@code false} starts the workers
+// cold. A worker which dies or exits, taking its document with it, is
+// replaced up to {@code options.maxRestarts} times, by default as many as
+// there are workers. Past that, the pool carries on with the workers it has
+// left, and once none are left, it fails every pending and later
+// document.</p>
+
+var Worker = require('worker_threads').Worker;
+var os = require('os');
+var path = require('path');
+var DFASnapshot = require('./dfa/DFASnapshot').DFASnapshot;
+
+function ParsePool(jobModule, options) {
+	options = options || {};
+	var job = require(jobModule);
+	if (typeof job.process !== "function") {
+		throw "Job module " + jobModule + " does not export process(tree, parser, name)";
+	}
+	this.jobModule = jobModule;
+	this.size = options.size || os.cpus().length;
+	this.maxRestarts = options.maxRestarts !== undefined ? options.maxRestarts : this.size;
+	this.restarts = 0;
+	this.snapshots = options.snapshot === false ? null : ParsePool.takeSnapshots(job);
+	this.workers = [];
+	this.idle = [];
+	this.queue = [];
+	this.nextId = 0;
+	this.closed = false;
+	// Resolves the promise returned by close() once the workers are stopped.
+	this.onClosed = null;
+	this.closing = null;
+	// The error which killed the last worker, once there is none left.
+	this.failure = null;
+	for (var i = 0; i < this.size; i++) {
+		this.release(this.startWorker());
+	}
+	return this;
+}
+
+// Take a snapshot of the lexer and parser DFA of the recognizers exported by
+// {@code job}, as held by the current thread.
+ParsePool.takeSnapshots = function(job) {
+	var lexer = new job.Lexer(null);
+	var parser = new job.Parser(null);
+	return {
+		lexer : DFASnapshot.serialize(lexer._interp.atn, lexer._interp.decisionToDFA),
+		parser : DFASnapshot.serialize(parser._interp.atn, parser._interp.decisionToDFA)
+	};
+};
+
+ParsePool.prototype.startWorker = function() {
+	var worker = new Worker(path.join(__dirname, 'ParsePoolWorker.js'), {
+		workerData : { jobModule : this.jobModule, snapshots : this.snapshots }
+	});
+	worker.job = null;
+	var self = this;
+	worker.on("message", function(message) {
+		var job = worker.job;
+		worker.job = null;
+		if (message.error !== undefined) {
+			job.reject(new Error(message.error));
+		} else {
+			job.resolve(message.result);
+		}
+		self.release(worker);
+	});
+	worker.on("error", function(e) {
+		// errors which cannot be cloned arrive as plain objects
+		self.lose(worker, e instanceof Error ? e : new Error("A parse pool worker died: " + e));
+	});
+	worker.on("exit", function(code) {
+		self.lose(worker, new Error("A parse pool worker exited with code " + code + "."));
+	});
+	this.workers.push(worker);
+	return worker;
+};
+
+// Drop {@code worker}, which is gone, failing its document with {@code e}, and
+// replace it if the pool still needs it. A worker which dies emits "error"
+// and then "exit", so only the first of them counts.
+ParsePool.prototype.lose = function(worker, e) {
+	var i = this.workers.indexOf(worker);
+	if (i < 0) {
+		return;
+	}
+	this.workers.splice(i, 1);
+	i = this.idle.indexOf(worker);
+	if (i >= 0) {
+		this.idle.splice(i, 1);
+	}
+	var job = worker.job;
+	worker.job = null;
+	if (job !== null) {
+		job.reject(e);
+	}
+	if (this.closed && this.queue.length === 0) {
+		// stopped by close(), or no longer needed
+	} else if (this.restarts < this.maxRestarts) {
+		this.restarts += 1;
+		this.release(this.startWorker());
+	} else if (this.workers.length === 0) {
+		this.fail(e);
+	}
+	this.drain();
+};
+
+// Fail the queued documents, and every later one, with {@code e}.
+ParsePool.prototype.fail = function(e) {
+	this.failure = e;
+	var queue = this.queue;
+	this.queue = [];
+	for (var i = 0; i < queue.length; i++) {
+		queue[i].reject(e);
+	}
+};
+
+// Hand the next queued document to {@code worker}, or mark it idle.
+ParsePool.prototype.release = function(worker) {
+	if (this.queue.length > 0) {
+		this.dispatch(worker, this.queue.shift());
+	} else if (this.idle.indexOf(worker) < 0) {
+		this.idle.push(worker);
+	}
+	this.drain();
+};
+
+ParsePool.prototype.dispatch = function(worker, job) {
+	worker.job = job;
+	worker.postMessage({ id : job.id, text : job.text, name : job.name });
+};
+
+// Parse {@code text} on the next available worker. Return a promise of the
+// result computed by the job module; {@code name} is passed through to it and
+// used as the source name of the input.
+ParsePool.prototype.parse = function(text, name) {
+	if (this.closed) {
+		return Promise.reject(new Error("The parse pool is closed."));
+	}
+	if (this.failure !== null) {
+		return Promise.reject(this.failure);
+	}
+	var self = this;
+	return new Promise(function(resolve, reject) {
+		var job = { id : self.nextId++, text : text, name : name || null,
+			resolve : resolve, reject : reject };
+		if (self.idle.length > 0) {
+			self.dispatch(self.idle.shift(), job);
+		} else {
+			self.queue.push(job);
+		}
+	});
+};
+
+// Parse every string in {@code texts}. Return a promise of the results, in
+// the same order.
+ParsePool.prototype.parseAll = function(texts) {
+	var self = this;
+	return Promise.all(texts.map(function(text, i) {
+		return self.parse(text, "" + i);
+	}));
+};
+
+// Stop the workers once the queued documents are parsed. Return a promise
+// which resolves once they are stopped.
+ParsePool.prototype.close = function() {
+	if (this.closing === null) {
+		var self = this;
+		this.closed = true;
+		this.closing = new Promise(function(resolve) {
+			self.onClosed = resolve;
+		});
+		this.drain();
+	}
+	return this.closing;
+};
+
+// Stop the workers if the pool is closed and no document is left.
+ParsePool.prototype.drain = function() {
+	if (this.onClosed === null || this.queue.length > 0) {
+		return;
+	}
+	for (var i = 0; i < this.workers.length; i++) {
+		if (this.workers[i].job !== null) {
+			return;
+		}
+	}
+	var onClosed = this.onClosed;
+	this.onClosed = null;
+	Promise.all(this.workers.map(function(w) { return w.terminate(); })).then(function() {
+		onClosed();
+	});
+};
+
+exports.ParsePool = ParsePool;
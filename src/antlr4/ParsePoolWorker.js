@@ -0,0 +1,72 @@
+//
+// [The "BSD license"]
+//  Copyright (c) 2012 Terence Parr
+//  Copyright (c) 2012 Sam Harwell
+//  Copyright (c) 2014 Eric Vergnaud
+//  All rights reserved.
+//
+//  Redistribution and use in source and binary forms, with or without
+//  modification, are permitted provided that the following conditions
+//  are met:
+//
+//  1. Redistributions of source code must retain the above copyright
+//     notice, this list of conditions and the following disclaimer.
+//  2. Redistributions in binary form must reproduce the above copyright
+//     notice, this list of conditions and the following disclaimer in the
+//     documentation and/or other materials provided with the distribution.
+//  3. The name of the author may not be used to endorse or promote products
+//     derived from this software without specific prior written permission.
+//
+//  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+//  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+//  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+//  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+//  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+//  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+//  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+//  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+//  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+//  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+// Entry point of the worker threads started by {@link ParsePool}. Loads the
+// job module and the DFA snapshots, then parses each document it receives.
+
+var workerThreads = require('worker_threads');
+var InputStream = require('./InputStream').InputStream;
+var CommonTokenStream = require('./CommonTokenStream').CommonTokenStream;
+var DFASnapshot = require('./dfa/DFASnapshot').DFASnapshot;
+
+var job = require(workerThreads.workerData.jobModule);
+var snapshots = workerThreads.workerData.snapshots;
+
+if (snapshots !== null) {
+	// the DFA of a generated recognizer is shared through its module, so
+	// loading it into one instance seeds every later one
+	var lexer = new job.Lexer(null);
+	DFASnapshot.deserialize(lexer._interp.atn, lexer._interp.decisionToDFA, snapshots.lexer);
+	var parser = new job.Parser(null);
+	DFASnapshot.deserialize(parser._interp.atn, parser._interp.decisionToDFA, snapshots.parser);
+}
+
+function parse(text, name) {
+	var chars = new InputStream(text);
+	if (name !== null) {
+		chars.name = name;
+	}
+	var lexer = new job.Lexer(chars);
+	var parser = new job.Parser(new CommonTokenStream(lexer));
+	var tree = job.twoStage ? parser.parseTwoStage(job.startRule).tree : parser[job.startRule]();
+	return job.process(tree, parser, name);
+}
+
+workerThreads.parentPort.on("message", function(message) {
+	var result;
+	try {
+		result = parse(message.text, message.name);
+	} catch (e) {
+		workerThreads.parentPort.postMessage({ id : message.id, error : "" + (e && e.stack ? e.stack : e) });
+		return;
+	}
+	workerThreads.parentPort.postMessage({ id : message.id, result : result });
+});
@@ -30,9 +30,16 @@
 var Token = require('./Token').Token;
 var ParseTreeListener = require('./tree/Tree').ParseTreeListener;
 var Recognizer = require('./Recognizer').Recognizer;
+var ParserRuleContext = require('./ParserRuleContext').ParserRuleContext;
 var DefaultErrorStrategy = require('./error/ErrorStrategy').DefaultErrorStrategy;
+var BailErrorStrategy = require('./error/ErrorStrategy').BailErrorStrategy;
+var ParseCancellationException = require('./error/Errors').ParseCancellationException;
 var ATNDeserializer = require('./atn/ATNDeserializer').ATNDeserializer;
 var ATNDeserializationOptions = require('./atn/ATNDeserializationOptions').ATNDeserializationOptions;
+var ParserATNSimulator = require('./atn/ParserATNSimulator').ParserATNSimulator;
+var ProfilingATNSimulator = require('./atn/ProfilingATNSimulator').ProfilingATNSimulator;
+var ParseInfo = require('./atn/ParseInfo').ParseInfo;
+var PredictionMode = require('./atn/PredictionMode').PredictionMode;
 
 function TraceListener() {
 	ParseTreeListener.call(this);
@@ -54,6 +61,64 @@ TraceListener.prototype.exitEveryRule = function(parser, ctx) {
 	console.log("exit    " + parser.ruleNames[ctx.ruleIndex] + ", LT(1)=" + parser._input.LT(1).text);
 };
 
+// Stands in for the parse listeners during the first stage of
+// {@link Parser//parseTwoStage}, recording their events so that they can be
+// delivered if the stage succeeds and dropped if it does not.
+function ParseEventRecorder() {
+	ParseTreeListener.call(this);
+	this.events = [];
+	return this;
+}
+
+ParseEventRecorder.prototype = Object.create(ParseTreeListener.prototype);
+ParseEventRecorder.prototype.constructor = ParseEventRecorder;
+
+ParseEventRecorder.prototype.enterEveryRule = function(ctx) {
+	this.events.push({ type: "enter", node: ctx });
+};
+
+ParseEventRecorder.prototype.exitEveryRule = function(ctx) {
+	this.events.push({ type: "exit", node: ctx });
+};
+
+ParseEventRecorder.prototype.visitTerminal = function(node) {
+	this.events.push({ type: "terminal", node: node });
+};
+
+ParseEventRecorder.prototype.visitErrorNode = function(node) {
+	this.events.push({ type: "error", node: node });
+};
+
+// Deliver the recorded events to {@code listeners} in the order, and with
+// the calls, that {@link Parser//triggerEnterRuleEvent},
+// {@link Parser//triggerExitRuleEvent} and {@link Parser//consume} use.
+ParseEventRecorder.prototype.replay = function(listeners) {
+	for (var i = 0; i < this.events.length; i++) {
+		var event = this.events[i];
+		var node = event.node;
+		var j;
+		if (event.type === "enter") {
+			for (j = 0; j < listeners.length; j++) {
+				listeners[j].enterEveryRule(node);
+				node.enterRule(listeners[j]);
+			}
+		} else if (event.type === "exit") {
+			for (j = listeners.length - 1; j >= 0; j--) {
+				node.exitRule(listeners[j]);
+				listeners[j].exitEveryRule(node);
+			}
+		} else if (event.type === "terminal") {
+			for (j = 0; j < listeners.length; j++) {
+				listeners[j].visitTerminal(node);
+			}
+		} else {
+			for (j = 0; j < listeners.length; j++) {
+				listeners[j].visitErrorNode(node);
+			}
+		}
+	}
+};
+
 // this is all the parsing support code essentially; most of it is error
 // recovery stuff.//
 function Parser(input) {
@@ -83,6 +148,10 @@ function Parser(input) {
 	// The number of syntax errors reported during parsing. this value is
 	// incremented each time {@link //notifyErrorListeners} is called.
 	this._syntaxErrors = 0;
+	// The contexts reused by the rules of a recognizer-only parser, one for
+	// each depth of rule invocation, and the current depth.
+	this._recognizerContexts = [];
+	this._recognizerDepth = 0;
 	this.setInputStream(input);
 	return this;
 }
@@ -106,6 +175,7 @@ Parser.prototype.reset = function() {
 	this._errHandler.reset(this);
 	this._ctx = null;
 	this._syntaxErrors = 0;
+	this._recognizerDepth = 0;
 	this.setTrace(false);
 	this._precedenceStack = [];
 	this._precedenceStack.push(0);
@@ -249,9 +319,10 @@ Parser.prototype.removeParseListeners = function() {
 // Notify any parse listeners of an enter rule event.
 Parser.prototype.triggerEnterRuleEvent = function() {
 	if (this._parseListeners !== null) {
+		var ctx = this._ctx;
 		this._parseListeners.map(function(listener) {
-			listener.enterEveryRule(this._ctx);
-			this._ctx.enterRule(listener);
+			listener.enterEveryRule(ctx);
+			ctx.enterRule(listener);
 		});
 	}
 };
@@ -264,9 +335,10 @@ Parser.prototype.triggerEnterRuleEvent = function() {
 Parser.prototype.triggerExitRuleEvent = function() {
 	if (this._parseListeners !== null) {
 		// reverse order walk of listeners
+		var ctx = this._ctx;
 		this._parseListeners.slice(0).reverse().map(function(listener) {
-			this._ctx.exitRule(listener);
-			listener.exitEveryRule(this._ctx);
+			ctx.exitRule(listener);
+			listener.exitEveryRule(ctx);
 		});
 	}
 };
@@ -447,6 +519,46 @@ Parser.prototype.exitRule = function() {
 	this._ctx = this._ctx.parentCtx;
 };
 
+// Like {@link //enterRule}, for the rules of a parser generated as a
+// recognizer only. Instead of a new context of the rule's own type, the rule
+// gets a plain {@link ParserRuleContext} reused by every rule invoked at the
+// same depth, which only tracks what prediction and error recovery need: the
+// parent context, the invoking state and the rule index. The start and stop
+// tokens are not captured, and no parse tree is built.
+//
+// <p>The context is only valid until the rule returns, so it must not be
+// kept, for instance from a listener or a rule's return value.</p>
+Parser.prototype.enterRecognizerRule = function(state, ruleIndex) {
+	var localctx = this._recognizerContexts[this._recognizerDepth];
+	if (localctx === undefined) {
+		localctx = new ParserRuleContext(null, -1);
+		this._recognizerContexts.push(localctx);
+	}
+	this._recognizerDepth += 1;
+	localctx.parentCtx = this._ctx;
+	localctx.invokingState = this.state;
+	localctx.ruleIndex = ruleIndex;
+	localctx.children = null;
+	localctx.exception = null;
+	this.state = state;
+	this._ctx = localctx;
+	if (this._parseListeners !== null) {
+		this.triggerEnterRuleEvent();
+	}
+	return localctx;
+};
+
+// Like {@link //exitRule}, for a rule entered with
+// {@link //enterRecognizerRule}.
+Parser.prototype.exitRecognizerRule = function() {
+	if (this._parseListeners !== null) {
+		this.triggerExitRuleEvent();
+	}
+	this.state = this._ctx.invokingState;
+	this._ctx = this._ctx.parentCtx;
+	this._recognizerDepth -= 1;
+};
+
 Parser.prototype.enterOuterAlt = function(localctx, altNum) {
 	// if we have new localctx, make sure we replace existing ctx
 	// that is previous child of parse tree
@@ -468,7 +580,7 @@ Parser.prototype.getPrecedence = function() {
 	if (this._precedenceStack.length === 0) {
 		return -1;
 	} else {
-		return this._precedenceStack[-1];
+		return this._precedenceStack[this._precedenceStack.length - 1];
 	}
 };
 
@@ -537,7 +649,7 @@ Parser.prototype.getInvokingContext = function(ruleIndex) {
 };
 
 Parser.prototype.precpred = function(localctx, precedence) {
-	return precedence >= this._precedenceStack[-1];
+	return precedence >= this._precedenceStack[this._precedenceStack.length - 1];
 };
 
 Parser.prototype.inContext = function(context) {
@@ -678,4 +790,104 @@ Parser.prototype.setTrace = function(trace) {
 	}
 };
 
+// Turn per-decision profiling on or off. While profiling, the parser uses a
+// {@link ProfilingATNSimulator} which shares the DFA of the current
+// interpreter and keeps its prediction mode; the statistics are available
+// from {@link //getParseInfo}. Turning profiling off restores a plain
+// {@link ParserATNSimulator} and discards the statistics.
+//
+Parser.prototype.setProfile = function(profile) {
+	var interp = this._interp;
+	var saveMode = interp.predictionMode;
+	if (profile) {
+		if (!(interp instanceof ProfilingATNSimulator)) {
+			this._interp = new ProfilingATNSimulator(this);
+		}
+	} else if (interp instanceof ProfilingATNSimulator) {
+		this._interp = new ParserATNSimulator(this, interp.atn, interp.decisionToDFA, interp.sharedContextCache);
+	}
+	this._interp.predictionMode = saveMode;
+};
+
+// Return the profiling statistics collected since {@link //setProfile} was
+// turned on, or {@code null} if the parser is not profiling.
+//
+Parser.prototype.getParseInfo = function() {
+	if (this._interp instanceof ProfilingATNSimulator) {
+		return new ParseInfo(this._interp);
+	} else {
+		return null;
+	}
+};
+
+// Parse {@code startRule} with the two-stage strategy: first with
+// {@link PredictionMode//SLL} and a {@link BailErrorStrategy}, which is
+// enough for almost all inputs and much faster; if that stage hits a syntax
+// error, rewind the token stream and parse again with
+// {@link PredictionMode//LL} and the parser's own error strategy, normally a
+// {@link DefaultErrorStrategy}. Only a true syntax error, or a grammar that
+// needs full context, pays for the second stage, and only the second stage
+// reports errors to the error listeners.
+//
+// <p>{@code startRule} is the name of the rule method, such as
+// {@code "compilationUnit"}, or a function invoked with the parser as
+// {@code this}. The result is an object holding the parse {@code tree} and
+// the {@code predictionMode} of the stage which produced it. The parser's
+// prediction mode and error strategy are restored afterwards.</p>
+//
+// <p>Parse listeners see every event once, from the stage which produced
+// the tree. The events of the first stage are held back until it completes,
+// so a parse which succeeds in that stage delivers them all at its end,
+// in the order they occurred, instead of as the parse goes; listeners which
+// inspect the parser or the token stream from their callbacks should not be
+// used with this method.</p>
+//
+Parser.prototype.parseTwoStage = function(startRule) {
+	var rule = typeof startRule === "function" ? startRule : this[startRule];
+	if (typeof rule !== "function") {
+		throw "Unknown start rule: " + startRule;
+	}
+	// a stream which has not fetched a token yet has no index to return to
+	this._input.LT(1);
+	var startIndex = this._input.index;
+	var errHandler = this._errHandler;
+	var listeners = this._listeners;
+	var parseListeners = this._parseListeners;
+	var saveMode = this._interp.predictionMode;
+	try {
+		this._interp.predictionMode = PredictionMode.SLL;
+		this._errHandler = new BailErrorStrategy();
+		this._listeners = [];
+		var recorder = null;
+		if (parseListeners !== null) {
+			recorder = new ParseEventRecorder();
+			this._parseListeners = [ recorder ];
+		}
+		try {
+			var tree = rule.call(this);
+			this._parseListeners = parseListeners;
+			if (recorder !== null) {
+				recorder.replay(parseListeners);
+			}
+			return { tree: tree, predictionMode: PredictionMode.SLL };
+		} catch (e) {
+			if (!(e instanceof ParseCancellationException)) {
+				throw e;
+			}
+		}
+		this._errHandler = errHandler;
+		this._listeners = listeners;
+		this._parseListeners = parseListeners;
+		this.reset();
+		this._input.seek(startIndex);
+		this._interp.predictionMode = PredictionMode.LL;
+		return { tree: rule.call(this), predictionMode: PredictionMode.LL };
+	} finally {
+		this._errHandler = errHandler;
+		this._listeners = listeners;
+		this._parseListeners = parseListeners;
+		this._interp.predictionMode = saveMode;
+	}
+};
+
 exports.Parser = Parser;
\ No newline at end of file
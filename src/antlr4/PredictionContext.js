@@ -30,9 +30,11 @@
 ///
 
 var RuleContext = require('./RuleContext').RuleContext;
+var HashSet = require('./Utils').HashSet;
+var MurmurHash = require('./Utils').MurmurHash;
 
-function PredictionContext(cachedHashString) {
-	this.cachedHashString = cachedHashString;
+function PredictionContext(cachedHashCode) {
+	this.cachedHashCode = cachedHashCode;
 }
 
 // Represents {@code $} in local context prediction, which means wildcard.
@@ -49,6 +51,8 @@ PredictionContext.EMPTY_RETURN_STATE = 0x7FFFFFFF;
 PredictionContext.globalNodeCount = 1;
 PredictionContext.id = PredictionContext.globalNodeCount;
 
+PredictionContext.INITIAL_HASH = 1;
+
 // Stores the computed hash code of this {@link PredictionContext}. The hash
 // code is computed in parts to match the following reference algorithm.
 //
@@ -83,24 +87,61 @@ PredictionContext.prototype.hasEmptyPath = function() {
 	return this.getReturnState(this.length - 1) === PredictionContext.EMPTY_RETURN_STATE;
 };
 
+PredictionContext.prototype.hashCode = function() {
+	return this.cachedHashCode;
+};
+
+// Kept for the string-keyed {@link Set}; the value is the integer hash code.
 PredictionContext.prototype.hashString = function() {
-	return this.cachedHashString;
+	return "" + this.cachedHashCode;
 };
 
-function calculateHashString(parent, returnState) {
-	return "" + parent + returnState;
+function calculateHashCode(parent, returnState) {
+	var hash = MurmurHash.initialize(PredictionContext.INITIAL_HASH);
+	hash = MurmurHash.updateObject(hash, parent);
+	hash = MurmurHash.update(hash, returnState);
+	return MurmurHash.finish(hash, 2);
+}
+
+function calculateListsHashCode(parents, returnStates) {
+	var hash = MurmurHash.initialize(PredictionContext.INITIAL_HASH);
+	for (var i = 0; i < parents.length; i++) {
+		hash = MurmurHash.updateObject(hash, parents[i]);
+	}
+	for (var j = 0; j < returnStates.length; j++) {
+		hash = MurmurHash.update(hash, returnStates[j]);
+	}
+	return MurmurHash.finish(hash, 2 * parents.length);
+}
+
+function calculateEmptyHashCode() {
+	var hash = MurmurHash.initialize(PredictionContext.INITIAL_HASH);
+	return MurmurHash.finish(hash, 0);
+}
+
+function hashPredictionContext(ctx) {
+	return ctx.cachedHashCode;
 }
 
-function calculateEmptyHashString() {
-	return "";
+function equalPredictionContexts(a, b) {
+	return a === b || a.equals(b);
 }
 
 // Used to cache {@link PredictionContext} objects. Its used for the shared
 // context cash associated with contexts in DFA states. This cache
 // can be used for both lexers and parsers.
-
-function PredictionContextCache() {
-	this.cache = {};
+//
+// <p>The cache hash-conses contexts on their structural hash code, so each
+// distinct graph is kept once. When {@code capacity} is given, the cache is
+// emptied once it holds that many contexts; contexts already shared by DFA
+// states stay shared, and later ones start a fresh table.</p>
+
+function PredictionContextCache(capacity) {
+	this.cache = new HashSet(hashPredictionContext, equalPredictionContexts);
+	// The maximum number of contexts held, or 0 for no limit.
+	this.capacity = capacity || 0;
+	// The number of times the cache was emptied to stay within capacity.
+	this.evictions = 0;
 	return this;
 }
 
@@ -112,16 +153,19 @@ PredictionContextCache.prototype.add = function(ctx) {
 	if (ctx === PredictionContext.EMPTY) {
 		return PredictionContext.EMPTY;
 	}
-	var existing = this.cache[ctx];
-	if (existing !== null) {
-		return existing;
+	if (this.capacity > 0 && this.cache.length >= this.capacity) {
+		var existing = this.cache.get(ctx);
+		if (existing !== null) {
+			return existing;
+		}
+		this.cache.clear();
+		this.evictions += 1;
 	}
-	this.cache[ctx] = ctx;
-	return ctx;
+	return this.cache.add(ctx);
 };
 
 PredictionContextCache.prototype.get = function(ctx) {
-	return this.cache[ctx];
+	return this.cache.get(ctx);
 };
 
 Object.defineProperty(PredictionContextCache.prototype, "length", {
@@ -131,9 +175,9 @@ Object.defineProperty(PredictionContextCache.prototype, "length", {
 });
 
 function SingletonPredictionContext(parent, returnState) {
-	var hashString = parent !== null ? calculateHashString(parent, returnState)
-			: calculateEmptyHashString();
-	PredictionContext.call(this, hashString);
+	var hashCode = parent !== null ? calculateHashCode(parent, returnState)
+			: calculateEmptyHashCode();
+	PredictionContext.call(this, hashCode);
 	this.parentCtx = parent;
 	this.returnState = returnState;
 }
@@ -169,18 +213,19 @@ SingletonPredictionContext.prototype.equals = function(other) {
 		return true;
 	} else if (!(other instanceof SingletonPredictionContext)) {
 		return false;
-	} else if (this.hashString() !== other.hashString()) {
+	} else if (this.cachedHashCode !== other.cachedHashCode) {
 		return false; // can't be same if hash is different
 	} else {
-		return this.returnState === other.returnState &&
-				this.parentCtx === other.parentCtx;
+		if (this.returnState !== other.returnState) {
+			return false;
+		} else if (this.parentCtx === null) {
+			return other.parentCtx === null;
+		} else {
+			return this.parentCtx.equals(other.parentCtx);
+		}
 	}
 };
 
-SingletonPredictionContext.prototype.hashString = function() {
-	return this.cachedHashString;
-};
-
 SingletonPredictionContext.prototype.toString = function() {
 	var up = this.parentCtx === null ? "" : this.parentCtx.toString();
 	if (up.length === 0) {
@@ -230,7 +275,7 @@ function ArrayPredictionContext(parents, returnStates) {
 	// from {@link //EMPTY} and non-empty. We merge {@link //EMPTY} by using
 	// null parent and
 	// returnState == {@link //EMPTY_RETURN_STATE}.
-	var hash = calculateHashString(parents, returnStates);
+	var hash = calculateListsHashCode(parents, returnStates);
 	PredictionContext.call(this, hash);
 	this.parents = parents;
 	this.returnStates = returnStates;
@@ -265,11 +310,21 @@ ArrayPredictionContext.prototype.equals = function(other) {
 		return true;
 	} else if (!(other instanceof ArrayPredictionContext)) {
 		return false;
-	} else if (this.hashString !== other.hashString()) {
+	} else if (this.cachedHashCode !== other.cachedHashCode) {
 		return false; // can't be same if hash is different
+	} else if (this.returnStates.length !== other.returnStates.length) {
+		return false;
 	} else {
-		return this.returnStates === other.returnStates &&
-				this.parents === other.parents;
+		for (var i = 0; i < this.returnStates.length; i++) {
+			if (this.returnStates[i] !== other.returnStates[i]) {
+				return false;
+			}
+			var parent = this.parents[i];
+			if (parent === null ? other.parents[i] !== null : !parent.equals(other.parents[i])) {
+				return false;
+			}
+		}
+		return true;
 	}
 };
 
@@ -317,20 +372,9 @@ function predictionContextFromRuleContext(atn, outerContext) {
 			transition.followState.stateNumber);
 }
 
-function calculateListsHashString(parents, returnStates) {
-	var s = "";
-	parents.map(function(p) {
-		s = s + p;
-	});
-	returnStates.map(function(r) {
-		s = s + r;
-	});
-	return s;
-}
-
 function merge(a, b, rootIsWildcard, mergeCache) {
 	// share same graph if both same
-	if (a === b) {
+	if (a === b || a.equals(b)) {
 		return a;
 	}
 	if (a instanceof SingletonPredictionContext && b instanceof SingletonPredictionContext) {
@@ -348,10 +392,10 @@ function merge(a, b, rootIsWildcard, mergeCache) {
 	}
 	// convert singleton so both are arrays to normalize
 	if (a instanceof SingletonPredictionContext) {
-		a = new ArrayPredictionContext(a);
+		a = new ArrayPredictionContext([a.getParent()], [a.returnState]);
 	}
 	if (b instanceof SingletonPredictionContext) {
-		b = new ArrayPredictionContext(b);
+		b = new ArrayPredictionContext([b.getParent()], [b.returnState]);
 	}
 	return mergeArrays(a, b, rootIsWildcard, mergeCache);
 }
@@ -428,7 +472,7 @@ function mergeSingletons(a, b, rootIsWildcard, mergeCache) {
 	} else { // a != b payloads differ
 		// see if we can collapse parents due to $+x parents if local ctx
 		var singleParent = null;
-		if (a === b || (a.parentCtx !== null && a.parentCtx === b.parentCtx)) { // ax +
+		if (a === b || (a.parentCtx !== null && a.parentCtx.equals(b.parentCtx))) { // ax +
 																				// bx =
 																				// [a,b]x
 			singleParent = a.parentCtx;
@@ -576,7 +620,7 @@ function mergeArrays(a, b, rootIsWildcard, mergeCache) {
 			// $+$ = $
 			var bothDollars = payload === PredictionContext.EMPTY_RETURN_STATE &&
 					a_parent === null && b_parent === null;
-			var ax_ax = (a_parent !== null && b_parent !== null && a_parent === b_parent); // ax+ax
+			var ax_ax = (a_parent !== null && b_parent !== null && a_parent.equals(b_parent)); // ax+ax
 																							// ->
 																							// ax
 			if (bothDollars || ax_ax) {
@@ -633,13 +677,13 @@ function mergeArrays(a, b, rootIsWildcard, mergeCache) {
 
 	// if we created same array as a or b, return that instead
 	// TODO: track whether this is possible above during merge sort for speed
-	if (M === a) {
+	if (M.equals(a)) {
 		if (mergeCache !== null) {
 			mergeCache.put(a, b, a);
 		}
 		return a;
 	}
-	if (M === b) {
+	if (M.equals(b)) {
 		if (mergeCache !== null) {
 			mergeCache.put(a, b, b);
 		}
@@ -658,35 +702,37 @@ function mergeArrays(a, b, rootIsWildcard, mergeCache) {
 // ones.
 // /
 function combineCommonParents(parents) {
-	var uniqueParents = {};
+	var uniqueParents = new HashSet(hashPredictionContext, equalPredictionContexts);
 
 	for (var p = 0; p < parents.length; p++) {
-		var parent = parents[p];
-		if (!(parent in uniqueParents)) {
-			uniqueParents[parent] = parent;
+		if (parents[p] !== null) {
+			parents[p] = uniqueParents.add(parents[p]);
 		}
 	}
-	for (var q = 0; q < parents.length; q++) {
-		parents[q] = uniqueParents[parents[q]];
-	}
 }
 
+// Rebuild {@code context} out of the contexts held by {@code contextCache},
+// adding the nodes which are not there yet. {@code visited} is a
+// {@code Map} from each context already processed, by identity, to its
+// cached counterpart; passing the same map for related contexts avoids
+// walking their shared subgraphs again.
+//
 function getCachedPredictionContext(context, contextCache, visited) {
-	if (context.isEmpty()) {
+	if (context === null || context.isEmpty()) {
 		return context;
 	}
-	var existing = visited[context] || null;
-	if (existing !== null) {
+	var existing = visited.get(context);
+	if (existing !== undefined) {
 		return existing;
 	}
 	existing = contextCache.get(context);
 	if (existing !== null) {
-		visited[context] = existing;
+		visited.set(context, existing);
 		return existing;
 	}
 	var changed = false;
-	var parents = [];
-	for (var i = 0; i < parents.length; i++) {
+	var parents = null;
+	for (var i = 0; i < context.length; i++) {
 		var parent = getCachedPredictionContext(context.getParent(i), contextCache, visited);
 		if (changed || parent !== context.getParent(i)) {
 			if (!changed) {
@@ -700,22 +746,20 @@ function getCachedPredictionContext(context, contextCache, visited) {
 		}
 	}
 	if (!changed) {
-		contextCache.add(context);
-		visited[context] = context;
-		return context;
+		existing = contextCache.add(context);
+		visited.set(context, existing);
+		return existing;
 	}
 	var updated = null;
-	if (parents.length === 0) {
-		updated = PredictionContext.EMPTY;
-	} else if (parents.length === 1) {
+	if (parents.length === 1) {
 		updated = SingletonPredictionContext.create(parents[0], context
 				.getReturnState(0));
 	} else {
 		updated = new ArrayPredictionContext(parents, context.returnStates);
 	}
-	contextCache.add(updated);
-	visited[updated] = updated;
-	visited[context] = updated;
+	updated = contextCache.add(updated);
+	visited.set(updated, updated);
+	visited.set(context, updated);
 
 	return updated;
 }
@@ -745,5 +789,6 @@ exports.merge = merge;
 exports.PredictionContext = PredictionContext;
 exports.PredictionContextCache = PredictionContextCache;
 exports.SingletonPredictionContext = SingletonPredictionContext;
+exports.ArrayPredictionContext = ArrayPredictionContext;
 exports.predictionContextFromRuleContext = predictionContextFromRuleContext;
 exports.getCachedPredictionContext = getCachedPredictionContext;
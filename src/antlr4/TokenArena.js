@@ -0,0 +1,187 @@
+//
+// [The "BSD license"]
+//  Copyright (c) 2012 Terence Parr
+//  Copyright (c) 2012 Sam Harwell
+//  Copyright (c) 2014 Eric Vergnaud
+//  All rights reserved.
+//
+//  Redistribution and use in source and binary forms, with or without
+//  modification, are permitted provided that the following conditions
+//  are met:
+//
+//  1. Redistributions of source code must retain the above copyright
+//     notice, this list of conditions and the following disclaimer.
+//  2. Redistributions in binary form must reproduce the above copyright
+//     notice, this list of conditions and the following disclaimer in the
+//     documentation and/or other materials provided with the distribution.
+//  3. The name of the author may not be used to endorse or promote products
+//     derived from this software without specific prior written permission.
+//
+//  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+//  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+//  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+//  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+//  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+//  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+//  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+//  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+//  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+//  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+// Struct-of-arrays storage for the tokens of a {@link BufferedTokenStream}.
+// Instead of keeping one {@link CommonToken} per token, the type, channel,
+// start, stop, line and column of each token are copied into parallel
+// {@code Int32Array}s, and the token index is the position in the arena.
+// Text is only stored for tokens whose text was set explicitly; any other
+// token reads its text from the char stream, as {@link CommonToken} does.
+//
+// <p>{@link //get} returns a {@link TokenView}, a small object reading through
+// to the arena, created on demand. Two calls for the same index return
+// different views, so compare tokens by {@link Token//tokenIndex} rather than
+// by identity.</p>
+
+var Token = require('./Token').Token;
+var CommonToken = require('./Token').CommonToken;
+
+function TokenArena(capacity) {
+	capacity = capacity || 1024;
+	this.types = new Int32Array(capacity);
+	this.channels = new Int32Array(capacity);
+	this.starts = new Int32Array(capacity);
+	this.stops = new Int32Array(capacity);
+	this.lines = new Int32Array(capacity);
+	this.columns = new Int32Array(capacity);
+	// Explicit token text, by token index.
+	this.texts = {};
+	// The [token source, char stream] pair shared by the stored tokens.
+	this.source = CommonToken.EMPTY_SOURCE;
+	this.count = 0;
+	return this;
+}
+
+Object.defineProperty(TokenArena.prototype, "length", {
+	get : function() {
+		return this.count;
+	}
+});
+
+// Copy the fields of {@code token} into the arena. The token object itself is
+// not retained.
+TokenArena.prototype.push = function(token) {
+	if (this.count === this.types.length) {
+		this.grow();
+	}
+	var i = this.count;
+	this.types[i] = token.type;
+	this.channels[i] = token.channel;
+	this.starts[i] = token.start;
+	this.stops[i] = token.stop;
+	this.lines[i] = token.line;
+	this.columns[i] = token.column;
+	if (token._text !== null) {
+		this.texts[i] = token._text;
+	}
+	if (token.source !== undefined && token.source !== CommonToken.EMPTY_SOURCE) {
+		this.source = token.source;
+	}
+	this.count += 1;
+	return this.count;
+};
+
+TokenArena.prototype.grow = function() {
+	var capacity = this.types.length * 2;
+	this.types = growArray(this.types, capacity);
+	this.channels = growArray(this.channels, capacity);
+	this.starts = growArray(this.starts, capacity);
+	this.stops = growArray(this.stops, capacity);
+	this.lines = growArray(this.lines, capacity);
+	this.columns = growArray(this.columns, capacity);
+};
+
+function growArray(array, capacity) {
+	var grown = new Int32Array(capacity);
+	grown.set(array);
+	return grown;
+}
+
+TokenArena.prototype.get = function(i) {
+	if (i < 0 || i >= this.count) {
+		return undefined;
+	}
+	return new TokenView(this, i);
+};
+
+// A {@link Token} backed by one entry of a {@link TokenArena}.
+function TokenView(arena, index) {
+	this.arena = arena;
+	this.tokenIndex = index;
+	return this;
+}
+
+TokenView.prototype = Object.create(Token.prototype);
+TokenView.prototype.constructor = TokenView;
+
+function arenaField(name) {
+	return {
+		get : function() {
+			return this.arena[name][this.tokenIndex];
+		},
+		set : function(value) {
+			this.arena[name][this.tokenIndex] = value;
+		}
+	};
+}
+
+Object.defineProperty(TokenView.prototype, "type", arenaField("types"));
+Object.defineProperty(TokenView.prototype, "channel", arenaField("channels"));
+Object.defineProperty(TokenView.prototype, "start", arenaField("starts"));
+Object.defineProperty(TokenView.prototype, "stop", arenaField("stops"));
+Object.defineProperty(TokenView.prototype, "line", arenaField("lines"));
+Object.defineProperty(TokenView.prototype, "column", arenaField("columns"));
+
+Object.defineProperty(TokenView.prototype, "source", {
+	get : function() {
+		return this.arena.source;
+	}
+});
+
+Object.defineProperty(TokenView.prototype, "text", {
+	get : function() {
+		var text = this.arena.texts[this.tokenIndex];
+		if (text !== undefined) {
+			return text;
+		}
+		var input = this.getInputStream();
+		if (input === null) {
+			return null;
+		}
+		var n = input.size;
+		if (this.start < n && this.stop < n) {
+			return input.getText(this.start, this.stop);
+		} else {
+			return "<EOF>";
+		}
+	},
+	set : function(text) {
+		if (text === null) {
+			delete this.arena.texts[this.tokenIndex];
+		} else {
+			this.arena.texts[this.tokenIndex] = text;
+		}
+	}
+});
+
+TokenView.prototype.clone = function() {
+	var t = new CommonToken(this.source, this.type, this.channel, this.start,
+			this.stop);
+	t.tokenIndex = this.tokenIndex;
+	t.line = this.line;
+	t.column = this.column;
+	t.text = this.text;
+	return t;
+};
+
+TokenView.prototype.toString = CommonToken.prototype.toString;
+
+exports.TokenArena = TokenArena;
+exports.TokenView = TokenView;
@@ -0,0 +1,290 @@
+// 
+//  [The "BSD license"]
+//   Copyright (c) 2012 Terence Parr
+//   Copyright (c) 2012 Sam Harwell
+//   Copyright (c) 2014 Eric Vergnaud
+//   All rights reserved.
+// 
+//   Redistribution and use in source and binary forms, with or without
+//   modification, are permitted provided that the following conditions
+//   are met:
+// 
+//   1. Redistributions of source code must retain the above copyright
+//      notice, this list of conditions and the following disclaimer.
+//   2. Redistributions in binary form must reproduce the above copyright
+//      notice, this list of conditions and the following disclaimer in the
+//      documentation and/or other materials provided with the distribution.
+//   3. The name of the author may not be used to endorse or promote products
+//      derived from this software without specific prior written permission.
+// 
+//   THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+//   IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+//   OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+//   IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+//   INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+//   NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+//   DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+//   THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+//   (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+//   THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+// 
+
+
+// Do not buffer up the entire char stream. It reads the input in chunks of
+// {@link //CHUNK_SIZE} bytes with {@code fs.readSync} and keeps only the
+// characters between the oldest outstanding {@link //mark} and the current
+// position, plus lookahead, in a sliding window. Since {@link Lexer//nextToken}
+// marks the start of every token, the window is bounded by the longest token
+// rather than by the size of the input.
+//
+// <p>Text is only available for characters still in the window, so the lexer
+// should create tokens with a {@link CommonTokenFactory} that copies text.</p>
+
+var Token = require('./Token').Token;
+var fs = require("fs");
+var StringDecoder = require("string_decoder").StringDecoder;
+
+// {@code input} is a file name or an already open file descriptor; a file
+// opened here is closed once its end is reached. Subclasses which supply
+// their own text through {@link //nextChar} pass {@code null}.
+function UnbufferedCharStream(input, bufferSize) {
+	this.name = typeof input === "string" ? input : "<unknown>";
+	this.fd = typeof input === "string" ? fs.openSync(input, "r") : input;
+	this.ownsFd = typeof input === "string";
+	this.chunk = this.fd !== null ? Buffer.alloc(UnbufferedCharStream.CHUNK_SIZE) : null;
+	this.decoder = new StringDecoder("utf8");
+	// Decoded text not yet moved into the window, and the next char to take
+	// from it.
+	this.pending = "";
+	this.pendingIndex = 0;
+	this.exhausted = false;
+	// A moving window buffer of the data being scanned. While there's a
+	// marker, we keep adding to buffer. Otherwise, {@link //consume} resets
+	// so we start filling at index 0 again.
+	this.data = new Int32Array(bufferSize || 256);
+	// The number of characters currently in {@link //data}.
+	this.n = 0;
+	// 0..n-1 index into {@link //data} of next character.
+	this.p = 0;
+	// Count up with {@link //mark} and down with {@link //release}. When we
+	// {@code release()} the last mark, {@code numMarkers} reaches 0 and we
+	// reset the buffer. Copy {@code data[p]..data[n-1]} to
+	// {@code data[0]..data[(n-1)-p]}.
+	this.numMarkers = 0;
+	// This is the {@code LA(-1)} character for the current position.
+	this.lastChar = -1;
+	// When {@code numMarkers > 0}, this is the {@code LA(-1)} character for
+	// the first character in {@link //data}. Otherwise, this is unspecified.
+	this.lastCharBufferStart = -1;
+	// Absolute character index. It's the index of the character about to be
+	// read via {@code LA(1)}. Goes from 0 to the number of characters in the
+	// entire stream, although the stream size is unknown before the end is
+	// reached.
+	this.currentCharIndex = 0;
+	this.fill(1); // prime
+	return this;
+}
+
+UnbufferedCharStream.CHUNK_SIZE = 64 * 1024;
+
+Object.defineProperty(UnbufferedCharStream.prototype, "index", {
+	get : function() {
+		return this.currentCharIndex;
+	}
+});
+
+Object.defineProperty(UnbufferedCharStream.prototype, "size", {
+	get : function() {
+		throw "Unbuffered stream cannot know its size";
+	}
+});
+
+UnbufferedCharStream.prototype.consume = function() {
+	if (this.LA(1) === Token.EOF) {
+		throw "cannot consume EOF";
+	}
+	// buf always has at least data[p==0] in this method due to ctor
+	this.lastChar = this.data[this.p]; // track last char for LA(-1)
+	if (this.p === this.n - 1 && this.numMarkers === 0) {
+		this.n = 0;
+		this.p = -1; // p++ will leave this at 0
+		this.lastCharBufferStart = this.lastChar;
+	}
+	this.p += 1;
+	this.currentCharIndex += 1;
+	this.sync(1);
+};
+
+// Make sure we have {@code want} characters from current position
+// {@link //p}. Last valid {@code p} index is {@code data.length-1}.
+// {@code p+want-1} is the char index {@code want} positions ahead of
+// {@code p}.
+UnbufferedCharStream.prototype.sync = function(want) {
+	var need = (this.p + want - 1) - this.n + 1; // how many more chars we need
+	if (need > 0) {
+		this.fill(need);
+	}
+};
+
+// Add {@code n} characters to the buffer. Returns the number of characters
+// actually added to the buffer. If the return value is less than {@code n},
+// then EOF was reached, or no more input was available yet, before {@code n}
+// characters could be added.
+UnbufferedCharStream.prototype.fill = function(n) {
+	for (var i = 0; i < n; i++) {
+		if (this.n > 0 && this.data[this.n - 1] === Token.EOF) {
+			return i;
+		}
+		var c = this.nextChar();
+		if (c === null) {
+			return i;
+		}
+		this.add(c);
+	}
+	return n;
+};
+
+// Return the next UTF-16 code unit of the input, reading another chunk when
+// the decoded text runs out, or {@link Token//EOF} at the end of the input.
+// A stream fed asynchronously returns {@code null} when it has no more input
+// yet; {@link //LA} then reports EOF without recording it.
+UnbufferedCharStream.prototype.nextChar = function() {
+	while (this.pendingIndex >= this.pending.length) {
+		var text = this.readChunk();
+		if (text === null) {
+			return Token.EOF;
+		}
+		this.pending = text;
+		this.pendingIndex = 0;
+	}
+	var c = this.pending.charCodeAt(this.pendingIndex);
+	this.pendingIndex += 1;
+	return c;
+};
+
+// Read and decode the next chunk of the file, or return {@code null} at the
+// end of the input.
+UnbufferedCharStream.prototype.readChunk = function() {
+	if (this.exhausted) {
+		return null;
+	}
+	var count = fs.readSync(this.fd, this.chunk, 0, this.chunk.length, null);
+	if (count === 0) {
+		this.exhausted = true;
+		if (this.ownsFd) {
+			fs.closeSync(this.fd);
+		}
+		return this.decoder.end() || null;
+	}
+	return this.decoder.write(this.chunk.slice(0, count));
+};
+
+UnbufferedCharStream.prototype.add = function(c) {
+	if (this.n >= this.data.length) {
+		var data = new Int32Array(this.data.length * 2);
+		data.set(this.data);
+		this.data = data;
+	}
+	this.data[this.n] = c;
+	this.n += 1;
+};
+
+UnbufferedCharStream.prototype.LA = function(i) {
+	if (i === -1) {
+		return this.lastChar; // special case
+	}
+	this.sync(i);
+	var index = this.p + i - 1;
+	if (index < 0) {
+		throw "LA(" + i + ") is out of range";
+	}
+	if (index >= this.n) {
+		return Token.EOF;
+	}
+	return this.data[index];
+};
+
+// Return a marker that we can release later.
+//
+// <p>The specific marker value used for this class allows for some level of
+// protection against misuse where {@code seek()} is called on a mark or
+// {@code release()} is called in the wrong order.</p>
+UnbufferedCharStream.prototype.mark = function() {
+	if (this.numMarkers === 0) {
+		this.lastCharBufferStart = this.lastChar;
+	}
+	var mark = -this.numMarkers - 1;
+	this.numMarkers += 1;
+	return mark;
+};
+
+// Decrement number of markers, resetting buffer if we hit 0.
+UnbufferedCharStream.prototype.release = function(marker) {
+	var expectedMark = -this.numMarkers;
+	if (marker !== expectedMark) {
+		throw "release() called with an invalid marker.";
+	}
+	this.numMarkers -= 1;
+	if (this.numMarkers === 0 && this.p > 0) {
+		// release buffer when we can, but don't do unnecessary work
+		// Copy data[p]..data[n-1] to data[0]..data[(n-1)-p], reset ptrs
+		this.data.copyWithin(0, this.p, this.n);
+		this.n = this.n - this.p;
+		this.p = 0;
+		this.lastCharBufferStart = this.lastChar;
+	}
+};
+
+// Seek to absolute character index, which might not be in the current
+// sliding window. Move {@code p} to {@code index - bufferStartIndex}.
+UnbufferedCharStream.prototype.seek = function(index) {
+	if (index === this.currentCharIndex) {
+		return;
+	}
+	if (index > this.currentCharIndex) {
+		this.sync(index - this.currentCharIndex);
+		index = Math.min(index, this.getBufferStartIndex() + this.n - 1);
+	}
+	// index == to bufferStartIndex should set p to 0
+	var i = index - this.getBufferStartIndex();
+	if (i < 0) {
+		throw "cannot seek to negative index " + index;
+	} else if (i >= this.n) {
+		throw "seek to index outside buffer: " + index + " not in " +
+			this.getBufferStartIndex() + ".." + (this.getBufferStartIndex() + this.n);
+	}
+	this.p = i;
+	this.currentCharIndex = index;
+	if (this.p === 0) {
+		this.lastChar = this.lastCharBufferStart;
+	} else {
+		this.lastChar = this.data[this.p - 1];
+	}
+};
+
+UnbufferedCharStream.prototype.getText = function(start, stop) {
+	var bufferStartIndex = this.getBufferStartIndex();
+	if (this.n > 0 && this.data[this.n - 1] === Token.EOF) {
+		stop = Math.min(stop, bufferStartIndex + this.n - 2);
+	}
+	if (start < bufferStartIndex || stop > bufferStartIndex + this.n - 1) {
+		throw "interval " + start + ".." + stop + " outside buffer: " +
+			bufferStartIndex + ".." + (bufferStartIndex + this.n - 1);
+	}
+	if (stop < start) {
+		return "";
+	}
+	// convert from absolute to local index
+	var end = stop - bufferStartIndex + 1;
+	var s = "";
+	for (var i = start - bufferStartIndex; i < end; i += 8192) {
+		s += String.fromCharCode.apply(String, this.data.subarray(i, Math.min(end, i + 8192)));
+	}
+	return s;
+};
+
+UnbufferedCharStream.prototype.getBufferStartIndex = function() {
+	return this.currentCharIndex - this.p;
+};
+
+exports.UnbufferedCharStream = UnbufferedCharStream;
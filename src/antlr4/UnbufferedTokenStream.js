@@ -0,0 +1,265 @@
+//
+// [The "BSD license"]
+//  Copyright (c) 2012 Terence Parr
+//  Copyright (c) 2012 Sam Harwell
+//  Copyright (c) 2014 Eric Vergnaud
+//  All rights reserved.
+//
+//  Redistribution and use in source and binary forms, with or without
+//  modification, are permitted provided that the following conditions
+//  are met:
+//
+//  1. Redistributions of source code must retain the above copyright
+//     notice, this list of conditions and the following disclaimer.
+//  2. Redistributions in binary form must reproduce the above copyright
+//     notice, this list of conditions and the following disclaimer in the
+//     documentation and/or other materials provided with the distribution.
+//  3. The name of the author may not be used to endorse or promote products
+//     derived from this software without specific prior written permission.
+//
+//  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+//  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+//  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+//  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+//  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+//  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+//  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+//  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+//  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+//  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+// A token stream that keeps only a sliding window of tokens instead of every
+// token fetched from the {@link TokenSource}. The window holds the tokens from
+// the oldest outstanding {@link //mark} up to the current position plus
+// lookahead; with no marker it shrinks back to the lookahead alone, so
+// memory does not grow with the length of the input.
+// {@link ParserATNSimulator//adaptivePredict} marks the stream for the
+// duration of a prediction, so the tokens it looks ahead at stay available
+// for {@link //seek}.
+//
+// <p>Like {@link BufferedTokenStream}, this stream does not filter tokens by
+// channel.</p>
+
+var Token = require('./Token').Token;
+var Interval = require('./IntervalSet').Interval;
+
+function UnbufferedTokenStream(tokenSource, bufferSize) {
+	this.tokenSource = tokenSource;
+	// A moving window buffer of the data being scanned. While there's a
+	// marker, we keep adding to buffer. Otherwise, {@link //consume} resets
+	// so we start filling at index 0 again.
+	this.tokens = new Array(bufferSize || 256);
+	// The number of tokens currently in {@link //tokens}.
+	this.n = 0;
+	// 0..n-1 index into {@link //tokens} of next token.
+	this.p = 0;
+	// Count up with {@link //mark} and down with {@link //release}. When we
+	// {@code release()} the last mark, {@code numMarkers} reaches 0 and we
+	// reset the buffer.
+	this.numMarkers = 0;
+	// This is the {@code LT(-1)} token for the current position.
+	this.lastToken = null;
+	// When {@code numMarkers > 0}, this is the {@code LT(-1)} token for the
+	// first token in {@link //tokens}. Otherwise, this is {@code null}.
+	this.lastTokenBufferStart = null;
+	// Absolute token index. It's the index of the token about to be read via
+	// {@code LT(1)}. Goes from 0 to the number of tokens in the entire stream,
+	// although the stream size is unknown before the end is reached.
+	this.currentTokenIndex = 0;
+	this.fill(1); // prime
+	return this;
+}
+
+Object.defineProperty(UnbufferedTokenStream.prototype, "index", {
+	get : function() {
+		return this.currentTokenIndex;
+	}
+});
+
+Object.defineProperty(UnbufferedTokenStream.prototype, "size", {
+	get : function() {
+		throw "Unbuffered stream cannot know its size";
+	}
+});
+
+UnbufferedTokenStream.prototype.get = function(i) {
+	var bufferStartIndex = this.getBufferStartIndex();
+	if (i < bufferStartIndex || i >= bufferStartIndex + this.n) {
+		throw "get(" + i + ") outside buffer: " + bufferStartIndex + ".." +
+			(bufferStartIndex + this.n);
+	}
+	return this.tokens[i - bufferStartIndex];
+};
+
+UnbufferedTokenStream.prototype.LT = function(i) {
+	if (i === -1) {
+		return this.lastToken;
+	}
+	this.sync(i);
+	var index = this.p + i - 1;
+	if (index < 0) {
+		throw "LT(" + i + ") gives negative index";
+	}
+	if (index >= this.n) {
+		// EOF must be last token
+		return this.tokens[this.n - 1];
+	}
+	return this.tokens[index];
+};
+
+UnbufferedTokenStream.prototype.LA = function(i) {
+	return this.LT(i).type;
+};
+
+UnbufferedTokenStream.prototype.getTokenSource = function() {
+	return this.tokenSource;
+};
+
+UnbufferedTokenStream.prototype.getSourceName = function() {
+	return this.tokenSource.getSourceName();
+};
+
+// Get the text of the tokens in {@code interval}, all of which must still be
+// in the window.
+UnbufferedTokenStream.prototype.getText = function(interval) {
+	var start = interval.start;
+	if (start instanceof Token) {
+		start = start.tokenIndex;
+	}
+	var stop = interval.stop;
+	if (stop instanceof Token) {
+		stop = stop.tokenIndex;
+	}
+	var bufferStartIndex = this.getBufferStartIndex();
+	var bufferStopIndex = bufferStartIndex + this.n - 1;
+	if (start < bufferStartIndex || stop > bufferStopIndex) {
+		throw "interval " + start + ".." + stop + " not in token buffer window: " +
+			bufferStartIndex + ".." + bufferStopIndex;
+	}
+	var s = "";
+	for (var i = start - bufferStartIndex; i <= stop - bufferStartIndex; i++) {
+		var t = this.tokens[i];
+		if (t.type === Token.EOF) {
+			break;
+		}
+		s = s + t.text;
+	}
+	return s;
+};
+
+UnbufferedTokenStream.prototype.consume = function() {
+	if (this.LA(1) === Token.EOF) {
+		throw "cannot consume EOF";
+	}
+	// buf always has at least tokens[p==0] in this method due to ctor
+	this.lastToken = this.tokens[this.p]; // track last token for LT(-1)
+	// if we're at last token and no markers, opportunity to flush buffer,
+	// dropping the references to the flushed tokens so they can be collected
+	if (this.p === this.n - 1 && this.numMarkers === 0) {
+		this.tokens.fill(null, 0, this.n);
+		this.n = 0;
+		this.p = -1; // p++ will leave this at 0
+		this.lastTokenBufferStart = this.lastToken;
+	}
+	this.p += 1;
+	this.currentTokenIndex += 1;
+	this.sync(1);
+};
+
+// Make sure we have {@code want} elements from current position
+// {@link //p}. Last valid {@code p} index is {@code tokens.length-1}.
+// {@code p+want-1} is the tokens index {@code want} positions ahead of
+// {@code p}.
+UnbufferedTokenStream.prototype.sync = function(want) {
+	var need = (this.p + want - 1) - this.n + 1; // how many more elements we need?
+	if (need > 0) {
+		this.fill(need);
+	}
+};
+
+// Add {@code n} elements to the buffer. Returns the number of tokens
+// actually added to the buffer. If the return value is less than {@code n},
+// then EOF was reached before {@code n} tokens could be added.
+UnbufferedTokenStream.prototype.fill = function(n) {
+	for (var i = 0; i < n; i++) {
+		if (this.n > 0 && this.tokens[this.n - 1].type === Token.EOF) {
+			return i;
+		}
+		this.add(this.tokenSource.nextToken());
+	}
+	return n;
+};
+
+UnbufferedTokenStream.prototype.add = function(t) {
+	if (this.n >= this.tokens.length) {
+		this.tokens.length = this.tokens.length * 2;
+	}
+	t.tokenIndex = this.getBufferStartIndex() + this.n;
+	this.tokens[this.n] = t;
+	this.n += 1;
+};
+
+// Return a marker that we can release later.
+//
+// <p>The specific marker value used for this class allows for some level of
+// protection against misuse where {@code seek()} is called on a mark or
+// {@code release()} is called in the wrong order.</p>
+UnbufferedTokenStream.prototype.mark = function() {
+	if (this.numMarkers === 0) {
+		this.lastTokenBufferStart = this.lastToken;
+	}
+	var mark = -this.numMarkers - 1;
+	this.numMarkers += 1;
+	return mark;
+};
+
+UnbufferedTokenStream.prototype.release = function(marker) {
+	var expectedMark = -this.numMarkers;
+	if (marker !== expectedMark) {
+		throw "release() called with an invalid marker.";
+	}
+	this.numMarkers -= 1;
+	if (this.numMarkers === 0) { // can we release buffer?
+		if (this.p > 0) {
+			// Copy tokens[p]..tokens[n-1] to tokens[0]..tokens[(n-1)-p], reset
+			// ptrs, and drop the references to the tokens that were shifted
+			// out so they can be collected.
+			this.tokens.copyWithin(0, this.p, this.n);
+			this.tokens.fill(null, this.n - this.p, this.n);
+			this.n = this.n - this.p;
+			this.p = 0;
+		}
+		this.lastTokenBufferStart = this.lastToken;
+	}
+};
+
+UnbufferedTokenStream.prototype.seek = function(index) { // seek to absolute index
+	if (index === this.currentTokenIndex) {
+		return;
+	}
+	if (index > this.currentTokenIndex) {
+		this.sync(index - this.currentTokenIndex);
+		index = Math.min(index, this.getBufferStartIndex() + this.n - 1);
+	}
+	var bufferStartIndex = this.getBufferStartIndex();
+	var i = index - bufferStartIndex;
+	if (i < 0) {
+		throw "cannot seek to negative index " + index;
+	} else if (i >= this.n) {
+		throw "seek to index outside buffer: " + index + " not in " +
+			bufferStartIndex + ".." + (bufferStartIndex + this.n);
+	}
+	this.p = i;
+	this.currentTokenIndex = index;
+	if (this.p === 0) {
+		this.lastToken = this.lastTokenBufferStart;
+	} else {
+		this.lastToken = this.tokens[this.p - 1];
+	}
+};
+
+UnbufferedTokenStream.prototype.getBufferStartIndex = function() {
+	return this.currentTokenIndex - this.p;
+};
+
+exports.UnbufferedTokenStream = UnbufferedTokenStream;
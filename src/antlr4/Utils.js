@@ -11,6 +11,43 @@ String.prototype.hashCode = function(s) {
 	return hash;
 };
 
+// Port of the 32-bit MurmurHash3 mixing steps, used to build integer hash
+// codes for recursive structures such as prediction contexts one element at
+// a time: {@code initialize}, then {@code update} for each element, then
+// {@code finish} with the number of elements.
+var MurmurHash = {};
+
+MurmurHash.DEFAULT_SEED = 0;
+
+MurmurHash.initialize = function(seed) {
+	return seed === undefined ? MurmurHash.DEFAULT_SEED : seed;
+};
+
+MurmurHash.update = function(hash, value) {
+	var k = value | 0;
+	k = Math.imul(k, 0xCC9E2D51);
+	k = (k << 15) | (k >>> 17);
+	k = Math.imul(k, 0x1B873593);
+	hash = hash ^ k;
+	hash = (hash << 13) | (hash >>> 19);
+	return (Math.imul(hash, 5) + 0xE6546B64) | 0;
+};
+
+// Update the hash with an object exposing {@code hashCode()}; {@code null}
+// hashes as 0.
+MurmurHash.updateObject = function(hash, value) {
+	return MurmurHash.update(hash, value === null ? 0 : value.hashCode());
+};
+
+MurmurHash.finish = function(hash, numberOfWords) {
+	hash = hash ^ (numberOfWords * 4);
+	hash = hash ^ (hash >>> 16);
+	hash = Math.imul(hash, 0x85EBCA6B);
+	hash = hash ^ (hash >>> 13);
+	hash = Math.imul(hash, 0xC2B2AE35);
+	return hash ^ (hash >>> 16);
+};
+
 function Set() {
 	this.data = {};
 	return this;
@@ -62,6 +99,272 @@ Set.prototype.values = function() {
 	return l;
 };
 
+// An open-addressing hash set keyed on integer hash codes. Unlike {@link Set},
+// no string key is ever built for a value: the caller supplies a hash function
+// returning a 32-bit integer and an equality function, so the same structure
+// can store values under a custom notion of identity.
+//
+// <p>Values are kept in a power-of-two table probed linearly, and the hash of
+// each occupied slot is cached next to it so that probing and growing never
+// call back into the hash function.</p>
+
+function HashSet(hashFunction, equalsFunction) {
+	this.hashFunction = hashFunction;
+	this.equalsFunction = equalsFunction;
+	this.clear();
+	return this;
+}
+
+HashSet.INITIAL_CAPACITY = 16;
+
+Object.defineProperty(HashSet.prototype, "length", {
+	get : function() {
+		return this.count;
+	}
+});
+
+HashSet.prototype.clear = function() {
+	this.table = newTable(HashSet.INITIAL_CAPACITY);
+	this.hashes = new Int32Array(HashSet.INITIAL_CAPACITY);
+	this.count = 0;
+	this.threshold = HashSet.INITIAL_CAPACITY * 3 >> 2;
+};
+
+function newTable(capacity) {
+	var table = new Array(capacity);
+	for (var i = 0; i < capacity; i++) {
+		table[i] = null;
+	}
+	return table;
+}
+
+// Return the slot holding a value equal to {@code value}, or the empty slot
+// where it would be inserted.
+HashSet.prototype.slotFor = function(value, hash) {
+	var mask = this.table.length - 1;
+	var i = hash & mask;
+	while (true) {
+		var existing = this.table[i];
+		if (existing === null) {
+			return i;
+		}
+		if (this.hashes[i] === hash && this.equalsFunction(existing, value)) {
+			return i;
+		}
+		i = (i + 1) & mask;
+	}
+};
+
+// Add {@code value} unless an equal value is already present. Return the value
+// stored in the set, which is the existing one when there was a match.
+HashSet.prototype.add = function(value) {
+	var hash = this.hashFunction(value) | 0;
+	var i = this.slotFor(value, hash);
+	var existing = this.table[i];
+	if (existing !== null) {
+		return existing;
+	}
+	this.table[i] = value;
+	this.hashes[i] = hash;
+	this.count += 1;
+	if (this.count > this.threshold) {
+		this.grow();
+	}
+	return value;
+};
+
+HashSet.prototype.get = function(value) {
+	var hash = this.hashFunction(value) | 0;
+	return this.table[this.slotFor(value, hash)];
+};
+
+HashSet.prototype.contains = function(value) {
+	return this.get(value) !== null;
+};
+
+// Return the value stored under {@code hash} for which
+// {@code matches(value, key)} holds, or {@code null} if there is none. This
+// looks a value up by a key of another type, such as a DFA state by its
+// configurations, without building a value to probe with; {@code hash} must
+// be the hash the set's own hash function gives the value.
+HashSet.prototype.find = function(hash, key, matches) {
+	hash = hash | 0;
+	var mask = this.table.length - 1;
+	var i = hash & mask;
+	while (true) {
+		var existing = this.table[i];
+		if (existing === null) {
+			return null;
+		}
+		if (this.hashes[i] === hash && matches(existing, key)) {
+			return existing;
+		}
+		i = (i + 1) & mask;
+	}
+};
+
+HashSet.prototype.grow = function() {
+	var oldTable = this.table;
+	var oldHashes = this.hashes;
+	var capacity = oldTable.length << 1;
+	var mask = capacity - 1;
+	this.table = newTable(capacity);
+	this.hashes = new Int32Array(capacity);
+	this.threshold = capacity * 3 >> 2;
+	for (var i = 0; i < oldTable.length; i++) {
+		var value = oldTable[i];
+		if (value === null) {
+			continue;
+		}
+		var j = oldHashes[i] & mask;
+		while (this.table[j] !== null) {
+			j = (j + 1) & mask;
+		}
+		this.table[j] = value;
+		this.hashes[j] = oldHashes[i];
+	}
+};
+
+HashSet.prototype.values = function() {
+	var l = [];
+	for (var i = 0; i < this.table.length; i++) {
+		if (this.table[i] !== null) {
+			l.push(this.table[i]);
+		}
+	}
+	return l;
+};
+
+// A {@link HashSet} which can be emptied in constant time, for sets which are
+// filled and cleared over and over, such as the closure busy set. Each slot
+// carries the generation in which it was filled; {@link //clear} starts a new
+// generation, which turns every slot filled before into an empty one, and
+// keeps the table for reuse.
+
+function StampedHashSet(hashFunction, equalsFunction) {
+	this.hashFunction = hashFunction;
+	this.equalsFunction = equalsFunction;
+	this.table = newTable(HashSet.INITIAL_CAPACITY);
+	this.hashes = new Int32Array(HashSet.INITIAL_CAPACITY);
+	this.stamps = new Int32Array(HashSet.INITIAL_CAPACITY);
+	// generation 0 is never used, so that a fresh table is empty
+	this.generation = 1;
+	this.count = 0;
+	this.threshold = HashSet.INITIAL_CAPACITY * 3 >> 2;
+	return this;
+}
+
+Object.defineProperty(StampedHashSet.prototype, "length", {
+	get : function() {
+		return this.count;
+	}
+});
+
+StampedHashSet.prototype.clear = function() {
+	this.generation += 1;
+	this.count = 0;
+	if (this.generation === 0x7FFFFFFF) {
+		this.stamps.fill(0);
+		this.generation = 1;
+	}
+};
+
+StampedHashSet.prototype.slotFor = function(value, hash) {
+	var mask = this.table.length - 1;
+	var i = hash & mask;
+	while (this.stamps[i] === this.generation) {
+		if (this.hashes[i] === hash && this.equalsFunction(this.table[i], value)) {
+			return i;
+		}
+		i = (i + 1) & mask;
+	}
+	return i;
+};
+
+// Add {@code value} unless an equal value is already present. Return the value
+// stored in the set, which is the existing one when there was a match.
+StampedHashSet.prototype.add = function(value) {
+	var hash = this.hashFunction(value) | 0;
+	var i = this.slotFor(value, hash);
+	if (this.stamps[i] === this.generation) {
+		return this.table[i];
+	}
+	this.table[i] = value;
+	this.hashes[i] = hash;
+	this.stamps[i] = this.generation;
+	this.count += 1;
+	if (this.count > this.threshold) {
+		this.grow();
+	}
+	return value;
+};
+
+StampedHashSet.prototype.contains = function(value) {
+	var hash = this.hashFunction(value) | 0;
+	return this.stamps[this.slotFor(value, hash)] === this.generation;
+};
+
+StampedHashSet.prototype.grow = function() {
+	var oldTable = this.table;
+	var oldHashes = this.hashes;
+	var oldStamps = this.stamps;
+	var capacity = oldTable.length << 1;
+	var mask = capacity - 1;
+	this.table = newTable(capacity);
+	this.hashes = new Int32Array(capacity);
+	this.stamps = new Int32Array(capacity);
+	this.threshold = capacity * 3 >> 2;
+	for (var i = 0; i < oldTable.length; i++) {
+		if (oldStamps[i] !== this.generation) {
+			continue;
+		}
+		var j = oldHashes[i] & mask;
+		while (this.stamps[j] === this.generation) {
+			j = (j + 1) & mask;
+		}
+		this.table[j] = oldTable[i];
+		this.hashes[j] = oldHashes[i];
+		this.stamps[j] = this.generation;
+	}
+};
+
+// A map keyed on a pair of objects, compared by identity, such as the
+// {@code (a,b)->c} cache of prediction context merges. Lookups never hash or
+// compare the keys structurally, and {@link //clear} keeps the instance so
+// one map can serve many predictions.
+function DoubleKeyMap() {
+	this.data = new Map();
+	return this;
+}
+
+// Return the value stored for {@code (a,b)}, or {@code null} if there is none.
+DoubleKeyMap.prototype.get = function(a, b) {
+	var d = this.data.get(a);
+	if (d === undefined) {
+		return null;
+	}
+	var value = d.get(b);
+	return value === undefined ? null : value;
+};
+
+DoubleKeyMap.prototype.put = function(a, b, value) {
+	var d = this.data.get(a);
+	if (d === undefined) {
+		d = new Map();
+		this.data.set(a, d);
+	}
+	d.set(b, value);
+};
+
+DoubleKeyMap.prototype.clear = function() {
+	if (this.data.size > 0) {
+		this.data.clear();
+	}
+};
+
+// A set of small non-negative integers, such as alternative numbers.
+// {@code data[i]} is {@code true} when {@code i} is in the set, and
+// {@code length} is the number of values in the set, not the highest one.
 function BitSet() {
 	this.data = [];
 	return this;
@@ -69,7 +372,13 @@ function BitSet() {
 
 Object.defineProperty(BitSet.prototype, "length", {
 	get : function() {
-		return this.data.length;
+		var count = 0;
+		for (var i = 0; i < this.data.length; i++) {
+			if (this.data[i] === true) {
+				count += 1;
+			}
+		}
+		return count;
 	}
 });
 
@@ -77,6 +386,67 @@ BitSet.prototype.add = function(value) {
 	this.data[value] = true;
 };
 
+BitSet.prototype.remove = function(value) {
+	this.data[value] = false;
+};
+
+// Add every value of {@code set} to this set.
+BitSet.prototype.or = function(set) {
+	for (var i = 0; i < set.data.length; i++) {
+		if (set.data[i] === true) {
+			this.data[i] = true;
+		}
+	}
+};
+
+BitSet.prototype.contains = function(value) {
+	return this.data[value] === true;
+};
+
+BitSet.prototype.values = function() {
+	var l = [];
+	for (var i = 0; i < this.data.length; i++) {
+		if (this.data[i] === true) {
+			l.push(i);
+		}
+	}
+	return l;
+};
+
+// The lowest value in the set, or {@code 0} ({@link ATN//INVALID_ALT_NUMBER})
+// when the set is empty.
+BitSet.prototype.minValue = function() {
+	for (var i = 0; i < this.data.length; i++) {
+		if (this.data[i] === true) {
+			return i;
+		}
+	}
+	return 0;
+};
+
+BitSet.prototype.equals = function(other) {
+	if (this === other) {
+		return true;
+	} else if (!(other instanceof BitSet)) {
+		return false;
+	}
+	var n = Math.max(this.data.length, other.data.length);
+	for (var i = 0; i < n; i++) {
+		if ((this.data[i] === true) !== (other.data[i] === true)) {
+			return false;
+		}
+	}
+	return true;
+};
+
+BitSet.prototype.hashString = function() {
+	return this.toString();
+};
+
+BitSet.prototype.toString = function() {
+	return "{" + this.values().join(", ") + "}";
+};
+
 
 function Dict() {
 	this.data = {};
@@ -132,5 +502,9 @@ AltDict.prototype.values = function() {
 
 exports.Dict = Dict;
 exports.Set = Set;
+exports.HashSet = HashSet;
+exports.StampedHashSet = StampedHashSet;
+exports.DoubleKeyMap = DoubleKeyMap;
+exports.MurmurHash = MurmurHash;
 exports.BitSet = BitSet;
 exports.AltDict = AltDict;
@@ -40,40 +40,31 @@
 var DecisionState = require('./ATNState').DecisionState;
 var SemanticContext = require('./SemanticContext').SemanticContext;
 
-function checkParams(params, isCfg) {
-	if(params===null) {
-		var result = { state:null, alt:null, context:null, semanticContext:null };
-		if(isCfg) {
-			result.reachesIntoOuterContext = 0;
-		}
-		return result;
-	} else {
-		var props = {};
-		props.state = params.state || null;
-		props.alt = params.alt || null;
-		props.context = params.context || null;
-		props.semanticContext = params.semanticContext || null;
-		if(isCfg) {
-			props.reachesIntoOuterContext = params.reachesIntoOuterContext || 0;
-		}
-		return props;
-	}
-}
-
 function ATNConfig(params, config) {
-	this.checkContext(params, config);
-	params = checkParams(params);
-	config = checkParams(config, true);
+    if (params === null) {
+        // positional construction, see ATNConfig.create; the fields are
+        // still assigned in the same order as below
+        this.state = null;
+        this.alt = 0;
+        this.context = null;
+        this.semanticContext = SemanticContext.NONE;
+        this.reachesIntoOuterContext = 0;
+        return this;
+    }
+    if (config === undefined) {
+        config = null;
+    }
     // The ATN state associated with this configuration///
-    this.state = params.state!==null ? params.state : config.state;
+    this.state = params.state ? params.state : (config!==null ? config.state : null);
     // What alt (or lexer rule) is predicted by this configuration///
-    this.alt = params.alt!==null ? params.alt : config.alt;
+    this.alt = params.alt ? params.alt : (config!==null ? config.alt : null);
     // The stack of invoking states leading to the rule/states associated
     //  with this config.  We track only those contexts pushed during
     //  execution of the ATN simulator.
-    this.context = params.context!==null ? params.context : config.context;
-    this.semanticContext = params.semanticContext!==null ? params.semanticContext :
-        (config.semanticContext!==null ? config.semanticContext : SemanticContext.NONE);
+    this.context = params.context ? params.context :
+        (config!==null && config.context ? config.context : null);
+    this.semanticContext = params.semanticContext ? params.semanticContext :
+        (config!==null && config.semanticContext ? config.semanticContext : SemanticContext.NONE);
     // We cannot execute predicates dependent upon local context unless
     // we know for sure we are in the correct context. Because there is
     // no way to do this efficiently, we simply cannot evaluate
@@ -83,15 +74,48 @@ function ATNConfig(params, config) {
     // closure() tracks the depth of how far we dip into the
     // outer context: depth &gt; 0.  Note that it may not be totally
     // accurate depth since I don't ever decrement. TODO: make it a boolean then
-    this.reachesIntoOuterContext = config.reachesIntoOuterContext;
+    this.reachesIntoOuterContext = config!==null ? config.reachesIntoOuterContext || 0 : 0;
     return this;
 }
 
-ATNConfig.prototype.checkContext = function(params, config) {
-	if((params.context===null || params.context===undefined) &&
-			(config===null || config.context===null || config.context===undefined)) {
-		this.context = null;
-	}
+// Positional factories for the simulators' inner loops. Unlike the
+// {@code params} constructor they allocate nothing besides the config, and
+// every config they build has the same hidden class.
+
+ATNConfig.create = function(state, alt, context, semanticContext) {
+    var c = new ATNConfig(null, null);
+    c.state = state;
+    c.alt = alt;
+    c.context = context;
+    if (semanticContext !== undefined) {
+        c.semanticContext = semanticContext;
+    }
+    return c;
+};
+
+// Copy {@code config} to {@code state}.
+ATNConfig.fromConfigWithState = function(config, state) {
+    return ATNConfig.fromConfig(config, state, config.context, config.semanticContext);
+};
+
+// Copy {@code config} to {@code state} with a new {@code context}.
+ATNConfig.fromConfigWithContext = function(config, state, context) {
+    return ATNConfig.fromConfig(config, state, context, config.semanticContext);
+};
+
+// Copy {@code config} to {@code state} with a new {@code semanticContext}.
+ATNConfig.fromConfigWithSemanticContext = function(config, state, semanticContext) {
+    return ATNConfig.fromConfig(config, state, config.context, semanticContext);
+};
+
+ATNConfig.fromConfig = function(config, state, context, semanticContext) {
+    var c = new ATNConfig(null, null);
+    c.state = state;
+    c.alt = config.alt;
+    c.context = context;
+    c.semanticContext = semanticContext;
+    c.reachesIntoOuterContext = config.reachesIntoOuterContext;
+    return c;
 };
 
 // An ATN configuration is equal to another if both have
@@ -106,11 +130,22 @@ ATNConfig.prototype.equals = function(other) {
     } else {
         return this.state.stateNumber===other.state.stateNumber &&
             this.alt===other.alt &&
-            this.context.equals(other.context) &&
+            (this.context===null ? other.context===null : this.context.equals(other.context)) &&
             this.semanticContext.equals(other.semanticContext);
     }
 };
 
+// Combines the cached hash codes of the context and semantic context, so
+// hashing a config never walks the context graph.
+ATNConfig.prototype.hashCode = function() {
+    var hash = 7;
+    hash = (31 * hash + this.state.stateNumber) | 0;
+    hash = (31 * hash + this.alt) | 0;
+    hash = (31 * hash + (this.context===null ? 0 : this.context.hashCode())) | 0;
+    hash = (31 * hash + this.semanticContext.hashCode()) | 0;
+    return hash;
+};
+
 ATNConfig.prototype.hashString = function() {
     return "" + this.state.stateNumber + "/" + this.alt + "/" +
              this.context + "/" + this.semanticContext;
@@ -126,7 +161,14 @@ ATNConfig.prototype.toString = function() {
 
 function LexerATNConfig(params, config) {
 	ATNConfig.call(this, params, config);
-    
+	if (params === null) {
+		this.lexerActionExecutor = null;
+		this.passedThroughNonGreedyDecision = false;
+		return this;
+	}
+	if (config === undefined) {
+		config = null;
+	}
     // This is the backing field for {@link //getLexerActionExecutor}.
 	var lexerActionExecutor = params.lexerActionExecutor || null;
     this.lexerActionExecutor = lexerActionExecutor || (config!==null ? config.lexerActionExecutor : null);
@@ -137,12 +179,55 @@ function LexerATNConfig(params, config) {
 LexerATNConfig.prototype = Object.create(ATNConfig.prototype);
 LexerATNConfig.prototype.constructor = LexerATNConfig;
 
+LexerATNConfig.create = function(state, alt, context) {
+	var c = new LexerATNConfig(null, null);
+	c.state = state;
+	c.alt = alt;
+	c.context = context;
+	return c;
+};
+
+// Copy {@code config} to {@code state}.
+LexerATNConfig.fromConfigWithState = function(config, state) {
+	return LexerATNConfig.fromConfig(config, state, config.context, config.lexerActionExecutor);
+};
+
+// Copy {@code config} to {@code state} with a new {@code context}.
+LexerATNConfig.fromConfigWithContext = function(config, state, context) {
+	return LexerATNConfig.fromConfig(config, state, context, config.lexerActionExecutor);
+};
+
+// Copy {@code config} to {@code state} with a new lexer action executor.
+LexerATNConfig.fromConfigWithExecutor = function(config, state, lexerActionExecutor) {
+	return LexerATNConfig.fromConfig(config, state, config.context, lexerActionExecutor);
+};
+
+LexerATNConfig.fromConfig = function(config, state, context, lexerActionExecutor) {
+	var c = new LexerATNConfig(null, null);
+	c.state = state;
+	c.alt = config.alt;
+	c.context = context;
+	c.semanticContext = config.semanticContext;
+	c.reachesIntoOuterContext = config.reachesIntoOuterContext;
+	c.lexerActionExecutor = lexerActionExecutor;
+	c.passedThroughNonGreedyDecision = config.passedThroughNonGreedyDecision ||
+		(state instanceof DecisionState && state.nonGreedy);
+	return c;
+};
+
 LexerATNConfig.prototype.hashString = function() {
     return "" + this.state.stateNumber + this.alt + this.context +
             this.semanticContext + (this.passedThroughNonGreedyDecision ? 1 : 0) +
             this.lexerActionExecutor;
 };
 
+LexerATNConfig.prototype.hashCode = function() {
+    var hash = ATNConfig.prototype.hashCode.call(this);
+    hash = (31 * hash + (this.passedThroughNonGreedyDecision ? 1 : 0)) | 0;
+    hash = (31 * hash + (this.lexerActionExecutor===null ? 0 : this.lexerActionExecutor.hashCode())) | 0;
+    return hash;
+};
+
 LexerATNConfig.prototype.equals = function(other) {
     if (this === other) {
         return true;
@@ -150,7 +235,8 @@ LexerATNConfig.prototype.equals = function(other) {
         return false;
     } else if (this.passedThroughNonGreedyDecision !== other.passedThroughNonGreedyDecision) {
         return false;
-    } else if (this.lexerActionExecutor !== other.lexerActionExecutor) {
+    } else if (this.lexerActionExecutor === null ? other.lexerActionExecutor !== null :
+            !this.lexerActionExecutor.equals(other.lexerActionExecutor)) {
         return false;
     } else {
         return ATNConfig.prototype.equals.call(this, other);
@@ -36,9 +36,32 @@
 
 var ATN = require('./ATN').ATN;
 var Set = require('./../Utils').Set;
+var HashSet = require('./../Utils').HashSet;
+var MurmurHash = require('./../Utils').MurmurHash;
 var SemanticContext = require('./SemanticContext').SemanticContext;
 var merge = require('./../PredictionContext').merge;
 
+// Hash a configuration on {@code (s, i, pi)}. The context is left out so that
+// configurations which only differ by their graph-structured stack land on the
+// same entry and get merged by {@link ATNConfigSet//add}.
+function hashATNConfig(c) {
+	var hash = 7;
+	hash = (31 * hash + c.state.stateNumber) | 0;
+	hash = (31 * hash + c.alt) | 0;
+	return (31 * hash + c.semanticContext.hashCode()) | 0;
+}
+
+function equalATNConfigs(a, b) {
+	if (a === b) {
+		return true;
+	} else if (a === null || b === null) {
+		return false;
+	} else {
+		return a.state.stateNumber === b.state.stateNumber &&
+			a.alt === b.alt && a.semanticContext.equals(b.semanticContext);
+	}
+}
+
 function ATNConfigSet(fullCtx) {
 	//
 	// The reason that we need this is because we don't want the hash map to use
@@ -51,7 +74,7 @@ function ATNConfigSet(fullCtx) {
 	// use a hash table that lets us specify the equals/hashcode operation.
 	// All configs but hashed by (s, i, _, pi) not including context. Wiped out
 	// when we go readonly as this set becomes a DFA state.
-	this.configLookup = new Set();
+	this.configLookup = new HashSet(hashATNConfig, equalATNConfigs);
 	// Indicates that this configuration set is part of a full context
 	// LL prediction. It will be used to determine how to merge $. With SLL
 	// it's a wildcard whereas it is not for LL context merge.
@@ -77,7 +100,7 @@ function ATNConfigSet(fullCtx) {
 	this.hasSemanticContext = false;
 	this.dipsIntoOuterContext = false;
 
-	this.cachedHashString = "-1";
+	this.cachedHashCode = -1;
 
 	return this;
 }
@@ -106,7 +129,7 @@ ATNConfigSet.prototype.add = function(config, mergeCache) {
 	}
 	var existing = this.getOrAdd(config);
 	if (existing === config) {
-		this.cachedHashString = "-1";
+		this.cachedHashCode = -1;
 		this.configs.push(config); // track order here
 		return true;
 	}
@@ -159,9 +182,11 @@ ATNConfigSet.prototype.optimizeConfigs = function(interpreter) {
 	if (this.configLookup.length === 0) {
 		return;
 	}
+	// the configurations of a set share most of their stacks
+	var visited = new Map();
 	for (var i = 0; i < this.configs.length; i++) {
 		var config = this.configs[i];
-		config.context = interpreter.getCachedContext(config.context);
+		config.context = interpreter.getCachedContext(config.context, visited);
 	}
 };
 
@@ -178,7 +203,7 @@ ATNConfigSet.prototype.equals = function(other) {
 	} else if (!(other instanceof ATNConfigSet)) {
 		return false;
 	}
-	return this.configs !== null && this.configs.equals(other.configs) &&
+	return this.configs !== null && equalConfigLists(this.configs, other.configs) &&
 			this.fullCtx === other.fullCtx &&
 			this.uniqueAlt === other.uniqueAlt &&
 			this.conflictingAlts === other.conflictingAlts &&
@@ -186,23 +211,42 @@ ATNConfigSet.prototype.equals = function(other) {
 			this.dipsIntoOuterContext === other.dipsIntoOuterContext;
 };
 
-ATNConfigSet.prototype.hashString = function() {
+function equalConfigLists(a, b) {
+	if (a.length !== b.length) {
+		return false;
+	}
+	for (var i = 0; i < a.length; i++) {
+		if (!a[i].equals(b[i])) {
+			return false;
+		}
+	}
+	return true;
+}
+
+// The hash code covers the ordered list of configurations, contexts included,
+// so it can key the DFA state table. It is only cached once the set is
+// readonly, since until then the configurations may still change.
+ATNConfigSet.prototype.hashCode = function() {
 	if (this.readonly) {
-		if (this.cachedHashString === "-1") {
-			this.cachedHashString = this.hashConfigs();
+		if (this.cachedHashCode === -1) {
+			this.cachedHashCode = this.hashConfigs();
 		}
-		return this.cachedHashString;
+		return this.cachedHashCode;
 	} else {
 		return this.hashConfigs();
 	}
 };
 
 ATNConfigSet.prototype.hashConfigs = function() {
-	var s = "";
-	this.configs.map(function(c) {
-		s += c.toString();
-	});
-	return s;
+	var hash = MurmurHash.initialize();
+	for (var i = 0; i < this.configs.length; i++) {
+		hash = MurmurHash.update(hash, this.configs[i].hashCode());
+	}
+	return MurmurHash.finish(hash, this.configs.length);
+};
+
+ATNConfigSet.prototype.hashString = function() {
+	return "" + this.hashCode();
 };
 
 Object.defineProperty(ATNConfigSet.prototype, "length", {
@@ -226,7 +270,7 @@ ATNConfigSet.prototype.containsFast = function(item) {
 	if (this.configLookup === null) {
 		throw "This method is not implemented for readonly sets.";
 	}
-	return this.configLookup.containsFast(item);
+	return this.configLookup.contains(item);
 };
 
 ATNConfigSet.prototype.clear = function() {
@@ -234,8 +278,8 @@ ATNConfigSet.prototype.clear = function() {
 		throw "This set is readonly";
 	}
 	this.configs = [];
-	this.cachedHashString = "-1";
-	this.configLookup = new Set();
+	this.cachedHashCode = -1;
+	this.configLookup.clear();
 };
 
 ATNConfigSet.prototype.setReadonly = function(readonly) {
@@ -253,11 +297,23 @@ ATNConfigSet.prototype.toString = function() {
 		(this.dipsIntoOuterContext ? ",dipsIntoOuterContext" : "");
 };
 
+// The lexer keeps every distinct configuration in order of addition, so two
+// configurations are only folded together when they are fully equal, context
+// and lexer actions included.
 function OrderedATNConfigSet() {
 	ATNConfigSet.call(this);
+	this.configLookup = new HashSet(hashOrderedATNConfig, equalOrderedATNConfigs);
 	return this;
 }
 
+function hashOrderedATNConfig(c) {
+	return c.hashCode();
+}
+
+function equalOrderedATNConfigs(a, b) {
+	return a === b || (a !== null && a.equals(b));
+}
+
 OrderedATNConfigSet.prototype = Object.create(ATNConfigSet.prototype);
 OrderedATNConfigSet.prototype.constructor = OrderedATNConfigSet;
 
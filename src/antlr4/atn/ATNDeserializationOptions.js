@@ -27,17 +27,33 @@
 // (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
 // THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
+// ATNs are only verified by default outside of production, since a generated
+// ATN which fails verification points at a bug in the tool, not in the input.
+var PRODUCTION = typeof process !== "undefined" && process.env !== undefined &&
+    process.env.NODE_ENV === "production";
+
 function ATNDeserializationOptions(copyFrom) {
 	if(copyFrom===undefined) {
 		copyFrom = null;
 	}
 	this.readOnly = false;
-    this.verifyATN = copyFrom===null ? true : copyFrom.verifyATN;
+    this.verifyATN = copyFrom===null ? !PRODUCTION : copyFrom.verifyATN;
     this.generateRuleBypassTransitions = copyFrom===null ? false : copyFrom.generateRuleBypassTransitions;
+    // Only build the transitions of a rule the first time any state of the
+    // rule is used, so that the cost of deserializing a large grammar scales
+    // with the rules actually used. Verification, when enabled, then happens
+    // rule by rule. Ignored when generating rule bypass transitions, which
+    // need the whole ATN.
+    this.lazyRules = copyFrom===null ? false : copyFrom.lazyRules;
 
     return this;
 }
 
+// The options used by deserializers created without options, which includes
+// those of generated recognizers. To deserialize with other options, pass
+// them to the {@link ATNDeserializer}; generated recognizers use
+// {@link //lazyRules} when generated with
+// {@code -Dantlr4.javascript.lazyRules=true}.
 ATNDeserializationOptions.defaultOptions = new ATNDeserializationOptions();
 ATNDeserializationOptions.defaultOptions.readOnly = true;
 
@@ -57,11 +57,14 @@ var ActionTransition = Transitions.ActionTransition;
 var EpsilonTransition = Transitions.EpsilonTransition;
 var WildcardTransition = Transitions.WildcardTransition;
 var PredicateTransition = Transitions.PredicateTransition;
+var PrecedencePredicateTransition = Transitions.PrecedencePredicateTransition;
 var IntervalSet = require('./../IntervalSet').IntervalSet;
 var Interval = require('./../IntervalSet').Interval;
 var ATNDeserializationOptions = require('./ATNDeserializationOptions').ATNDeserializationOptions;
 var LexerActions = require('./LexerAction');
+var MurmurHash = require('./../Utils').MurmurHash;
 var LexerActionType = LexerActions.LexerActionType;
+var LexerChannelAction = LexerActions.LexerChannelAction;
 var LexerSkipAction = LexerActions.LexerSkipAction;
 var LexerCustomAction = LexerActions.LexerCustomAction;
 var LexerMoreAction = LexerActions.LexerMoreAction;
@@ -82,6 +85,22 @@ var SERIALIZED_VERSION = 3;
 // This is the current serialized UUID.
 var SERIALIZED_UUID = BASE_SERIALIZED_UUID;
 
+// The state class for each serialized state type, indexed by type.
+var STATE_TYPES = [];
+STATE_TYPES[ATNState.INVALID_TYPE] = null;
+STATE_TYPES[ATNState.BASIC] = BasicState;
+STATE_TYPES[ATNState.RULE_START] = RuleStartState;
+STATE_TYPES[ATNState.BLOCK_START] = BasicBlockStartState;
+STATE_TYPES[ATNState.PLUS_BLOCK_START] = PlusBlockStartState;
+STATE_TYPES[ATNState.STAR_BLOCK_START] = StarBlockStartState;
+STATE_TYPES[ATNState.TOKEN_START] = TokensStartState;
+STATE_TYPES[ATNState.RULE_STOP] = RuleStopState;
+STATE_TYPES[ATNState.BLOCK_END] = BlockEndState;
+STATE_TYPES[ATNState.STAR_LOOP_BACK] = StarLoopbackState;
+STATE_TYPES[ATNState.STAR_LOOP_ENTRY] = StarLoopEntryState;
+STATE_TYPES[ATNState.PLUS_LOOP_BACK] = PlusLoopbackState;
+STATE_TYPES[ATNState.LOOP_END] = LoopEndState;
+
 function initArray( length, value) {
 	var tmp = [];
 	tmp[length-1] = value;
@@ -94,7 +113,6 @@ function ATNDeserializer (options) {
         options = ATNDeserializationOptions.defaultOptions;
     }
     this.deserializationOptions = options;
-    this.stateFactories = null;
     this.actionFactories = null;
     
     return this;
@@ -126,9 +144,19 @@ ATNDeserializer.prototype.deserialize = function(data) {
     this.checkVersion();
     this.checkUUID();
     var atn = this.readATN();
+    atn.serializedUUID = this.uuid;
+    atn.serializedChecksum = this.checksum;
+    this.lazy = this.deserializationOptions.lazyRules &&
+            !(this.deserializationOptions.generateRuleBypassTransitions && atn.grammarType === ATNType.PARSER);
     this.readStates(atn);
     this.readRules(atn);
     this.readModes(atn);
+    if (this.lazy) {
+        atn.lazyRules = new LazyRules(this, atn);
+        this.readDecisions(atn);
+        this.readLexerActions(atn);
+        return atn;
+    }
     var sets = this.readSets(atn);
     this.readEdges(atn, sets);
     this.readDecisions(atn);
@@ -143,16 +171,24 @@ ATNDeserializer.prototype.deserialize = function(data) {
     return atn;
 };
 
+// Decode the serialized ATN into 16-bit values in a single pass. Every value
+// but the first, which is the version number, is stored shifted by 2 and
+// wraps around like the Java {@code char} arithmetic, so that -1 reads back
+// as 0xFFFF. The same pass computes the checksum which identifies the
+// serialized form of the ATN, so that data derived from one ATN, such as a
+// saved DFA, is not applied to another.
 ATNDeserializer.prototype.reset = function(data) {
-	var adjust = function(c) {
-        var v = c.charCodeAt(0);
-        return v>1  ? v-2 : -1;
-	};
-    var temp = data.split("").map(adjust);
-    // don't adjust the first value since that's the version number
-    temp[0] = data.charCodeAt(0);
+    var n = data.length;
+    var temp = new Uint16Array(n);
+    var hash = MurmurHash.initialize();
+    for (var i = 0; i < n; i++) {
+        var c = data.charCodeAt(i);
+        hash = MurmurHash.update(hash, c);
+        temp[i] = i === 0 ? c : c - 2;
+    }
     this.data = temp;
     this.pos = 0;
+    this.checksum = MurmurHash.finish(hash, n);
 };
 
 ATNDeserializer.prototype.checkVersion = function() {
@@ -177,42 +213,54 @@ ATNDeserializer.prototype.readATN = function() {
     return new ATN(grammarType, maxTokenType);
 };
 
+// Build all the states in one pass over the data, straight into the ATN's
+// state list.
 ATNDeserializer.prototype.readStates = function(atn) {
-    var loopBackStateNumbers = [];
-    var endStateNumbers = [];
-    var nstates = this.readInt();
+    var data = this.data;
+    var pos = this.pos;
+    // states whose loop back or end state is read as a state number, and
+    // those numbers
+    var pending = [];
+    var pendingNumbers = [];
+    var nstates = data[pos++];
+    var states = new Array(nstates);
     for(var i=0; i<nstates; i++) {
-        var stype = this.readInt();
+        var stype = data[pos++];
         // ignore bad type of states
         if (stype===ATNState.INVALID_TYPE) {
-            atn.addState(null);
+            states[i] = null;
             continue;
         }
-        var ruleIndex = this.readInt();
+        var ruleIndex = data[pos++];
         if (ruleIndex === 0xFFFF) {
             ruleIndex = -1;
         }
-        var s = this.stateFactory(stype, ruleIndex);
-        if (stype === ATNState.LOOP_END) { // special case
-            var loopBackStateNumber = this.readInt();
-            loopBackStateNumbers.push([s, loopBackStateNumber]);
-        } else if(s instanceof BlockStartState) {
-        	var endStateNumber = this.readInt();
-            endStateNumbers.push([s, endStateNumber]);
+        var StateType = this.lazy && ruleIndex >= 0 ? LAZY_STATE_TYPES[stype] : STATE_TYPES[stype];
+        if (StateType === undefined || StateType === null) {
+            throw("The specified state type " + stype + " is not valid.");
+        }
+        var s = new StateType();
+        s.ruleIndex = ruleIndex;
+        s.atn = atn;
+        s.stateNumber = i;
+        states[i] = s;
+        if (stype === ATNState.LOOP_END || stype === ATNState.BLOCK_START ||
+                stype === ATNState.PLUS_BLOCK_START || stype === ATNState.STAR_BLOCK_START) {
+            pending.push(s);
+            pendingNumbers.push(data[pos++]);
         }
-        atn.addState(s);
     }
+    atn.states = states;
     // delay the assignment of loop back and end states until we know all the
 	// state instances have been initialized
-    for (var j=0; j<loopBackStateNumbers.length; j++) {
-    	var pair = loopBackStateNumbers[j];
-        pair[0].loopBackState = atn.states[pair[1]];
-    }
-
-    for (var j=0; j<endStateNumbers.length; j++) {
-    	var pair = endStateNumbers[j];
-        pair[0].endState = atn.states[pair[1]];
+    for (var j=0; j<pending.length; j++) {
+        if (pending[j] instanceof LoopEndState) {
+            pending[j].loopBackState = states[pendingNumbers[j]];
+        } else {
+            pending[j].endState = states[pendingNumbers[j]];
+        }
     }
+    this.pos = pos;
     
     var numNonGreedyStates = this.readInt();
     for (var j=0; j<numNonGreedyStates; j++) {
@@ -268,84 +316,92 @@ ATNDeserializer.prototype.readSets = function(atn) {
     var sets = [];
     var m = this.readInt();
     for (var i=0; i<m; i++) {
-        var iset = new IntervalSet();
-        sets.push(iset);
-        var n = this.readInt();
-        var containsEof = this.readInt();
-        if (containsEof!==0) {
-            iset.addOne(-1);
-        }
-        for (var j=0; j<n; j++) {
-            var i1 = this.readInt();
-            var i2 = this.readInt();
-            iset.addRange(new Interval(i1, i2 + 1)); // range upper limit is exclusive
-        }
+        sets.push(this.readSet());
     }
     return sets;
 };
 
+ATNDeserializer.prototype.readSet = function() {
+    var iset = new IntervalSet();
+    var n = this.readInt();
+    var containsEof = this.readInt();
+    if (containsEof!==0) {
+        iset.addOne(-1);
+    }
+    for (var j=0; j<n; j++) {
+        var i1 = this.readInt();
+        var i2 = this.readInt();
+        iset.addRange(new Interval(i1, i2 + 1)); // range upper limit is exclusive
+    }
+    return iset;
+};
+
+// Build all the transitions in one pass over the data; each edge takes six
+// values.
 ATNDeserializer.prototype.readEdges = function(atn, sets) {
-    var nedges = this.readInt();
-    for (var i=0; i<nedges; i++) {
-        var src = this.readInt();
-        var trg = this.readInt();
-        var ttype = this.readInt();
-        var arg1 = this.readInt();
-        var arg2 = this.readInt();
-        var arg3 = this.readInt();
-        var trans = this.edgeFactory(atn, ttype, src, trg, arg1, arg2, arg3, sets);
-        var srcState = atn.states[src];
-        srcState.addTransition(trans);
+    var data = this.data;
+    var pos = this.pos;
+    var states = atn.states;
+    var ruleTransitions = [];
+    var nedges = data[pos++];
+    for (var i=0; i<nedges; i++, pos += 6) {
+        var ttype = data[pos + 2];
+        var trans = this.edgeFactory(atn, ttype, data[pos], data[pos + 1],
+                data[pos + 3], data[pos + 4], data[pos + 5], sets);
+        states[data[pos]].addTransition(trans);
+        if (ttype === Transition.RULE) {
+            ruleTransitions.push(trans);
+        }
     }
+    this.pos = pos;
     // edges for rule stop states can be derived, so they aren't serialized
-    for (var i=0; i<atn.states.length; i++) {
-    	var state = atn.states[i];
-        for (var j=0; j<state.transitions.length; j++) {
-            var t = state.transitions[j];
-            if (!(t instanceof RuleTransition)) {
-                continue;
-            }
-            atn.ruleToStopState[t.target.ruleIndex].addTransition(new EpsilonTransition(t.followState));
-        }
+    for (var i=0; i<ruleTransitions.length; i++) {
+        var t = ruleTransitions[i];
+        atn.ruleToStopState[t.target.ruleIndex].addTransition(new EpsilonTransition(t.followState));
     }
 
     for (var i=0; i<atn.states.length; i++) {
-    	var state = atn.states[i];
-        if (state instanceof BlockStartState) {
-            // we need to know the end state to set its start state
-            if (state.endState === null) {
-                throw ("IllegalState");
-            }
-            // block end states can only be associated to a single block start
-			// state
-            if ( state.endState.startState !== null) {
-                throw ("IllegalState");
-            }
-            state.endState.startState = state;
+        this.linkState(atn.states[i]);
+    }
+};
+
+// Set the fields of the states a block or loop state points at, once the
+// transitions of {@code state} are known.
+ATNDeserializer.prototype.linkState = function(state) {
+    if (state instanceof BlockStartState) {
+        // we need to know the end state to set its start state
+        if (state.endState === null) {
+            throw ("IllegalState");
         }
-        if (state instanceof PlusLoopbackState) {
-            for (var j=0; j<state.transitions.length; j++) {
-                var target = state.transitions[j].target;
-                if (target instanceof PlusBlockStartState) {
-                    target.loopBackState = state;
-                }
+        // block end states can only be associated to a single block start
+        // state
+        if ( state.endState.startState !== null) {
+            throw ("IllegalState");
+        }
+        state.endState.startState = state;
+    }
+    if (state instanceof PlusLoopbackState) {
+        for (var j=0; j<state.transitions.length; j++) {
+            var target = state.transitions[j].target;
+            if (target instanceof PlusBlockStartState) {
+                target.loopBackState = state;
             }
-        } else if (state instanceof StarLoopbackState) {
-            for (var j=0; j<state.transitions.length; j++) {
-            	var target = state.transitions[j].target;
-                if (target instanceof StarLoopEntryState) {
-                    target.loopBackState = state;
-                }
+        }
+    } else if (state instanceof StarLoopbackState) {
+        for (var j=0; j<state.transitions.length; j++) {
+            var target = state.transitions[j].target;
+            if (target instanceof StarLoopEntryState) {
+                target.loopBackState = state;
             }
         }
     }
 };
 
 ATNDeserializer.prototype.readDecisions = function(atn) {
-    ndecisions = this.readInt()
+    var ndecisions = this.readInt();
     for (var i=0; i<ndecisions; i++) {
-        s = this.readInt();
-        decState = atn.states[s];
+        var s = this.readInt();
+        var decState = atn.states[s];
         atn.decisionToState.push(decState);
         decState.decision = i;
     }
@@ -458,7 +514,7 @@ ATNDeserializer.prototype.stateIsEndStateFor = function(state, idx) {
     if (!( state instanceof StarLoopEntryState)) {
         return null;
     }
-    var maybeLoopEndState = state.transitions[len(state.transitions) - 1].target;
+    var maybeLoopEndState = state.transitions[state.transitions.length - 1].target;
     if (!( maybeLoopEndState instanceof LoopEndState)) {
         return null;
     }
@@ -479,24 +535,27 @@ ATNDeserializer.prototype.stateIsEndStateFor = function(state, idx) {
 //
 ATNDeserializer.prototype.markPrecedenceDecisions = function(atn) {
 	for(var i=0; i<atn.states.length; i++) {
-    	var state = atn.states[i];
-    	if (!( state instanceof StarLoopEntryState)) {
-            continue;
-    	}
-        // We analyze the ATN to determine if this ATN decision state is the
-        // decision for the closure block that determines whether a
-        // precedence rule should continue or complete.
-        //
-        if ( atn.ruleToStartState[state.ruleIndex].isPrecedenceRule) {
-            var maybeLoopEndState = state.transitions[len(state.transitions) - 1].target;
-            if (isinstance(maybeLoopEndState, LoopEndState)) {
-                if ( maybeLoopEndState.epsilonOnlyTransitions &&
-                        (maybeLoopEndState.transitions[0].target instanceof RuleStopState)) {
-                    state.precedenceRuleDecision = true;
-                }
+        this.markPrecedenceDecision(atn, atn.states[i]);
+	}
+};
+
+ATNDeserializer.prototype.markPrecedenceDecision = function(atn, state) {
+    if (!( state instanceof StarLoopEntryState)) {
+        return;
+    }
+    // We analyze the ATN to determine if this ATN decision state is the
+    // decision for the closure block that determines whether a
+    // precedence rule should continue or complete.
+    //
+    if ( atn.ruleToStartState[state.ruleIndex].isPrecedenceRule) {
+        var maybeLoopEndState = state.transitions[state.transitions.length - 1].target;
+        if (maybeLoopEndState instanceof LoopEndState) {
+            if ( maybeLoopEndState.epsilonOnlyTransitions &&
+                    (maybeLoopEndState.transitions[0].target instanceof RuleStopState)) {
+                state.precedenceRuleDecision = true;
             }
         }
-	}
+    }
 };
 
 ATNDeserializer.prototype.verifyATN = function(atn) {
@@ -505,42 +564,45 @@ ATNDeserializer.prototype.verifyATN = function(atn) {
     }
     // verify assumptions
 	for(var i=0; i<atn.states.length; i++) {
-    	var state = atn.states[i];
-        if (state === null) {
-            continue;
-        }
-        this.checkCondition(state.epsilonOnlyTransitions || state.transitions.length <= 1);
-        if (state instanceof PlusBlockStartState) {
-            this.checkCondition(state.loopBackState !== null);
-        } else  if (state instanceof StarLoopEntryState) {
-            this.checkCondition(state.loopBackState !== null);
-            this.checkCondition(state.transitions.length === 2);
-            if (state.transitions[0].target instanceof StarBlockStartState) {
-                this.checkCondition(state.transitions[1].target instanceof LoopEndState);
-                this.checkCondition(!state.nonGreedy);
-            } else if (state.transitions[0].target instanceof LoopEndState) {
-                this.checkCondition(state.transitions[1].target instanceof StarBlockStartState);
-                this.checkCondition(state.nonGreedy);
-            } else {
-                throw("IllegalState");
-            }
-        } else if (state instanceof StarLoopbackState) {
-            this.checkCondition(state.transitions.length === 1);
-            this.checkCondition(state.transitions[0].target instanceof StarLoopEntryState);
-        } else if (state instanceof LoopEndState) {
-            this.checkCondition(state.loopBackState !== null);
-        } else if (state instanceof RuleStartState) {
-            this.checkCondition(state.stopState !== null);
-        } else if (state instanceof BlockStartState) {
-            this.checkCondition(state.endState !== null);
-        } else if (state instanceof BlockEndState) {
-            this.checkCondition(state.startState !== null);
-        } else if (state instanceof DecisionState) {
-            this.checkCondition(state.transitions.length <= 1 || state.decision >= 0);
+        this.verifyState(atn.states[i]);
+	}
+};
+
+ATNDeserializer.prototype.verifyState = function(state) {
+    if (state === null) {
+        return;
+    }
+    this.checkCondition(state.epsilonOnlyTransitions || state.transitions.length <= 1);
+    if (state instanceof PlusBlockStartState) {
+        this.checkCondition(state.loopBackState !== null);
+    } else  if (state instanceof StarLoopEntryState) {
+        this.checkCondition(state.loopBackState !== null);
+        this.checkCondition(state.transitions.length === 2);
+        if (state.transitions[0].target instanceof StarBlockStartState) {
+            this.checkCondition(state.transitions[1].target instanceof LoopEndState);
+            this.checkCondition(!state.nonGreedy);
+        } else if (state.transitions[0].target instanceof LoopEndState) {
+            this.checkCondition(state.transitions[1].target instanceof StarBlockStartState);
+            this.checkCondition(state.nonGreedy);
         } else {
-            this.checkCondition(state.transitions.length <= 1 || (state instanceof RuleStopState));
+            throw("IllegalState");
         }
-	}
+    } else if (state instanceof StarLoopbackState) {
+        this.checkCondition(state.transitions.length === 1);
+        this.checkCondition(state.transitions[0].target instanceof StarLoopEntryState);
+    } else if (state instanceof LoopEndState) {
+        this.checkCondition(state.loopBackState !== null);
+    } else if (state instanceof RuleStartState) {
+        this.checkCondition(state.stopState !== null);
+    } else if (state instanceof BlockStartState) {
+        this.checkCondition(state.endState !== null);
+    } else if (state instanceof BlockEndState) {
+        this.checkCondition(state.startState !== null);
+    } else if (state instanceof DecisionState) {
+        this.checkCondition(state.transitions.length <= 1 || state.decision >= 0);
+    } else {
+        this.checkCondition(state.transitions.length <= 1 || (state instanceof RuleStopState));
+    }
 };
 
 ATNDeserializer.prototype.checkCondition = function(condition, message) {
@@ -612,7 +674,7 @@ ATNDeserializer.prototype.edgeFactory = function(atn, type, src, trg, arg1, arg2
     case Transition.ATOM:
     	return arg3 !== 0 ? new AtomTransition(target, Token.EOF) : new AtomTransition(target, arg1);
     case Transition.ACTION:
-    	return new ActionTransition(target, arg1, arg2, arg3 !== 0);
+    	return new ActionTransition(target, arg1, arg2 === 0xFFFF ? -1 : arg2, arg3 !== 0);
     case Transition.SET:
     	return new SetTransition(target, sets[arg1]);
     case Transition.NOT_SET:
@@ -625,32 +687,13 @@ ATNDeserializer.prototype.edgeFactory = function(atn, type, src, trg, arg1, arg2
 };
 
 ATNDeserializer.prototype.stateFactory = function(type, ruleIndex) {
-    if (this.stateFactories === null) {
-        sf = [];
-        sf[ATNState.INVALID_TYPE] = null;
-        sf[ATNState.BASIC] = function() { return new BasicState(); };
-        sf[ATNState.RULE_START] = function() { return new RuleStartState(); };
-        sf[ATNState.BLOCK_START] = function() { return new BasicBlockStartState(); };
-        sf[ATNState.PLUS_BLOCK_START] = function() { return new PlusBlockStartState(); };
-        sf[ATNState.STAR_BLOCK_START] = function() { return new StarBlockStartState(); };
-        sf[ATNState.TOKEN_START] = function() { return new TokensStartState(); };
-        sf[ATNState.RULE_STOP] = function() { return new RuleStopState(); };
-        sf[ATNState.BLOCK_END] = function() { return new BlockEndState(); };
-        sf[ATNState.STAR_LOOP_BACK] = function() { return new StarLoopbackState(); };
-        sf[ATNState.STAR_LOOP_ENTRY] = function() { return new StarLoopEntryState(); };
-        sf[ATNState.PLUS_LOOP_BACK] = function() { return new PlusLoopbackState(); };
-        sf[ATNState.LOOP_END] = function() { return new LoopEndState(); };
-        this.stateFactories = sf;
-    }
-    if (type>this.stateFactories.length || this.stateFactories[type] === null) {
+    var StateType = STATE_TYPES[type];
+    if (StateType === undefined || StateType === null) {
         throw("The specified state type " + type + " is not valid.");
-    } else {
-        var s = this.stateFactories[type]();
-        if (s!==null) {
-            s.ruleIndex = ruleIndex;
-            return s;
-        }
     }
+    var s = new StateType();
+    s.ruleIndex = ruleIndex;
+    return s;
 };
 
 ATNDeserializer.prototype.lexerActionFactory = function(type, data1, data2) {
@@ -672,6 +715,238 @@ ATNDeserializer.prototype.lexerActionFactory = function(type, data1, data2) {
         return this.actionFactories[type](data1, data2);
     }
 };
-   
 
-exports.ATNDeserializer = ATNDeserializer;
\ No newline at end of file
+// The transitions of an ATN deserialized with
+// {@link ATNDeserializationOptions//lazyRules}, which are only built rule by
+// rule. All the states are built up front, but the transitions of the states
+// of a rule, and the fields derived from them, are filled in the first time
+// one of those fields is read on any state of the rule. The sets and edges
+// are only skimmed to find where each rule's edges are.
+function LazyRules(deserializer, atn) {
+    this.deserializer = deserializer;
+    this.atn = atn;
+    var nrules = atn.ruleToStartState.length;
+    this.remaining = nrules;
+    this.materialized = new Uint8Array(nrules);
+    var states = atn.states;
+    var rules = new Int32Array(states.length);
+    var numbers = new Int32Array(states.length);
+    var count = 0;
+    for (var i=0; i<states.length; i++) {
+        if (states[i] !== null && states[i].ruleIndex >= 0) {
+            rules[count] = states[i].ruleIndex;
+            numbers[count++] = i;
+        }
+    }
+    // the numbers of the states of each rule
+    this.ruleStates = new RuleGroups(nrules, rules, numbers, count);
+    this.skimSets();
+    this.skimEdges();
+    return this;
+}
+
+// Values grouped by rule index, stored in one array: the values of rule
+// {@code r} are at indices {@code starts[r]} to {@code starts[r+1]}.
+function RuleGroups(nrules, rules, values, count) {
+    var starts = new Int32Array(nrules + 1);
+    for (var i=0; i<count; i++) {
+        starts[rules[i] + 1] += 1;
+    }
+    for (var r=0; r<nrules; r++) {
+        starts[r + 1] += starts[r];
+    }
+    var next = starts.slice(0, nrules);
+    this.starts = starts;
+    this.values = new Int32Array(count);
+    for (var i=0; i<count; i++) {
+        this.values[next[rules[i]]++] = values[i];
+    }
+    return this;
+}
+
+// The states of a rule which is not materialized yet are built from a
+// subclass of their state class, which keeps the fields filled in by
+// materializing the rule behind accessors on its prototype, so that building
+// a state costs no more than building it eagerly. Writing such a field only
+// stores it, but reading it materializes the rule first. Once the rule is
+// materialized, {@link settleLazyFields} turns the fields into plain data
+// properties of each state.
+function lazyField(name) {
+    var field = "_" + name;
+    return {
+        get : function() {
+            if (this.atn.lazyRules !== null) {
+                this.atn.lazyRules.materialize(this.ruleIndex);
+            }
+            return this[field];
+        },
+        set : function(value) {
+            this[field] = value;
+        }
+    };
+}
+
+function lazyStateType(StateType, names) {
+    var LazyState = function() {
+        StateType.call(this);
+        return this;
+    };
+    LazyState.prototype = Object.create(StateType.prototype);
+    LazyState.prototype.constructor = StateType;
+    LazyState.prototype.lazyFields = names;
+    for (var i=0; i<names.length; i++) {
+        Object.defineProperty(LazyState.prototype, names[i], lazyField(names[i]));
+    }
+    return LazyState;
+}
+
+var LAZY_STATE_TYPES = STATE_TYPES.map(function(StateType, type) {
+    if (StateType === null) {
+        return null;
+    }
+    var names = [ "transitions", "epsilonOnlyTransitions" ];
+    if (type === ATNState.BLOCK_END) {
+        names.push("startState");
+    } else if (type === ATNState.PLUS_BLOCK_START) {
+        names.push("loopBackState");
+    } else if (type === ATNState.STAR_LOOP_ENTRY) {
+        names.push("loopBackState", "precedenceRuleDecision");
+    }
+    return lazyStateType(StateType, names);
+});
+
+// Replace the accessors of the state of a materialized rule with own data
+// properties, so that reading {@code transitions}, which closure does for
+// every configuration, is a plain property load rather than an accessor call
+// for as long as the ATN is used.
+//
+// <p>The backing fields are left as they are: the accessor which is still
+// running may return one of them.</p>
+function settleLazyFields(state) {
+    var names = state.lazyFields;
+    for (var i=0; i<names.length; i++) {
+        var field = "_" + names[i];
+        Object.defineProperty(state, names[i], {
+            value : state[field], writable : true, enumerable : true, configurable : true
+        });
+    }
+}
+
+// Record where each set starts; a set is only read by the first transition
+// using it.
+LazyRules.prototype.skimSets = function() {
+    var d = this.deserializer;
+    var m = d.readInt();
+    this.sets = [];
+    this.setPositions = [];
+    for (var i=0; i<m; i++) {
+        this.sets.push(null);
+        this.setPositions.push(d.pos);
+        var n = d.readInt();
+        d.pos += 1 + 2 * n;
+    }
+};
+
+// Record where the edges of each rule are. Edges leaving states outside of
+// any rule, such as the start state of a lexer mode, are built right away.
+LazyRules.prototype.skimEdges = function() {
+    var d = this.deserializer;
+    var data = d.data;
+    var states = this.atn.states;
+    var nrules = this.materialized.length;
+    var nedges = d.readInt();
+    var edgeRules = new Int32Array(nedges);
+    var edges = new Int32Array(nedges);
+    var nedgesInRules = 0;
+    var followRules = [];
+    var follows = [];
+    var pos = d.pos;
+    for (var i=0; i<nedges; i++, pos += 6) {
+        var ruleIndex = states[data[pos]].ruleIndex;
+        if (data[pos + 2] === Transition.RULE) {
+            followRules.push(states[data[pos + 3]].ruleIndex);
+            follows.push(data[pos + 1]);
+        }
+        if (ruleIndex >= 0) {
+            edgeRules[nedgesInRules] = ruleIndex;
+            edges[nedgesInRules++] = pos;
+        } else {
+            states[data[pos]].addTransition(this.readEdge(pos));
+        }
+    }
+    d.pos = pos;
+    // the positions of the edges leaving the states of each rule
+    this.ruleEdges = new RuleGroups(nrules, edgeRules, edges, nedgesInRules);
+    // the follow states of the calls to each rule, which become the
+    // transitions of its stop state
+    this.ruleFollows = new RuleGroups(nrules, followRules, follows, follows.length);
+};
+
+LazyRules.prototype.readEdge = function(pos) {
+    var d = this.deserializer;
+    var data = d.data;
+    var ttype = data[pos + 2];
+    var arg1 = data[pos + 3];
+    if ((ttype === Transition.SET || ttype === Transition.NOT_SET) && this.sets[arg1] === null) {
+        var resume = d.pos;
+        d.pos = this.setPositions[arg1];
+        this.sets[arg1] = d.readSet();
+        d.pos = resume;
+    }
+    return d.edgeFactory(this.atn, ttype, data[pos], data[pos + 1],
+            arg1, data[pos + 4], data[pos + 5], this.sets);
+};
+
+// Build the transitions of the states of rule {@code ruleIndex} unless they
+// were already built, and do what the eager deserializer does once it has
+// built all the transitions, for the states of that rule only.
+LazyRules.prototype.materialize = function(ruleIndex) {
+    if (this.materialized[ruleIndex] !== 0) {
+        return;
+    }
+    this.materialized[ruleIndex] = 1;
+    var d = this.deserializer;
+    var atn = this.atn;
+    var edges = this.ruleEdges;
+    for (var i=edges.starts[ruleIndex]; i<edges.starts[ruleIndex + 1]; i++) {
+        var pos = edges.values[i];
+        atn.states[d.data[pos]].addTransition(this.readEdge(pos));
+    }
+    // edges for rule stop states can be derived, so they aren't serialized
+    var follows = this.ruleFollows;
+    for (var i=follows.starts[ruleIndex]; i<follows.starts[ruleIndex + 1]; i++) {
+        atn.ruleToStopState[ruleIndex].addTransition(new EpsilonTransition(atn.states[follows.values[i]]));
+    }
+    var states = this.ruleStates;
+    var first = states.starts[ruleIndex];
+    var last = states.starts[ruleIndex + 1];
+    for (var i=first; i<last; i++) {
+        d.linkState(atn.states[states.values[i]]);
+    }
+    for (var i=first; i<last; i++) {
+        d.markPrecedenceDecision(atn, atn.states[states.values[i]]);
+    }
+    if (d.deserializationOptions.verifyATN) {
+        for (var i=first; i<last; i++) {
+            d.verifyState(atn.states[states.values[i]]);
+        }
+    }
+    for (var i=first; i<last; i++) {
+        settleLazyFields(atn.states[states.values[i]]);
+    }
+    this.remaining -= 1;
+    if (this.remaining === 0) {
+        // nothing is left to read
+        atn.lazyRules = null;
+        this.deserializer = null;
+    }
+};
+
+// Build the transitions of every rule not yet materialized.
+LazyRules.prototype.materializeAll = function() {
+    for (var r=0; r<this.materialized.length; r++) {
+        this.materialize(r);
+    }
+};
+
+exports.ATNDeserializer = ATNDeserializer;
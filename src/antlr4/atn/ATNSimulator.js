@@ -64,11 +64,17 @@ function ATNSimulator(atn, sharedContextCache) {
 ATNSimulator.ERROR = new DFAState(0x7FFFFFFF, new ATNConfigSet());
 
 
-ATNSimulator.prototype.getCachedContext = function(context) {
+// Return the copy of {@code context} made of shared cached nodes.
+// {@code visited} optionally carries the contexts already processed, so that
+// several contexts sharing subgraphs are walked only once.
+//
+ATNSimulator.prototype.getCachedContext = function(context, visited) {
     if (this.sharedContextCache ===null) {
         return context;
     }
-    var visited = {};
+    if (visited === undefined) {
+        visited = new Map();
+    }
     return getCachedPredictionContext(context, this.sharedContextCache, visited);
 };
 
@@ -0,0 +1,126 @@
+//
+// [The "BSD license"]
+//  Copyright (c) 2012 Terence Parr
+//  Copyright (c) 2012 Sam Harwell
+//  Copyright (c) 2014 Eric Vergnaud
+//  All rights reserved.
+//
+//  Redistribution and use in source and binary forms, with or without
+//  modification, are permitted provided that the following conditions
+//  are met:
+//
+//  1. Redistributions of source code must retain the above copyright
+//     notice, this list of conditions and the following disclaimer.
+//  2. Redistributions in binary form must reproduce the above copyright
+//     notice, this list of conditions and the following disclaimer in the
+//     documentation and/or other materials provided with the distribution.
+//  3. The name of the author may not be used to endorse or promote products
+//     derived from this software without specific prior written permission.
+//
+//  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+//  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+//  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+//  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+//  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+//  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+//  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+//  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+//  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+//  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+///
+
+// Events recorded by {@link ProfilingATNSimulator} while it predicts a
+// decision. Each event keeps the decision number, the configuration set in
+// effect when it happened, and the range of input examined by the prediction.
+//
+// @param decision The decision number
+// @param configs The configuration set, or {@code null} when not available
+// @param input The token stream being parsed
+// @param startIndex The input index at which the prediction started
+// @param stopIndex The input index at which the event was recorded
+// @param fullCtx {@code true} if the event occurred during full-context (LL)
+// prediction, otherwise {@code false} for SLL prediction
+//
+function DecisionEventInfo(decision, configs, input, startIndex, stopIndex, fullCtx) {
+	this.decision = decision;
+	this.configs = configs;
+	this.input = input;
+	this.startIndex = startIndex;
+	this.stopIndex = stopIndex;
+	this.fullCtx = fullCtx;
+	return this;
+}
+
+// The lookahead depth of a prediction, recorded for the deepest SLL and LL
+// prediction seen for each decision.
+//
+function LookaheadEventInfo(decision, configs, predictedAlt, input, startIndex, stopIndex, fullCtx) {
+	DecisionEventInfo.call(this, decision, configs, input, startIndex, stopIndex, fullCtx);
+	// The alternative chosen by adaptivePredict, not necessarily the
+	// outermost alternative of the decision.
+	this.predictedAlt = predictedAlt;
+	return this;
+}
+
+LookaheadEventInfo.prototype = Object.create(DecisionEventInfo.prototype);
+LookaheadEventInfo.prototype.constructor = LookaheadEventInfo;
+
+// A syntax error found during prediction: no configuration could advance past
+// the symbol at {@code stopIndex}.
+//
+function ErrorInfo(decision, configs, input, startIndex, stopIndex, fullCtx) {
+	DecisionEventInfo.call(this, decision, configs, input, startIndex, stopIndex, fullCtx);
+	return this;
+}
+
+ErrorInfo.prototype = Object.create(DecisionEventInfo.prototype);
+ErrorInfo.prototype.constructor = ErrorInfo;
+
+// An ambiguity reported by the simulator: more than one alternative could
+// match the input between {@code startIndex} and {@code stopIndex}.
+//
+function AmbiguityInfo(decision, configs, ambigAlts, input, startIndex, stopIndex, fullCtx) {
+	DecisionEventInfo.call(this, decision, configs, input, startIndex, stopIndex, fullCtx);
+	// The alternatives that remain viable, or {@code null} when they are
+	// only available through {@code configs}.
+	this.ambigAlts = ambigAlts;
+	return this;
+}
+
+AmbiguityInfo.prototype = Object.create(DecisionEventInfo.prototype);
+AmbiguityInfo.prototype.constructor = AmbiguityInfo;
+
+// A context sensitivity: SLL prediction found a conflict, and full-context
+// prediction resolved it to a different alternative than SLL would have
+// chosen. Context sensitivities are always found during LL prediction.
+//
+function ContextSensitivityInfo(decision, configs, input, startIndex, stopIndex) {
+	DecisionEventInfo.call(this, decision, configs, input, startIndex, stopIndex, true);
+	return this;
+}
+
+ContextSensitivityInfo.prototype = Object.create(DecisionEventInfo.prototype);
+ContextSensitivityInfo.prototype.constructor = ContextSensitivityInfo;
+
+// The evaluation of a semantic predicate during prediction.
+//
+function PredicateEvalInfo(decision, input, startIndex, stopIndex, semctx, evalResult, predictedAlt, fullCtx) {
+	DecisionEventInfo.call(this, decision, null, input, startIndex, stopIndex, fullCtx);
+	// The semantic context which was evaluated.
+	this.semctx = semctx;
+	// The result of evaluating {@code semctx}.
+	this.evalResult = evalResult;
+	// The alternative guarded by {@code semctx}.
+	this.predictedAlt = predictedAlt;
+	return this;
+}
+
+PredicateEvalInfo.prototype = Object.create(DecisionEventInfo.prototype);
+PredicateEvalInfo.prototype.constructor = PredicateEvalInfo;
+
+exports.DecisionEventInfo = DecisionEventInfo;
+exports.LookaheadEventInfo = LookaheadEventInfo;
+exports.ErrorInfo = ErrorInfo;
+exports.AmbiguityInfo = AmbiguityInfo;
+exports.ContextSensitivityInfo = ContextSensitivityInfo;
+exports.PredicateEvalInfo = PredicateEvalInfo;
@@ -0,0 +1,95 @@
+//
+// [The "BSD license"]
+//  Copyright (c) 2012 Terence Parr
+//  Copyright (c) 2012 Sam Harwell
+//  Copyright (c) 2014 Eric Vergnaud
+//  All rights reserved.
+//
+//  Redistribution and use in source and binary forms, with or without
+//  modification, are permitted provided that the following conditions
+//  are met:
+//
+//  1. Redistributions of source code must retain the above copyright
+//     notice, this list of conditions and the following disclaimer.
+//  2. Redistributions in binary form must reproduce the above copyright
+//     notice, this list of conditions and the following disclaimer in the
+//     documentation and/or other materials provided with the distribution.
+//  3. The name of the author may not be used to endorse or promote products
+//     derived from this software without specific prior written permission.
+//
+//  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+//  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+//  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+//  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+//  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+//  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+//  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+//  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+//  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+//  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+///
+
+// Profiling statistics for a single decision, collected by
+// {@link ProfilingATNSimulator} across every call to adaptivePredict for that
+// decision. Lookahead depths count tokens, including the token which
+// completed the prediction.
+//
+function DecisionInfo(decision) {
+	// The decision number, an index into {@link ATN//decisionToState}.
+	this.decision = decision;
+	// The number of times adaptivePredict was invoked for this decision.
+	this.invocations = 0;
+	// The total time spent in adaptivePredict for this decision, in
+	// nanoseconds. The value is measured around each call, so it includes
+	// the cost of the profiling itself.
+	this.timeInPrediction = 0;
+	// The sum of the lookahead required for SLL prediction. Every call to
+	// adaptivePredict starts with SLL, so this covers all invocations.
+	this.SLL_TotalLook = 0;
+	this.SLL_MinLook = 0;
+	this.SLL_MaxLook = 0;
+	// The {@link LookaheadEventInfo} of the prediction which required
+	// {@link //SLL_MaxLook} tokens.
+	this.SLL_MaxLookEvent = null;
+	// The sum of the lookahead required for full-context prediction, only
+	// counting invocations which fell back to LL.
+	this.LL_TotalLook = 0;
+	this.LL_MinLook = 0;
+	this.LL_MaxLook = 0;
+	this.LL_MaxLookEvent = null;
+	// The number of SLL and LL steps which had to compute a reach set from
+	// the ATN, as opposed to following an existing DFA edge. A warmed up DFA
+	// keeps the ATN counts low.
+	this.SLL_ATNTransitions = 0;
+	this.SLL_DFATransitions = 0;
+	this.LL_ATNTransitions = 0;
+	this.LL_DFATransitions = 0;
+	// The number of times SLL prediction hit a conflict and fell back to
+	// full-context prediction.
+	this.LL_Fallback = 0;
+	// {@link ContextSensitivityInfo} for each context sensitivity found.
+	this.contextSensitivities = [];
+	// {@link ErrorInfo} for each syntax error found during prediction.
+	this.errors = [];
+	// {@link AmbiguityInfo} for each ambiguity found.
+	this.ambiguities = [];
+	// {@link PredicateEvalInfo} for each predicate evaluated during
+	// prediction. Precedence predicates are not included.
+	this.predicateEvals = [];
+	return this;
+}
+
+DecisionInfo.prototype.toString = function() {
+	return "{decision=" + this.decision +
+		", contextSensitivities=" + this.contextSensitivities.length +
+		", errors=" + this.errors.length +
+		", ambiguities=" + this.ambiguities.length +
+		", SLL_lookahead=" + this.SLL_TotalLook +
+		", SLL_ATNTransitions=" + this.SLL_ATNTransitions +
+		", SLL_DFATransitions=" + this.SLL_DFATransitions +
+		", LL_Fallback=" + this.LL_Fallback +
+		", LL_lookahead=" + this.LL_TotalLook +
+		", LL_ATNTransitions=" + this.LL_ATNTransitions + "}";
+};
+
+exports.DecisionInfo = DecisionInfo;
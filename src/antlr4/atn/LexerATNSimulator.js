@@ -104,8 +104,14 @@ LexerATNSimulator.prototype.constructor = LexerATNSimulator;
 LexerATNSimulator.debug = false;
 LexerATNSimulator.dfa_debug = false;
 
+// Symbols from MIN_DFA_EDGE to MAX_DFA_EDGE are cached in the dense
+// {@link DFAState//edges} array; higher symbols up to MAX_CODE_POINT go to
+// {@link DFAState//edgePages}.
 LexerATNSimulator.MIN_DFA_EDGE = 0;
-LexerATNSimulator.MAX_DFA_EDGE = 127; // forces unicode to stay in ATN
+LexerATNSimulator.MAX_DFA_EDGE = 127;
+LexerATNSimulator.MAX_CODE_POINT = 0x10FFFF;
+LexerATNSimulator.EDGE_PAGE_BITS = 8;
+LexerATNSimulator.EDGE_PAGE_SIZE = 1 << LexerATNSimulator.EDGE_PAGE_BITS;
 
 LexerATNSimulator.match_calls = 0;
 
@@ -230,11 +236,22 @@ LexerATNSimulator.prototype.execATN = function(input, ds0) {
 // {@code t}, or {@code null} if the target state for this edge is not
 // already cached
 LexerATNSimulator.prototype.getExistingTargetState = function(s, t) {
-	if (s.edges === null || t < LexerATNSimulator.MIN_DFA_EDGE || t > LexerATNSimulator.MAX_DFA_EDGE) {
-		return null;
+	var target;
+	if (t > LexerATNSimulator.MAX_DFA_EDGE) {
+		if (s.edgePages === null || t > LexerATNSimulator.MAX_CODE_POINT) {
+			return null;
+		}
+		var page = s.edgePages[t >> LexerATNSimulator.EDGE_PAGE_BITS];
+		if (page === undefined) {
+			return null;
+		}
+		target = page[t & (LexerATNSimulator.EDGE_PAGE_SIZE - 1)];
+	} else {
+		if (s.edges === null || t < LexerATNSimulator.MIN_DFA_EDGE) {
+			return null;
+		}
+		target = s.edges[t - LexerATNSimulator.MIN_DFA_EDGE];
 	}
-
-	var target = s.edges[t - LexerATNSimulator.MIN_DFA_EDGE];
 	if(target===undefined) {
 		target = null;
 	}
@@ -315,7 +332,7 @@ LexerATNSimulator.prototype.getReachableConfigSet = function(input, closure,
 					lexerActionExecutor = lexerActionExecutor.fixOffsetBeforeMatch(input.index - this.startIndex);
 				}
 				var treatEofAsEpsilon = (t === Token.EOF);
-				var config = new LexerATNConfig({state:target, lexerActionExecutor:lexerActionExecutor}, cfg);
+				var config = LexerATNConfig.fromConfigWithExecutor(cfg, target, lexerActionExecutor);
 				if (this.closure(input, config, reach,
 						currentAltReachedAcceptState, true, treatEofAsEpsilon)) {
 					// any remaining configs for this alt have a lower priority
@@ -346,7 +363,7 @@ LexerATNSimulator.prototype.accept = function(input, lexerActionExecutor,
 };
 
 LexerATNSimulator.prototype.getReachableTarget = function(trans, t) {
-	if (trans.matches(t, 0, 0xFFFE)) {
+	if (trans.matches(t, Lexer.MIN_CHAR_VALUE, Lexer.MAX_CHAR_VALUE)) {
 		return trans.target;
 	} else {
 		return null;
@@ -358,7 +375,7 @@ LexerATNSimulator.prototype.computeStartState = function(input, p) {
 	var configs = new OrderedATNConfigSet();
 	for (var i = 0; i < p.transitions.length; i++) {
 		var target = p.transitions[i].target;
-        var cfg = new LexerATNConfig({state:target, alt:i+1, context:initialContext}, null);
+        var cfg = LexerATNConfig.create(target, i+1, initialContext);
 		this.closure(input, cfg, configs, false, false, false);
 	}
 	return configs;
@@ -391,7 +408,7 @@ LexerATNSimulator.prototype.closure = function(input, config, configs,
 				configs.add(config);
 				return true;
 			} else {
-				configs.add(new LexerATNConfig({ state:config.state, context:PredictionContext.EMPTY}, config));
+				configs.add(LexerATNConfig.fromConfigWithContext(config, config.state, PredictionContext.EMPTY));
 				currentAltReachedAcceptState = true;
 			}
 		}
@@ -400,7 +417,7 @@ LexerATNSimulator.prototype.closure = function(input, config, configs,
 				if (config.context.getReturnState(i) !== PredictionContext.EMPTY_RETURN_STATE) {
 					var newContext = config.context.getParent(i); // "pop" return state
 					var returnState = this.atn.states[config.context.getReturnState(i)];
-					cfg = new LexerATNConfig({ state:returnState, context:newContext }, config);
+					cfg = LexerATNConfig.fromConfigWithContext(config, returnState, newContext);
 					currentAltReachedAcceptState = this.closure(input, cfg,
 							configs, currentAltReachedAcceptState, speculative,
 							treatEofAsEpsilon);
@@ -432,7 +449,7 @@ LexerATNSimulator.prototype.getEpsilonTarget = function(input, config, trans,
 	var cfg = null;
 	if (trans.serializationType === Transition.RULE) {
 		var newContext = SingletonPredictionContext.create(config.context, trans.followState.stateNumber);
-		cfg = new LexerATNConfig( { state:trans.target, context:newContext}, config);
+		cfg = LexerATNConfig.fromConfigWithContext(config, trans.target, newContext);
 	} else if (trans.serializationType === Transition.PRECEDENCE) {
 		throw "Precedence predicates are not supported in lexers.";
 	} else if (trans.serializationType === Transition.PREDICATE) {
@@ -459,7 +476,7 @@ LexerATNSimulator.prototype.getEpsilonTarget = function(input, config, trans,
 		}
 		configs.hasSemanticContext = true;
 		if (this.evaluatePredicate(input, trans.ruleIndex, trans.predIndex, speculative)) {
-			cfg = new LexerATNConfig({ state:trans.target}, config);
+			cfg = LexerATNConfig.fromConfigWithState(config, trans.target);
 		}
 	} else if (trans.serializationType === Transition.ACTION) {
 		if (config.context === null || config.context.hasEmptyPath()) {
@@ -477,19 +494,19 @@ LexerATNSimulator.prototype.getEpsilonTarget = function(input, config, trans,
 			// the split operation.
 			var lexerActionExecutor = LexerActionExecutor.append(config.lexerActionExecutor,
 					this.atn.lexerActions[trans.actionIndex]);
-			cfg = new LexerATNConfig({ state:trans.target, lexerActionExecutor:lexerActionExecutor }, config);
+			cfg = LexerATNConfig.fromConfigWithExecutor(config, trans.target, lexerActionExecutor);
 		} else {
 			// ignore actions in referenced rules
-			cfg = new LexerATNConfig( { state:trans.target}, config);
+			cfg = LexerATNConfig.fromConfigWithState(config, trans.target);
 		}
 	} else if (trans.serializationType === Transition.EPSILON) {
-		cfg = new LexerATNConfig({ state:trans.target}, config);
+		cfg = LexerATNConfig.fromConfigWithState(config, trans.target);
 	} else if (trans.serializationType === Transition.ATOM ||
 				trans.serializationType === Transition.RANGE ||
 				trans.serializationType === Transition.SET) {
 		if (treatEofAsEpsilon) {
-			if (trans.matches(Token.EOF, 0, 0xFFFF)) {
-				cfg = new LexerATNConfig( { state:trans.target }, config);
+			if (trans.matches(Token.EOF, Lexer.MIN_CHAR_VALUE, Lexer.MAX_CHAR_VALUE)) {
+				cfg = LexerATNConfig.fromConfigWithState(config, trans.target);
 			}
 		}
 	}
@@ -577,13 +594,17 @@ LexerATNSimulator.prototype.addDFAEdge = function(from_, tk, to, cfgs) {
 		}
 	}
 	// add the edge
-	if (tk < LexerATNSimulator.MIN_DFA_EDGE || tk > LexerATNSimulator.MAX_DFA_EDGE) {
+	if (tk < LexerATNSimulator.MIN_DFA_EDGE || tk > LexerATNSimulator.MAX_CODE_POINT) {
 		// Only track edges within the DFA bounds
 		return to;
 	}
 	if (this.debug) {
 		console.log("EDGE " + from_ + " -> " + to + " upon " + tk);
 	}
+	if (tk > LexerATNSimulator.MAX_DFA_EDGE) {
+		this.addEdgeToPage(from_, tk, to);
+		return to;
+	}
 	if (from_.edges === null) {
 		// make room for tokens 1..n and -1 masquerading as index 0
 		from_.edges = [];
@@ -593,11 +614,31 @@ LexerATNSimulator.prototype.addDFAEdge = function(from_, tk, to, cfgs) {
 	return to;
 };
 
+LexerATNSimulator.prototype.addEdgeToPage = function(from_, tk, to) {
+	if (from_.edgePages === null) {
+		from_.edgePages = [];
+	}
+	var index = tk >> LexerATNSimulator.EDGE_PAGE_BITS;
+	var page = from_.edgePages[index];
+	if (page === undefined) {
+		page = new Array(LexerATNSimulator.EDGE_PAGE_SIZE);
+		from_.edgePages[index] = page;
+	}
+	page[tk & (LexerATNSimulator.EDGE_PAGE_SIZE - 1)] = to;
+};
+
 // Add a new DFA state if there isn't one with this set of
 // configurations already. This method also detects the first
 // configuration containing an ATN rule stop state. Later, when
 // traversing the DFA, we will know which rule to accept.
 LexerATNSimulator.prototype.addDFAState = function(configs) {
+	var dfa = this.decisionToDFA[this.mode];
+	// look the configurations up by their hash first, so that a hit
+	// never builds a DFA state
+	var existing = dfa.states.getByConfigs(configs);
+	if (existing !== null) {
+		return existing;
+	}
 	var proposed = new DFAState(null, configs);
 	var firstConfigWithRuleStopState = null;
 	for (var i = 0; i < configs.items.length; i++) {
@@ -612,18 +653,8 @@ LexerATNSimulator.prototype.addDFAState = function(configs) {
 		proposed.lexerActionExecutor = firstConfigWithRuleStopState.lexerActionExecutor;
 		proposed.prediction = this.atn.ruleToTokenType[firstConfigWithRuleStopState.state.ruleIndex];
 	}
-	var dfa = this.decisionToDFA[this.mode];
-	var existing = dfa.states[proposed];
-	if (existing !== undefined && existing!==null) {
-		return existing;
-	}
-	var newState = proposed;
-
-	newState.stateNumber = dfa.states.length;
 	configs.setReadonly(true);
-	newState.configs = configs;
-	dfa.states[newState] = newState;
-	return newState;
+	return dfa.states.add(proposed);
 };
 
 LexerATNSimulator.prototype.getDFA = function(mode) {
@@ -29,6 +29,8 @@
  // THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  //
 
+var MurmurHash = require('./../Utils').MurmurHash;
+
 function LexerActionType() {
 }
 
@@ -51,6 +53,14 @@ LexerAction.prototype.hashString = function() {
     return "" + this.actionType;
 };
 
+// The integer hash code of the action, combined by
+// {@link LexerActionExecutor} into its own.
+LexerAction.prototype.hashCode = function() {
+    var hash = MurmurHash.initialize();
+    hash = MurmurHash.update(hash, this.actionType);
+    return MurmurHash.finish(hash, 1);
+};
+
 LexerAction.prototype.equals = function(other) {
     return this === other;
 };
@@ -100,6 +110,13 @@ LexerTypeAction.prototype.hashString = function() {
 	return "" + this.actionType + this.type;
 };
 
+LexerTypeAction.prototype.hashCode = function() {
+    var hash = MurmurHash.initialize();
+    hash = MurmurHash.update(hash, this.actionType);
+    hash = MurmurHash.update(hash, this.type);
+    return MurmurHash.finish(hash, 2);
+};
+
 
 LexerTypeAction.prototype.equals = function(other) {
     if(this === other) {
@@ -136,6 +153,13 @@ LexerPushModeAction.prototype.hashString = function() {
     return "" + this.actionType + this.mode;
 };
 
+LexerPushModeAction.prototype.hashCode = function() {
+    var hash = MurmurHash.initialize();
+    hash = MurmurHash.update(hash, this.actionType);
+    hash = MurmurHash.update(hash, this.mode);
+    return MurmurHash.finish(hash, 2);
+};
+
 LexerPushModeAction.prototype.equals = function(other) {
     if (this === other) {
         return true;
@@ -219,6 +243,13 @@ LexerModeAction.prototype.hashString = function() {
 	return "" + this.actionType + this.mode;
 };
 
+LexerModeAction.prototype.hashCode = function() {
+    var hash = MurmurHash.initialize();
+    hash = MurmurHash.update(hash, this.actionType);
+    hash = MurmurHash.update(hash, this.mode);
+    return MurmurHash.finish(hash, 2);
+};
+
 LexerModeAction.prototype.equals = function(other) {
     if (this === other) {
         return true;
@@ -272,6 +303,14 @@ LexerCustomAction.prototype.hashString = function() {
     return "" + this.actionType + this.ruleIndex + this.actionIndex;
 };
 
+LexerCustomAction.prototype.hashCode = function() {
+    var hash = MurmurHash.initialize();
+    hash = MurmurHash.update(hash, this.actionType);
+    hash = MurmurHash.update(hash, this.ruleIndex);
+    hash = MurmurHash.update(hash, this.actionIndex);
+    return MurmurHash.finish(hash, 3);
+};
+
 LexerCustomAction.prototype.equals = function(other) {
     if (this === other) {
         return true;
@@ -305,6 +344,13 @@ LexerChannelAction.prototype.hashString = function() {
     return "" + this.actionType + this.channel;
 };
 
+LexerChannelAction.prototype.hashCode = function() {
+    var hash = MurmurHash.initialize();
+    hash = MurmurHash.update(hash, this.actionType);
+    hash = MurmurHash.update(hash, this.channel);
+    return MurmurHash.finish(hash, 2);
+};
+
 LexerChannelAction.prototype.equals = function(other) {
     if (this === other) {
         return true;
@@ -358,7 +404,15 @@ LexerIndexedCustomAction.prototype.execute = function(lexer) {
 };
 
 LexerIndexedCustomAction.prototype.hashString = function() {
-    return "" + this.actionType + this.offset + this.action;
+    return "" + this.actionType + this.offset + this.action.hashString();
+};
+
+LexerIndexedCustomAction.prototype.hashCode = function() {
+    var hash = MurmurHash.initialize();
+    hash = MurmurHash.update(hash, this.actionType);
+    hash = MurmurHash.update(hash, this.offset);
+    hash = MurmurHash.update(hash, this.action.hashCode());
+    return MurmurHash.finish(hash, 3);
 };
 
 LexerIndexedCustomAction.prototype.equals = function(other) {
@@ -367,7 +421,7 @@ LexerIndexedCustomAction.prototype.equals = function(other) {
     } else if (! (other instanceof LexerIndexedCustomAction)) {
         return false;
     } else {
-        return this.offset === other.offset && this.action === other.action;
+        return this.offset === other.offset && this.action.equals(other.action);
     }
 };
 
@@ -380,4 +434,5 @@ exports.LexerMoreAction = LexerMoreAction;
 exports.LexerTypeAction = LexerTypeAction;
 exports.LexerPushModeAction = LexerPushModeAction;
 exports.LexerPopModeAction = LexerPopModeAction;
-exports.LexerModeAction = LexerModeAction;
\ No newline at end of file
+exports.LexerModeAction = LexerModeAction;
+exports.LexerChannelAction = LexerChannelAction;
\ No newline at end of file
@@ -36,14 +36,18 @@
 // efficiently, ensuring that actions appearing only at the end of the rule do
 // not cause bloating of the {@link DFA} created for the lexer.</p>
 
+var MurmurHash = require('./../Utils').MurmurHash;
 var LexerIndexedCustomAction = require('./LexerAction').LexerIndexedCustomAction;
 
 function LexerActionExecutor(lexerActions) {
 	this.lexerActions = lexerActions === null ? [] : lexerActions;
 	// Caches the result of {@link //hashCode} since the hash code is an element
 	// of the performance-critical {@link LexerATNConfig//hashCode} operation.
-	this.hashString = lexerActions.toString(); // "".join([str(la) for la in
-	// lexerActions]))
+	var hash = MurmurHash.initialize();
+	for (var i = 0; i < this.lexerActions.length; i++) {
+		hash = MurmurHash.update(hash, this.lexerActions[i].hashCode());
+	}
+	this.cachedHashCode = MurmurHash.finish(hash, this.lexerActions.length);
 	return this;
 }
 
@@ -158,7 +162,11 @@ LexerActionExecutor.prototype.execute = function(lexer, input, startIndex) {
 };
 
 LexerActionExecutor.prototype.hashString = function() {
-	return this.hashString;
+	return "" + this.cachedHashCode;
+};
+
+LexerActionExecutor.prototype.hashCode = function() {
+	return this.cachedHashCode;
 };
 
 LexerActionExecutor.prototype.equals = function(other) {
@@ -167,9 +175,21 @@ LexerActionExecutor.prototype.equals = function(other) {
 	} else if (!(other instanceof LexerActionExecutor)) {
 		return false;
 	} else {
-		return this.hashString === other.hashString &&
-				this.lexerActions === other.lexerActions;
+		return this.cachedHashCode === other.cachedHashCode &&
+				equalActions(this.lexerActions, other.lexerActions);
 	}
 };
 
+function equalActions(a, b) {
+	if (a.length !== b.length) {
+		return false;
+	}
+	for (var i = 0; i < a.length; i++) {
+		if (!a[i].equals(b[i])) {
+			return false;
+		}
+	}
+	return true;
+}
+
 exports.LexerActionExecutor = LexerActionExecutor;
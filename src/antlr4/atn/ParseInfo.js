@@ -0,0 +1,126 @@
+//
+// [The "BSD license"]
+//  Copyright (c) 2012 Terence Parr
+//  Copyright (c) 2012 Sam Harwell
+//  Copyright (c) 2014 Eric Vergnaud
+//  All rights reserved.
+//
+//  Redistribution and use in source and binary forms, with or without
+//  modification, are permitted provided that the following conditions
+//  are met:
+//
+//  1. Redistributions of source code must retain the above copyright
+//     notice, this list of conditions and the following disclaimer.
+//  2. Redistributions in binary form must reproduce the above copyright
+//     notice, this list of conditions and the following disclaimer in the
+//     documentation and/or other materials provided with the distribution.
+//  3. The name of the author may not be used to endorse or promote products
+//     derived from this software without specific prior written permission.
+//
+//  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+//  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+//  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+//  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+//  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+//  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+//  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+//  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+//  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+//  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+///
+
+// A read-only view of the profiling statistics collected while parsing, as
+// returned by {@link Parser//getParseInfo}. The statistics are live: they
+// keep growing as long as the parser uses the same profiling simulator.
+//
+function ParseInfo(atnSimulator) {
+	this.atnSimulator = atnSimulator;
+	return this;
+}
+
+// Return the {@link DecisionInfo} for every decision in the grammar, indexed
+// by decision number.
+//
+ParseInfo.prototype.getDecisionInfo = function() {
+	return this.atnSimulator.getDecisionInfo();
+};
+
+// Return the decision numbers which required full-context prediction at
+// least once.
+//
+ParseInfo.prototype.getLLDecisions = function() {
+	var decisions = this.atnSimulator.getDecisionInfo();
+	var LL = [];
+	for (var i = 0; i < decisions.length; i++) {
+		if (decisions[i].LL_Fallback > 0) {
+			LL.push(i);
+		}
+	}
+	return LL;
+};
+
+// Return the total time spent in adaptivePredict across all decisions, in
+// nanoseconds.
+//
+ParseInfo.prototype.getTotalTimeInPrediction = function() {
+	return this.sumDecisions(function(info) { return info.timeInPrediction; });
+};
+
+// Return the total number of tokens examined by SLL prediction.
+//
+ParseInfo.prototype.getTotalSLLLookaheadOps = function() {
+	return this.sumDecisions(function(info) { return info.SLL_TotalLook; });
+};
+
+// Return the total number of tokens examined by full-context prediction.
+//
+ParseInfo.prototype.getTotalLLLookaheadOps = function() {
+	return this.sumDecisions(function(info) { return info.LL_TotalLook; });
+};
+
+// Return the total number of SLL steps which had to consult the ATN.
+//
+ParseInfo.prototype.getTotalSLLATNLookaheadOps = function() {
+	return this.sumDecisions(function(info) { return info.SLL_ATNTransitions; });
+};
+
+// Return the total number of LL steps which had to consult the ATN.
+//
+ParseInfo.prototype.getTotalLLATNLookaheadOps = function() {
+	return this.sumDecisions(function(info) { return info.LL_ATNTransitions; });
+};
+
+// Return the total number of prediction steps, SLL and LL, which had to
+// consult the ATN rather than an existing DFA edge.
+//
+ParseInfo.prototype.getTotalATNLookaheadOps = function() {
+	return this.sumDecisions(function(info) {
+		return info.SLL_ATNTransitions + info.LL_ATNTransitions;
+	});
+};
+
+// Return the number of DFA states cached for {@code decision}, or for every
+// decision when {@code decision} is omitted.
+//
+ParseInfo.prototype.getDFASize = function(decision) {
+	var decisionToDFA = this.atnSimulator.decisionToDFA;
+	if (decision !== undefined) {
+		return decisionToDFA[decision].states.length;
+	}
+	var n = 0;
+	for (var i = 0; i < decisionToDFA.length; i++) {
+		n += decisionToDFA[i].states.length;
+	}
+	return n;
+};
+
+ParseInfo.prototype.sumDecisions = function(field) {
+	var decisions = this.atnSimulator.getDecisionInfo();
+	var t = 0;
+	for (var i = 0; i < decisions.length; i++) {
+		t += field(decisions[i]);
+	}
+	return t;
+};
+
+exports.ParseInfo = ParseInfo;
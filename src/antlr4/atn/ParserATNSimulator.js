@@ -258,11 +258,15 @@
 //
 
 var Set = require('./../Utils').Set;
+var BitSet = require('./../Utils').BitSet;
+var DoubleKeyMap = require('./../Utils').DoubleKeyMap;
+var StampedHashSet = require('./../Utils').StampedHashSet;
 var ATN = require('./ATN').ATN;
 var ATNConfig = require('./ATNConfig').ATNConfig;
 var ATNConfigSet = require('./ATNConfigSet').ATNConfigSet;
 var Token = require('./../Token').Token;
 var DFAState = require('./../dfa/DFAState').DFAState;
+var PredPrediction = require('./../dfa/DFAState').PredPrediction;
 var ATNSimulator = require('./ATNSimulator').ATNSimulator;
 var PredictionMode = require('./PredictionMode').PredictionMode;
 var RuleContext = require('./../RuleContext').RuleContext;
@@ -279,6 +283,7 @@ var RuleTransition = Transitions.RuleTransition;
 var ActionTransition = Transitions.ActionTransition;
 var NoViableAltException = require('./../error/Errors').NoViableAltException;
 
+var PredictionContext = require('./../PredictionContext').PredictionContext;
 var SingletonPredictionContext = require('./../PredictionContext').SingletonPredictionContext;
 var predictionContextFromRuleContext = require('./../PredictionContext').predictionContextFromRuleContext;
 
@@ -286,6 +291,10 @@ function ParserATNSimulator(parser, atn, decisionToDFA, sharedContextCache) {
 	ATNSimulator.call(this, atn, sharedContextCache);
     this.parser = parser;
     this.decisionToDFA = decisionToDFA;
+    // The DFAs generated parsers probe inline before they call
+    // adaptivePredict, following LA(1) and LA(2) edges to an accept state.
+    // Set this to null to make every prediction go through adaptivePredict.
+    this.inlineDFAs = decisionToDFA;
     // SLL, LL, or LL + exact ambig detection?//
     this.predictionMode = PredictionMode.LL;
     // LAME globals to avoid parameters!!!!! I need these down deep in predTransition
@@ -300,10 +309,31 @@ function ParserATNSimulator(parser, atn, decisionToDFA, sharedContextCache) {
     //  the merge if we ever see a and b again.  Note that (b,a)&rarr;c should
     //  also be examined during cache lookup.
     //
-    this.mergeCache = null;
+    //  The map is kept and cleared after each prediction. It is also cleared
+    //  when a prediction falls back to full context, since SLL and LL merges
+    //  of the same graphs differ in how they treat $.
+    //
+    this.mergeCache = new DoubleKeyMap();
+    // The stack of the closure walk, as parallel arrays reused by every
+    // closure operation; see {@link //closure}.
+    this.closureConfigs = [];
+    this.closureCollect = [];
+    this.closureDepths = [];
+    this.closureNext = [];
+    this.closureStop = [];
+    this.closureTop = 0;
+    this.closureBusy = new StampedHashSet(hashConfig, equalConfigs);
     return this;
 }
 
+function hashConfig(config) {
+    return config.hashCode();
+}
+
+function equalConfigs(a, b) {
+    return a.equals(b);
+}
+
 ParserATNSimulator.prototype = Object.create(ATNSimulator.prototype);
 ParserATNSimulator.prototype.constructor = ParserATNSimulator;
 
@@ -386,7 +416,7 @@ ParserATNSimulator.prototype.adaptivePredict = function(input, decision, outerCo
         }
         return alt;
     } finally {
-        this.mergeCache = null; // wack cache after each prediction
+        this.mergeCache.clear(); // wack cache after each prediction
         input.seek(index);
         input.release(m);
     }
@@ -474,7 +504,7 @@ ParserATNSimulator.prototype.execATN = function(dfa, s0, input, startIndex, oute
                     if(this.debug) {
                     	console.log("Full LL avoided");
                     }
-                    return Math.min(conflictingAlts);
+                    return conflictingAlts.minValue();
                 }
                 if (conflictIndex !== startIndex) {
                     // restore the index so reporting the fallback to full
@@ -486,6 +516,7 @@ ParserATNSimulator.prototype.execATN = function(dfa, s0, input, startIndex, oute
             	console.log("ctx sensitive state " + outerContext +" in " + D);
             }
             var fullCtx = true;
+            this.mergeCache.clear(); // SLL merges are not valid for LL
             var s0_closure = this.computeStartState(dfa.atnStartState, outerContext, fullCtx);
             this.reportAttemptingFullContext(dfa, conflictingAlts, D.configs, startIndex, input.index);
             alt = this.execATNWithFullContext(dfa, D, s0_closure, input, startIndex, outerContext);
@@ -501,12 +532,12 @@ ParserATNSimulator.prototype.execATN = function(dfa, s0, input, startIndex, oute
             if (alts.length===0) {
                 throw this.noViableAlt(input, outerContext, D.configs, startIndex);
             } else if (alts.length===1) {
-                return Math.min(alts);
+                return alts.minValue();
             } else {
                 // report ambiguity after predicate evaluation to make sure the correct
                 // set of ambig alts is reported.
                 this.reportAmbiguity(dfa, D, startIndex, stopIndex, false, alts, D.configs);
-                return Math.min(alts);
+                return alts.minValue();
             }
         }
         previousD = D;
@@ -533,7 +564,8 @@ ParserATNSimulator.prototype.getExistingTargetState = function(previousD, t) {
     if (edges===null || t + 1 < 0 || t + 1 >= edges.length) {
         return null;
     } else {
-        return edges[t + 1];
+        // edges only holds the symbols seen so far
+        return edges[t + 1] || null;
     }
 };
 //
@@ -577,7 +609,7 @@ ParserATNSimulator.prototype.computeTargetState = function(dfa, previousD, t) {
         D.requiresFullContext = true;
         // in SLL-only mode, we will stop at this state and return the minimum alt
         D.isAcceptState = true;
-        D.prediction = Math.min(D.configs.conflictingAlts);
+        D.prediction = D.configs.conflictingAlts.minValue();
     }
     if (D.isAcceptState && D.configs.hasSemanticContext) {
         this.predicateDFAState(D, this.atn.getDecisionState(dfa.decision));
@@ -605,7 +637,7 @@ ParserATNSimulator.prototype.predicateDFAState = function(dfaState, decisionStat
         // There are preds in configs but they might go away
         // when OR'd together like {p}? || NONE == NONE. If neither
         // alt has preds, resolve to min alt
-        dfaState.prediction = Math.min(altsToCollectPredsFrom);
+        dfaState.prediction = altsToCollectPredsFrom.minValue();
     }
 };
 
@@ -723,9 +755,6 @@ ParserATNSimulator.prototype.computeReachSet = function(closure, t, fullCtx) {
     if (this.debug) {
         console.log("in computeReachSet, starting closure: " + closure);
     }
-    if( this.mergeCache===null) {
-        this.mergeCache = {};
-    }
     var intermediate = new ATNConfigSet(fullCtx);
 
     // Configurations already in a rule stop state indicate reaching the end
@@ -759,7 +788,7 @@ ParserATNSimulator.prototype.computeReachSet = function(closure, t, fullCtx) {
         	var trans = c.state.transitions[j];
             var target = this.getReachableTarget(trans, t);
             if (target!==null) {
-                intermediate.add(new ATNConfig({state:target}, c), this.mergeCache);
+                intermediate.add(ATNConfig.fromConfigWithState(c, target), this.mergeCache);
             }
         }
     }
@@ -793,7 +822,7 @@ ParserATNSimulator.prototype.computeReachSet = function(closure, t, fullCtx) {
     //
     if (reach===null) {
         reach = new ATNConfigSet(fullCtx);
-        var closureBusy = new Set();
+        var closureBusy = this.newClosureBusy();
         var treatEofAsEpsilon = t === Token.EOF;
         for (var k=0; k<intermediate.items.length;k++) {
             this.closure(intermediate.items[k], reach, closureBusy, false, fullCtx, treatEofAsEpsilon);
@@ -864,7 +893,7 @@ ParserATNSimulator.prototype.removeAllConfigsNotInRuleStopState = function(confi
     }
     var result = new ATNConfigSet(configs.fullCtx);
     for(var i=0; i<configs.length;i++) {
-    	var config = configs[i];
+    	var config = configs.items[i];
         if (config.state instanceof RuleStopState) {
             result.add(config, this.mergeCache);
             continue;
@@ -873,7 +902,7 @@ ParserATNSimulator.prototype.removeAllConfigsNotInRuleStopState = function(confi
             var nextTokens = this.atn.nextTokens(config.state);
             if (nextTokens.contains(Token.EPSILON)) {
                 var endOfRuleState = this.atn.ruleToStopState[config.state.ruleIndex];
-                result.add(new ATNConfig({state:endOfRuleState}, config), this.mergeCache);
+                result.add(ATNConfig.fromConfigWithState(config, endOfRuleState), this.mergeCache);
             }
         }
     }
@@ -886,8 +915,8 @@ ParserATNSimulator.prototype.computeStartState = function(p, ctx, fullCtx) {
     var configs = new ATNConfigSet(fullCtx);
     for(var i=0;i<p.transitions.length;i++) {
         var target = p.transitions[i].target;
-        var c = new ATNConfig({ state:target, alt:i+1, context:initialContext }, null);
-        this.closure(c, configs, new Set(), true, fullCtx, false);
+        var c = ATNConfig.create(target, i+1, initialContext);
+        this.closure(c, configs, this.newClosureBusy(), true, fullCtx, false);
     }
     return configs;
 };
@@ -953,7 +982,7 @@ ParserATNSimulator.prototype.applyPrecedenceFilter = function(configs) {
 	var statesFromAlt1 = [];
     var configSet = new ATNConfigSet(configs.fullCtx);
     for(var i=0; i<configs.length; i++) {
-    	config = configs[i];
+    	config = configs.items[i];
         // handle alt 1 first
         if (config.alt !== 1) {
             continue;
@@ -965,13 +994,13 @@ ParserATNSimulator.prototype.applyPrecedenceFilter = function(configs) {
         }
         statesFromAlt1[config.state.stateNumber] = config.context;
         if (updatedContext !== config.semanticContext) {
-            configSet.add(new ATNConfig({semanticContext:updatedContext}, config), this.mergeCache);
+            configSet.add(ATNConfig.fromConfigWithSemanticContext(config, config.state, updatedContext), this.mergeCache);
         } else {
             configSet.add(config, this.mergeCache);
         }
     }
     for(i=0; i<configs.length; i++) {
-    	config = configs[i];
+    	config = configs.items[i];
         if (config.alt === 1) {
             // already handled
             continue;
@@ -1012,13 +1041,16 @@ ParserATNSimulator.prototype.getPredsForAmbigAlts = function(ambigAlts, configs,
     // From this, it is clear that NONE||anything==NONE.
     //
     var altToPred = [];
-    for(var i=0;i<configs.length;i++) {
-    	var c = configs[i];
+    for(var i=0;i<nalts+1;i++) {
+        altToPred.push(null);
+    }
+    for(i=0;i<configs.length;i++) {
+    	var c = configs.items[i];
         if(ambigAlts.contains( c.alt )) {
-            altToPred[c.alt] = orContext(altToPred[c.alt], c.semanticContext);
+            altToPred[c.alt] = SemanticContext.orContext(altToPred[c.alt], c.semanticContext);
         }
     }
-    nPredAlts = 0;
+    var nPredAlts = 0;
     for (i =1;i< nalts+1;i++) {
         if (altToPred[i]===null) {
             altToPred[i] = SemanticContext.NONE;
@@ -1132,7 +1164,7 @@ ParserATNSimulator.prototype.getAltThatFinishedDecisionEntryRule = function(conf
     if (alts.length===0) {
         return ATN.INVALID_ALT_NUMBER;
     } else {
-        return Math.min(alts);
+        return Math.min.apply(null, alts);
     }
 };
 // Walk the list of configurations and split them according to
@@ -1150,7 +1182,7 @@ ParserATNSimulator.prototype.splitAccordingToSemanticValidity = function( config
     for(var i=0;i<configs.items.length; i++) {
     	var c = configs.items[i];
         if (c.semanticContext !== SemanticContext.NONE) {
-            predicateEvaluationResult = c.semanticContext.eval(this.parser, outerContext);
+            var predicateEvaluationResult = this.evalPredicate(c.semanticContext, outerContext, c.alt, configs.fullCtx);
             if (predicateEvaluationResult) {
                 succeeded.add(c);
             } else {
@@ -1170,7 +1202,7 @@ ParserATNSimulator.prototype.splitAccordingToSemanticValidity = function( config
 //  includes pairs with null predicates.
 //
 ParserATNSimulator.prototype.evalSemanticContext = function(predPredictions, outerContext, complete) {
-    var predictions = new Set();
+    var predictions = new BitSet();
     for(var i=0;i<predPredictions.length;i++) {
     	var pair = predPredictions[i];
         if (pair.pred === SemanticContext.NONE) {
@@ -1180,7 +1212,7 @@ ParserATNSimulator.prototype.evalSemanticContext = function(predPredictions, out
             }
             continue;
         }
-        var predicateEvaluationResult = pair.pred.eval(this.parser, outerContext);
+        var predicateEvaluationResult = this.evalPredicate(pair.pred, outerContext, pair.alt, false);
         if (this.debug || this.dfa_debug) {
             console.log("eval pred " + pair + "=" + predicateEvaluationResult);
         }
@@ -1197,6 +1229,20 @@ ParserATNSimulator.prototype.evalSemanticContext = function(predPredictions, out
     return predictions;
 };
 
+// Evaluate a single semantic context during prediction. Every predicate the
+// simulator tests goes through here, so subclasses such as
+// {@link ProfilingATNSimulator} can observe each evaluation.
+//
+// @param pred The semantic context to evaluate
+// @param outerContext The parser context in which to evaluate it
+// @param alt The alternative guarded by {@code pred}
+// @param fullCtx {@code true} if the evaluation occurs during full-context
+// (LL) prediction, otherwise {@code false} for SLL prediction
+//
+ParserATNSimulator.prototype.evalPredicate = function(pred, outerContext, alt, fullCtx) {
+    return pred.eval(this.parser, outerContext);
+};
+
 // TODO: If we are doing predicates, there is no point in pursuing
 //     closure operations if we reach a DFA state that uniquely predicts
 //     alternative. We will not be caching that DFA state and it is a
@@ -1204,92 +1250,87 @@ ParserATNSimulator.prototype.evalSemanticContext = function(predPredictions, out
 //     ambig detection thought :(
 //
 
+// Compute the epsilon closure of {@code config} into {@code configs}.
+//
+// <p>The closure is walked depth first with an explicit stack rather than by
+// recursion, so deep chains of epsilon transitions cannot overflow the call
+// stack. Each stack frame is one configuration whose outgoing edges are
+// being followed: the transitions of its state, or the return states of its
+// context when it sits in a rule stop state. Frames are kept in parallel
+// arrays owned by the simulator and reused across calls. Edges are followed
+// in the same order as a recursive walk would, so the configurations are
+// added to {@code configs} in the same order.</p>
+//
+// <p>{@code closureBusy} holds the configurations reached by falling off the
+// end of a rule, to stop right-recursive rules from looping; see
+// {@link //newClosureBusy}.</p>
+//
 ParserATNSimulator.prototype.closure = function(config, configs, closureBusy, collectPredicates, fullCtx, treatEofAsEpsilon) {
     var initialDepth = 0;
-    this.closureCheckingStopState(config, configs, closureBusy, collectPredicates,
-                             fullCtx, initialDepth, treatEofAsEpsilon);
-};
-
-
-ParserATNSimulator.prototype.closureCheckingStopState = function(config, configs, closureBusy, collectPredicates, fullCtx, depth, treatEofAsEpsilon) {
-    if (this.debug) {
-        console.log("closure(" + config.toString(this.parser,true) + ")");
-    }
-    if (config.state instanceof RuleStopState) {
-        // We hit rule end. If we have context info, use it
-        // run thru all possible stack tops in ctx
-        if (! config.context.isEmpty()) {
-            for ( var i =0; i<config.context.length; i++) {
-                if (config.context.getReturnState(i) === PredictionContext.EMPTY_RETURN_STATE) {
+    var base = this.closureTop;
+    this.enterClosure(config, configs, collectPredicates, fullCtx, initialDepth);
+    try {
+        while (this.closureTop > base) {
+            var top = this.closureTop - 1;
+            var current = this.closureConfigs[top];
+            var depth = this.closureDepths[top];
+            var collecting = this.closureCollect[top];
+            var next = this.closureNext[top];
+            if (current.state instanceof RuleStopState && this.closureStop[top]) {
+                // pop each return state of the context in turn
+                if (next >= current.context.length) {
+                    this.popClosureFrame();
+                    continue;
+                }
+                this.closureNext[top] = next + 1;
+                if (current.context.getReturnState(next) === PredictionContext.EMPTY_RETURN_STATE) {
                     if (fullCtx) {
-                        configs.add(ATNConfig({state:config.state, context:PredictionContext.EMPTY}, config), this.mergeCache);
-                        continue;
+                        configs.add(ATNConfig.fromConfigWithContext(current, current.state, PredictionContext.EMPTY), this.mergeCache);
                     } else {
                         // we have no context info, just chase follow links (if greedy)
                         if (this.debug) {
-                            console.log("FALLING off rule " + this.getRuleName(config.state.ruleIndex));
+                            console.log("FALLING off rule " + this.getRuleName(current.state.ruleIndex));
                         }
-                        this.closure_(config, configs, closureBusy, collectPredicates,
-                                 fullCtx, depth, treatEofAsEpsilon);
+                        this.enterClosureEdges(current, configs, collecting, depth);
                     }
                     continue;
                 }
-                returnState = this.atn.states[config.context.getReturnState(i)];
-                newContext = config.context.getParent(i); // "pop" return state
-                var parms = {state:returnState, alt:config.alt, context:newContext, semanticContext:config.semanticContext};
-                c = new ATNConfig(parms, null);
+                var returnState = this.atn.states[current.context.getReturnState(next)];
+                var newContext = current.context.getParent(next); // "pop" return state
                 // While we have context to pop back from, we may have
                 // gotten that context AFTER having falling off a rule.
                 // Make sure we track that we are now out of context.
-                c.reachesIntoOuterContext = config.reachesIntoOuterContext;
-                this.closureCheckingStopState(c, configs, closureBusy, collectPredicates, fullCtx, depth - 1, treatEofAsEpsilon);
+                var popped = ATNConfig.fromConfigWithContext(current, returnState, newContext);
+                this.enterClosure(popped, configs, collecting, fullCtx, depth - 1);
+                continue;
             }
-            return;
-        } else if( fullCtx) {
-            // reached end of start rule
-            configs.add(config, this.mergeCache);
-            return;
-        } else {
-            // else if we have no context info, just chase follow links (if greedy)
-            if (this.debug) {
-                console.log("FALLING off rule " + this.getRuleName(config.state.ruleIndex));
+            // walk the epsilon edges of the state
+            var p = current.state;
+            if (next >= p.transitions.length) {
+                this.popClosureFrame();
+                continue;
             }
-        }
-    }
-    this.closure_(config, configs, closureBusy, collectPredicates, fullCtx, depth, treatEofAsEpsilon);
-};
-
-// Do the actual work of walking epsilon edges//
-ParserATNSimulator.prototype.closure_ = function(config, configs, closureBusy, collectPredicates, fullCtx, depth, treatEofAsEpsilon) {
-    var p = config.state;
-    // optimization
-    if (! p.epsilonOnlyTransitions) {
-        configs.add(config, this.mergeCache)
-        // make sure to not return here, because EOF transitions can act as
-        // both epsilon transitions and non-epsilon transitions.
-    }
-    for(var i = 0;i<p.transitions.length; i++) {
-    	var t = p.transitions[i];
-        var continueCollecting = collectPredicates && !(t instanceof ActionTransition);
-        var c = this.getEpsilonTarget(config, t, continueCollecting, depth == 0, fullCtx, treatEofAsEpsilon);
-        if (c!==null) {
-            newDepth = depth;
-            if ( config.state instanceof RuleStopState) {
+            this.closureNext[top] = next + 1;
+            var t = p.transitions[next];
+            var continueCollecting = collecting && !(t instanceof ActionTransition);
+            var c = this.getEpsilonTarget(current, t, continueCollecting, depth === 0, fullCtx, treatEofAsEpsilon);
+            if (c===null) {
+                continue;
+            }
+            var newDepth = depth;
+            if (p instanceof RuleStopState) {
                 // target fell off end of rule; mark resulting c as having dipped into outer context
                 // We can't get here if incoming config was rule stop and we had context
                 // track how far we dip into outer context.  Might
                 // come in handy and we avoid evaluating context dependent
                 // preds if this is > 0.
-
-                if (closureBusy.contains(c)) {
+                if (closureBusy.add(c) !== c) {
                     // avoid infinite recursion for right-recursive rules
                     continue;
                 }
-                closureBusy.add(c);
-
-                c.reachesIntoOuterContext += 1
+                c.reachesIntoOuterContext += 1;
                 configs.dipsIntoOuterContext = true; // TODO: can remove? only care when we add to set per middle of this method
-                newDepth -= 1
+                newDepth -= 1;
                 if (this.debug) {
                     console.log("dips into outer ctx: " + c);
                 }
@@ -1299,11 +1340,76 @@ ParserATNSimulator.prototype.closure_ = function(config, configs, closureBusy, c
                     newDepth += 1;
                 }
             }
-            this.closureCheckingStopState(c, configs, closureBusy, continueCollecting, fullCtx, newDepth, treatEofAsEpsilon);
+            this.enterClosure(c, configs, continueCollecting, fullCtx, newDepth);
+        }
+    } finally {
+        while (this.closureTop > base) {
+            this.popClosureFrame();
         }
     }
 };
 
+// Start the closure of {@code config}: handle a rule stop state, then push a
+// frame to follow its edges if it has any left to follow.
+ParserATNSimulator.prototype.enterClosure = function(config, configs, collectPredicates, fullCtx, depth) {
+    if (this.debug) {
+        console.log("closure(" + config.toString(this.parser,true) + ")");
+    }
+    if (config.state instanceof RuleStopState) {
+        // We hit rule end. If we have context info, use it
+        // run thru all possible stack tops in ctx
+        if (! config.context.isEmpty()) {
+            this.pushClosureFrame(config, collectPredicates, depth, true);
+            return;
+        } else if( fullCtx) {
+            // reached end of start rule
+            configs.add(config, this.mergeCache);
+            return;
+        } else {
+            // else if we have no context info, just chase follow links (if greedy)
+            if (this.debug) {
+                console.log("FALLING off rule " + this.getRuleName(config.state.ruleIndex));
+            }
+        }
+    }
+    this.enterClosureEdges(config, configs, collectPredicates, depth);
+};
+
+ParserATNSimulator.prototype.enterClosureEdges = function(config, configs, collectPredicates, depth) {
+    // optimization
+    if (! config.state.epsilonOnlyTransitions) {
+        configs.add(config, this.mergeCache);
+        // make sure to not return here, because EOF transitions can act as
+        // both epsilon transitions and non-epsilon transitions.
+    }
+    if (config.state.transitions.length > 0) {
+        this.pushClosureFrame(config, collectPredicates, depth, false);
+    }
+};
+
+ParserATNSimulator.prototype.pushClosureFrame = function(config, collectPredicates, depth, stop) {
+    var top = this.closureTop;
+    this.closureConfigs[top] = config;
+    this.closureCollect[top] = collectPredicates;
+    this.closureDepths[top] = depth;
+    this.closureNext[top] = 0;
+    this.closureStop[top] = stop;
+    this.closureTop = top + 1;
+};
+
+ParserATNSimulator.prototype.popClosureFrame = function() {
+    this.closureTop -= 1;
+    this.closureConfigs[this.closureTop] = null; // don't hold on to the config
+};
+
+// Return the busy set for one closure operation. The set is owned by the
+// simulator and emptied in constant time, so it must not be kept past the
+// operation.
+ParserATNSimulator.prototype.newClosureBusy = function() {
+    this.closureBusy.clear();
+    return this.closureBusy;
+};
+
 ParserATNSimulator.prototype.getRuleName = function( index) {
     if (this.parser!==null && index>=0) {
         return this.parser.ruleNames[index];
@@ -1323,7 +1429,7 @@ ParserATNSimulator.prototype.getEpsilonTarget = function(config, t, collectPredi
     case Transition.ACTION:
         return this.actionTransition(config, t);
     case Transition.EPSILON:
-        return new ATNConfig({state:t.target}, config);
+        return ATNConfig.fromConfigWithState(config, t.target);
     case Transition.ATOM:
     case Transition.RANGE:
     case Transition.SET:
@@ -1331,7 +1437,7 @@ ParserATNSimulator.prototype.getEpsilonTarget = function(config, t, collectPredi
         // transition is traversed
         if (treatEofAsEpsilon) {
             if (t.matches(Token.EOF, 0, 1)) {
-                return new ATNConfig({state: t.target}, config);
+                return ATNConfig.fromConfigWithState(config, t.target);
             }
         }
         return null;
@@ -1344,7 +1450,7 @@ ParserATNSimulator.prototype.actionTransition = function(config, t) {
     if (this.debug) {
         console.log("ACTION edge " + t.ruleIndex + ":" + t.actionIndex);
     }
-    return new ATNConfig({state:t.target}, config);
+    return ATNConfig.fromConfigWithState(config, t.target);
 };
 
 ParserATNSimulator.prototype.precedenceTransition = function(config, pt,  collectPredicates, inContext, fullCtx) {
@@ -1364,17 +1470,17 @@ ParserATNSimulator.prototype.precedenceTransition = function(config, pt,  collec
             // later during conflict resolution.
             var currentPosition = this._input.index;
             this._input.seek(this._startIndex);
-            var predSucceeds = pt.getPredicate().eval(this.parser, this._outerContext);
+            var predSucceeds = this.evalPredicate(pt.getPredicate(), this._outerContext, config.alt, fullCtx);
             this._input.seek(currentPosition);
             if (predSucceeds) {
-                c = new ATNConfig(parms1 = {state:pt.target}, config); // no pred context
+                c = ATNConfig.fromConfigWithState(config, pt.target); // no pred context
             }
         } else {
-            newSemCtx = SemanticContext.andContext(config.semanticContext, pt.getPredicate());
-            c = ATNConfig({state:pt.target, semanticContext:newSemCtx}, config);
+            var newSemCtx = SemanticContext.andContext(config.semanticContext, pt.getPredicate());
+            c = ATNConfig.fromConfigWithSemanticContext(config, pt.target, newSemCtx);
         }
     } else {
-        c = new ATNConfig({state:pt.target}, config);
+        c = ATNConfig.fromConfigWithState(config, pt.target);
     }
     if (this.debug) {
         console.log("config from pred transition=" + c);
@@ -1399,17 +1505,17 @@ ParserATNSimulator.prototype.predTransition = function(config, pt, collectPredic
             // later during conflict resolution.
             var currentPosition = this._input.index;
             this._input.seek(this._startIndex);
-            var predSucceeds = pt.getPredicate().eval(this.parser, this._outerContext);
+            var predSucceeds = this.evalPredicate(pt.getPredicate(), this._outerContext, config.alt, fullCtx);
             this._input.seek(currentPosition);
             if (predSucceeds) {
-                c = new ATNConfig({state:pt.target}, config); // no pred context
+                c = ATNConfig.fromConfigWithState(config, pt.target); // no pred context
             }
         } else {
             var newSemCtx = SemanticContext.andContext(config.semanticContext, pt.getPredicate());
-            c = new ATNConfig({state:pt.target, semanticContext:newSemCtx}, config);
+            c = ATNConfig.fromConfigWithSemanticContext(config, pt.target, newSemCtx);
         }
     } else {
-        c = new ATNConfig({state:pt.target}, config);
+        c = ATNConfig.fromConfigWithState(config, pt.target);
     }
     if (this.debug) {
         console.log("config from pred transition=" + c);
@@ -1423,11 +1529,11 @@ ParserATNSimulator.prototype.ruleTransition = function(config, t) {
     }
     var returnState = t.followState;
     var newContext = SingletonPredictionContext.create(config.context, returnState.stateNumber);
-    return new ATNConfig({state:t.target, context:newContext}, config );
+    return ATNConfig.fromConfigWithContext(config, t.target, newContext);
 };
 
 ParserATNSimulator.prototype.getConflictingAlts = function(configs) {
-    altsets = PredictionMode.getConflictingAltSubsets(configs);
+    var altsets = PredictionMode.getConflictingAltSubsets(configs);
     return PredictionMode.getAlts(altsets);
 };
 
@@ -1470,7 +1576,7 @@ ParserATNSimulator.prototype.getConflictingAlts = function(configs) {
 ParserATNSimulator.prototype.getConflictingAltsOrUniqueAlt = function(configs) {
     var conflictingAlts = null;
     if (configs.uniqueAlt!== ATN.INVALID_ALT_NUMBER) {
-        conflictingAlts = new Set();
+        conflictingAlts = new BitSet();
         conflictingAlts.add(configs.uniqueAlt);
     } else {
         conflictingAlts = configs.conflictingAlts;
@@ -1598,7 +1704,7 @@ ParserATNSimulator.prototype.addDFAState = function(dfa, D) {
     if (D == ATNSimulator.ERROR) {
         return D;
     }
-    var existing = dfa.states[D] || null;
+    var existing = dfa.states.get(D);
     if(existing!==null) {
         return existing;
     }
@@ -1607,7 +1713,7 @@ ParserATNSimulator.prototype.addDFAState = function(dfa, D) {
         D.configs.optimizeConfigs(this);
         D.configs.setReadonly(true);
     }
-    dfa.states[D] = D;
+    dfa.states.add(D);
     if (this.debug) {
         console.log("adding new DFA state: " + D);
     }
@@ -36,7 +36,11 @@
 var Set = require('./../Utils').Set;
 var BitSet = require('./../Utils').BitSet;
 var AltDict = require('./../Utils').AltDict;
+var ATN = require('./ATN').ATN;
 var RuleStopState = require('./ATNState').RuleStopState;
+var ATNConfig = require('./ATNConfig').ATNConfig;
+var ATNConfigSet = require('./ATNConfigSet').ATNConfigSet;
+var SemanticContext = require('./SemanticContext').SemanticContext;
 
 function PredictionMode() {
 	return this;
@@ -214,7 +218,7 @@ PredictionMode.hasSLLConflictTerminatingPrediction = function( mode, configs) {
             var dup = new ATNConfigSet();
             for(var i=0;i<configs.items.length;i++) {
             	var c = configs.items[i];
-                c = new ATNConfig({semanticContext:SemanticContext.NONE}, c);
+                c = ATNConfig.fromConfigWithSemanticContext(c, c.state, SemanticContext.NONE);
                 dup.add(c);
             }
             configs = dup;
@@ -467,7 +471,7 @@ PredictionMode.allSubsetsEqual = function(altsets) {
 		var alts = altsets[i];
         if (first === null) {
             first = alts;
-        } else if (alts!==first) {
+        } else if (!alts.equals(first)) {
             return false;
         }
 	}
@@ -484,7 +488,7 @@ PredictionMode.allSubsetsEqual = function(altsets) {
 PredictionMode.getUniqueAlt = function(altsets) {
     var all = PredictionMode.getAlts(altsets);
     if (all.length===1) {
-        return all[0];
+        return all.minValue();
     } else {
         return ATN.INVALID_ALT_NUMBER;
     }
@@ -498,8 +502,8 @@ PredictionMode.getUniqueAlt = function(altsets) {
 // @return the set of represented alternatives in {@code altsets}
 //
 PredictionMode.getAlts = function(altsets) {
-    var all = new Set();
-    altsets.map( function(alts) { all.add(alts); });
+    var all = new BitSet();
+    altsets.map( function(alts) { all.or(alts); });
     return all;
 };
 
@@ -567,16 +571,16 @@ PredictionMode.hasStateAssociatedWithOneAlt = function(configs) {
 };
 
 PredictionMode.getSingleViableAlt = function(altsets) {
-    var viableAlts = new Set();
+    var viableAlts = new BitSet();
 	for(var i=0;i<altsets.length;i++) {
 		var alts = altsets[i];
-        var minAlt = Math.min(alts);
+        var minAlt = alts.minValue();
         viableAlts.add(minAlt);
         if (viableAlts.length>1) { // more than 1 viable alt
             return ATN.INVALID_ALT_NUMBER;
         }
 	}
-    return Math.min(viableAlts);
+    return viableAlts.minValue();
 };
 
 exports.PredictionMode = PredictionMode;
\ No newline at end of file
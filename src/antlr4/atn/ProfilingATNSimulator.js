@@ -0,0 +1,237 @@
+//
+// [The "BSD license"]
+//  Copyright (c) 2012 Terence Parr
+//  Copyright (c) 2012 Sam Harwell
+//  Copyright (c) 2014 Eric Vergnaud
+//  All rights reserved.
+//
+//  Redistribution and use in source and binary forms, with or without
+//  modification, are permitted provided that the following conditions
+//  are met:
+//
+//  1. Redistributions of source code must retain the above copyright
+//     notice, this list of conditions and the following disclaimer.
+//  2. Redistributions in binary form must reproduce the above copyright
+//     notice, this list of conditions and the following disclaimer in the
+//     documentation and/or other materials provided with the distribution.
+//  3. The name of the author may not be used to endorse or promote products
+//     derived from this software without specific prior written permission.
+//
+//  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+//  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+//  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+//  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+//  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+//  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+//  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+//  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+//  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+//  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+///
+
+// A {@link ParserATNSimulator} which records, for every decision, how much
+// work adaptivePredict does: invocations, SLL and LL lookahead depth, DFA
+// versus ATN transitions, full-context fallbacks, ambiguities, context
+// sensitivities, predicate evaluations and time spent. The statistics are
+// exposed through {@link ParseInfo}; see {@link Parser//setProfile} and
+// {@link Parser//getParseInfo}.
+//
+// <p>The simulator shares the DFA and prediction context cache of the
+// interpreter it replaces, so turning profiling on does not discard the
+// DFA built so far.</p>
+///
+
+var ParserATNSimulator = require('./ParserATNSimulator').ParserATNSimulator;
+var ATNSimulator = require('./ATNSimulator').ATNSimulator;
+var ATN = require('./ATN').ATN;
+var PrecedencePredicate = require('./SemanticContext').PrecedencePredicate;
+var DecisionInfo = require('./DecisionInfo').DecisionInfo;
+var DecisionEventInfo = require('./DecisionEventInfo');
+var LookaheadEventInfo = DecisionEventInfo.LookaheadEventInfo;
+var ErrorInfo = DecisionEventInfo.ErrorInfo;
+var AmbiguityInfo = DecisionEventInfo.AmbiguityInfo;
+var ContextSensitivityInfo = DecisionEventInfo.ContextSensitivityInfo;
+var PredicateEvalInfo = DecisionEventInfo.PredicateEvalInfo;
+
+function ProfilingATNSimulator(parser) {
+	var interp = parser._interp;
+	ParserATNSimulator.call(this, parser, interp.atn, interp.decisionToDFA, interp.sharedContextCache);
+	this.predictionMode = interp.predictionMode;
+	// every decision has to be seen by adaptivePredict to be profiled
+	this.inlineDFAs = null;
+	this.decisions = [];
+	for (var i = 0; i < this.atn.decisionToState.length; i++) {
+		this.decisions.push(new DecisionInfo(i));
+	}
+	// The input index of the last symbol examined by SLL and LL prediction
+	// in the current call to adaptivePredict; -1 when the mode was not used.
+	this._sllStopIndex = -1;
+	this._llStopIndex = -1;
+	this.currentDecision = -1;
+	this.currentState = null;
+	// The alternative SLL prediction would have chosen when it fell back to
+	// full context. LL resolving the decision to another alternative is what
+	// makes the decision context sensitive.
+	this.conflictingAltResolvedBySLL = ATN.INVALID_ALT_NUMBER;
+	return this;
+}
+
+ProfilingATNSimulator.prototype = Object.create(ParserATNSimulator.prototype);
+ProfilingATNSimulator.prototype.constructor = ProfilingATNSimulator;
+
+// Return a monotonic timestamp in nanoseconds.
+function now() {
+	if (typeof process !== "undefined" && process.hrtime) {
+		var t = process.hrtime();
+		return t[0] * 1e9 + t[1];
+	} else {
+		return Date.now() * 1e6;
+	}
+}
+
+// Return the lowest alternative in {@code alts}, or the lowest alternative
+// among {@code configs} when {@code alts} holds none.
+function minAlt(alts, configs) {
+	var min = ATN.INVALID_ALT_NUMBER;
+	var values = alts === null ? [] : (typeof alts.values === "function" ? alts.values() : alts);
+	for (var i = 0; i < values.length; i++) {
+		if (typeof values[i] === "number" && (min === ATN.INVALID_ALT_NUMBER || values[i] < min)) {
+			min = values[i];
+		}
+	}
+	if (min === ATN.INVALID_ALT_NUMBER) {
+		for (var j = 0; j < configs.items.length; j++) {
+			var alt = configs.items[j].alt;
+			if (min === ATN.INVALID_ALT_NUMBER || alt < min) {
+				min = alt;
+			}
+		}
+	}
+	return min;
+}
+
+ProfilingATNSimulator.prototype.adaptivePredict = function(input, decision, outerContext) {
+	try {
+		this._sllStopIndex = -1;
+		this._llStopIndex = -1;
+		this.currentDecision = decision;
+		var start = now();
+		var alt = ParserATNSimulator.prototype.adaptivePredict.call(this, input, decision, outerContext);
+		var stop = now();
+		var info = this.decisions[decision];
+		info.timeInPrediction += stop - start;
+		info.invocations += 1;
+
+		var SLL_k = this._sllStopIndex - this._startIndex + 1;
+		info.SLL_TotalLook += SLL_k;
+		info.SLL_MinLook = info.SLL_MinLook === 0 ? SLL_k : Math.min(info.SLL_MinLook, SLL_k);
+		if (SLL_k > info.SLL_MaxLook) {
+			info.SLL_MaxLook = SLL_k;
+			info.SLL_MaxLookEvent = new LookaheadEventInfo(decision, null, alt, input,
+					this._startIndex, this._sllStopIndex, false);
+		}
+		if (this._llStopIndex >= 0) {
+			var LL_k = this._llStopIndex - this._startIndex + 1;
+			info.LL_TotalLook += LL_k;
+			info.LL_MinLook = info.LL_MinLook === 0 ? LL_k : Math.min(info.LL_MinLook, LL_k);
+			if (LL_k > info.LL_MaxLook) {
+				info.LL_MaxLook = LL_k;
+				info.LL_MaxLookEvent = new LookaheadEventInfo(decision, null, alt, input,
+						this._startIndex, this._llStopIndex, true);
+			}
+		}
+		return alt;
+	} finally {
+		this.currentDecision = -1;
+	}
+};
+
+// Called each time the input position advances during SLL prediction.
+ProfilingATNSimulator.prototype.getExistingTargetState = function(previousD, t) {
+	this._sllStopIndex = this._input.index;
+	var existingTargetState = ParserATNSimulator.prototype.getExistingTargetState.call(this, previousD, t);
+	if (existingTargetState !== null) {
+		// only count the step if we transition over an existing DFA edge
+		this.decisions[this.currentDecision].SLL_DFATransitions += 1;
+		if (existingTargetState === ATNSimulator.ERROR) {
+			this.decisions[this.currentDecision].errors.push(new ErrorInfo(this.currentDecision,
+					previousD.configs, this._input, this._startIndex, this._sllStopIndex, false));
+		}
+	}
+	this.currentState = existingTargetState;
+	return existingTargetState;
+};
+
+ProfilingATNSimulator.prototype.computeTargetState = function(dfa, previousD, t) {
+	var state = ParserATNSimulator.prototype.computeTargetState.call(this, dfa, previousD, t);
+	this.currentState = state;
+	return state;
+};
+
+ProfilingATNSimulator.prototype.computeReachSet = function(closure, t, fullCtx) {
+	if (fullCtx) {
+		// called each time the input position advances during full-context
+		// prediction
+		this._llStopIndex = this._input.index;
+	}
+	var reachConfigs = ParserATNSimulator.prototype.computeReachSet.call(this, closure, t, fullCtx);
+	var info = this.decisions[this.currentDecision];
+	if (fullCtx) {
+		info.LL_ATNTransitions += 1; // count the computation even on error
+	} else {
+		info.SLL_ATNTransitions += 1;
+	}
+	if (reachConfigs === null) {
+		// no reach on the current lookahead symbol
+		info.errors.push(new ErrorInfo(this.currentDecision, closure, this._input, this._startIndex,
+				fullCtx ? this._llStopIndex : this._sllStopIndex, fullCtx));
+	}
+	return reachConfigs;
+};
+
+ProfilingATNSimulator.prototype.evalPredicate = function(pred, outerContext, alt, fullCtx) {
+	var result = ParserATNSimulator.prototype.evalPredicate.call(this, pred, outerContext, alt, fullCtx);
+	if (!(pred instanceof PrecedencePredicate)) {
+		var stopIndex = this._llStopIndex >= 0 ? this._llStopIndex : this._sllStopIndex;
+		this.decisions[this.currentDecision].predicateEvals.push(new PredicateEvalInfo(this.currentDecision,
+				this._input, this._startIndex, stopIndex, pred, result, alt, fullCtx));
+	}
+	return result;
+};
+
+ProfilingATNSimulator.prototype.reportAttemptingFullContext = function(dfa, conflictingAlts, configs, startIndex, stopIndex) {
+	this.conflictingAltResolvedBySLL = minAlt(conflictingAlts, configs);
+	this.decisions[this.currentDecision].LL_Fallback += 1;
+	ParserATNSimulator.prototype.reportAttemptingFullContext.call(this, dfa, conflictingAlts, configs, startIndex, stopIndex);
+};
+
+ProfilingATNSimulator.prototype.reportContextSensitivity = function(dfa, prediction, configs, startIndex, stopIndex) {
+	if (prediction !== this.conflictingAltResolvedBySLL) {
+		this.decisions[this.currentDecision].contextSensitivities.push(new ContextSensitivityInfo(
+				this.currentDecision, configs, this._input, startIndex, stopIndex));
+	}
+	ParserATNSimulator.prototype.reportContextSensitivity.call(this, dfa, prediction, configs, startIndex, stopIndex);
+};
+
+ProfilingATNSimulator.prototype.reportAmbiguity = function(dfa, D, startIndex, stopIndex, exact, ambigAlts, configs) {
+	var prediction = minAlt(ambigAlts, configs);
+	if (configs.fullCtx && prediction !== this.conflictingAltResolvedBySLL) {
+		// Even though this is an ambiguity, we are still reporting a context
+		// sensitivity: SLL picked another alternative than LL did.
+		this.decisions[this.currentDecision].contextSensitivities.push(new ContextSensitivityInfo(
+				this.currentDecision, configs, this._input, startIndex, stopIndex));
+	}
+	this.decisions[this.currentDecision].ambiguities.push(new AmbiguityInfo(this.currentDecision,
+			configs, ambigAlts, this._input, startIndex, stopIndex, configs.fullCtx));
+	ParserATNSimulator.prototype.reportAmbiguity.call(this, dfa, D, startIndex, stopIndex, exact, ambigAlts, configs);
+};
+
+ProfilingATNSimulator.prototype.getDecisionInfo = function() {
+	return this.decisions;
+};
+
+ProfilingATNSimulator.prototype.getCurrentState = function() {
+	return this.currentState;
+};
+
+exports.ProfilingATNSimulator = ProfilingATNSimulator;
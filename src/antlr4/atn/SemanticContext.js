@@ -139,6 +139,13 @@ Predicate.prototype.hashString = function() {
 	return "" + this.ruleIndex + "/" + this.predIndex + "/" + this.isCtxDependent;
 };
 
+Predicate.prototype.hashCode = function() {
+	var hash = 7;
+	hash = (31 * hash + this.ruleIndex) | 0;
+	hash = (31 * hash + this.predIndex) | 0;
+	return (31 * hash + (this.isCtxDependent ? 1 : 0)) | 0;
+};
+
 Predicate.prototype.equals = function(other) {
 	if (this === other) {
 		return true;
@@ -183,6 +190,10 @@ PrecedencePredicate.prototype.hashString = function() {
 	return "31";
 };
 
+PrecedencePredicate.prototype.hashCode = function() {
+	return (31 + this.precedence) | 0;
+};
+
 PrecedencePredicate.prototype.equals = function(other) {
 	if (this === other) {
 		return true;
@@ -249,6 +260,18 @@ AND.prototype.equals = function(other) {
 AND.prototype.hashString = function() {
 	return "" + this.opnds + "/AND";
 };
+
+AND.prototype.hashCode = function() {
+	return hashOperands(this.opnds, 41);
+};
+
+function hashOperands(opnds, seed) {
+	var hash = seed;
+	for (var i = 0; i < opnds.length; i++) {
+		hash = (31 * hash + opnds[i].hashCode()) | 0;
+	}
+	return hash;
+}
 //
 // {@inheritDoc}
 //
@@ -354,6 +377,10 @@ OR.prototype.hashString = function() {
 	return "" + this.opnds + "/OR"; 
 };
 
+OR.prototype.hashCode = function() {
+	return hashOperands(this.opnds, 37);
+};
+
 // <p>
 // The evaluation of predicates by this context is short-circuiting, but
 // unordered.</p>
@@ -406,3 +433,6 @@ AND.prototype.toString = function() {
 
 exports.SemanticContext = SemanticContext;
 exports.Predicate = Predicate;
+exports.PrecedencePredicate = PrecedencePredicate;
+exports.AND = AND;
+exports.OR = OR;
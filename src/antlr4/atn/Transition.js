@@ -44,6 +44,7 @@ var Token = require('./../Token').Token;
 var Interval = require('./../IntervalSet').Interval;
 var IntervalSet = require('./../IntervalSet').IntervalSet;
 var Predicate = require('./SemanticContext').Predicate;
+var PrecedencePredicate = require('./SemanticContext').PrecedencePredicate;
 
 function Transition (target) {
     // The target of this transition.
@@ -334,4 +335,5 @@ exports.EpsilonTransition = EpsilonTransition;
 exports.RangeTransition = RangeTransition;
 exports.WildcardTransition = WildcardTransition;
 exports.PredicateTransition = PredicateTransition;
-exports.AbstractPredicateTransition = AbstractPredicateTransition;
\ No newline at end of file
+exports.AbstractPredicateTransition = AbstractPredicateTransition;
+exports.PrecedencePredicateTransition = PrecedencePredicateTransition;
\ No newline at end of file
@@ -1,3 +1,9 @@
+exports.ATN = require('./ATN').ATN;
 exports.ATNDeserializer = require('./ATNDeserializer').ATNDeserializer;
 exports.LexerATNSimulator = require('./LexerATNSimulator').LexerATNSimulator;
-exports.ParserATNSimulator = require('./ParserATNSimulator').ParserATNSimulator;
\ No newline at end of file
+exports.ParserATNSimulator = require('./ParserATNSimulator').ParserATNSimulator;
+exports.ProfilingATNSimulator = require('./ProfilingATNSimulator').ProfilingATNSimulator;
+exports.ParseInfo = require('./ParseInfo').ParseInfo;
+exports.DecisionInfo = require('./DecisionInfo').DecisionInfo;
+exports.ATNDeserializationOptions = require('./ATNDeserializationOptions').ATNDeserializationOptions;
+exports.PredictionMode = require('./PredictionMode').PredictionMode;
@@ -30,6 +30,85 @@
 
 var DFAState = require('./DFAState').DFAState;
 var ATNConfigSet = require('./../atn/ATNConfigSet').ATNConfigSet;
+var HashSet = require('./../Utils').HashSet;
+var DFASerializer = require('./DFASerializer').DFASerializer;
+var LexerDFASerializer = require('./DFASerializer').LexerDFASerializer;
+
+// The set of states of a {@link DFA}, keyed on the integer hash code of each
+// state's {@link ATNConfigSet} so that finding an existing state never turns
+// the configurations into a string. States are also kept in the order they
+// were added, which is the order of their state numbers.
+//
+// <p>When the {@link DFA} has a {@link DFABudget}, adding a new state may
+// first evict states to stay within it, and the budget is kept informed of
+// the number of states held.</p>
+
+function DFAStates(dfa) {
+	this.dfa = dfa;
+	this.lookup = new HashSet(hashDFAState, equalDFAStates);
+	this.list = [];
+	return this;
+}
+
+function hashDFAState(state) {
+	return state.configs.hashCode();
+}
+
+function equalDFAStates(a, b) {
+	return a === b || a.equals(b);
+}
+
+Object.defineProperty(DFAStates.prototype, "length", {
+	get : function() {
+		return this.list.length;
+	}
+});
+
+// Return the state equal to {@code state}, or {@code null} if there is none.
+DFAStates.prototype.get = function(state) {
+	return this.lookup.get(state);
+};
+
+// Return the state whose configurations equal {@code configs}, or
+// {@code null} if there is none.
+DFAStates.prototype.getByConfigs = function(configs) {
+	return this.lookup.find(configs.hashCode(), configs, stateHasConfigs);
+};
+
+function stateHasConfigs(state, configs) {
+	return state.configs === configs || state.configs.equals(configs);
+}
+
+// Add {@code state} unless an equal state is already present, and return the
+// state stored in the set. A new state is numbered after the states held once
+// the budget, if any, has made room for it.
+DFAStates.prototype.add = function(state) {
+	var existing = this.lookup.get(state);
+	if (existing !== null) {
+		return existing;
+	}
+	var budget = this.dfa.budget;
+	if (budget !== null) {
+		budget.reserve(this.dfa);
+		budget.totalStates += 1;
+	}
+	state.stateNumber = this.list.length;
+	this.lookup.add(state);
+	this.list.push(state);
+	return state;
+};
+
+DFAStates.prototype.values = function() {
+	return this.list;
+};
+
+DFAStates.prototype.clear = function() {
+	if (this.dfa.budget !== null) {
+		this.dfa.budget.totalStates -= this.list.length;
+	}
+	this.lookup.clear();
+	this.list = [];
+};
 
 function DFA(atnStartState, decision) {
 	if (decision === undefined) {
@@ -40,17 +119,19 @@ function DFA(atnStartState, decision) {
 	this.decision = decision;
 	// A set of all DFA states. Use {@link Map} so we can get old state back
 	// ({@link Set} only allows you to see if it's there).
-	this._states = {};
-	Object.defineProperty(this._states, "length", {
-		get: function() {
-			return Object.keys(this).length;
-		}
-	});
+	this._states = new DFAStates(this);
 	this.s0 = null;
 	// {@code true} if this DFA is for a precedence decision; otherwise,
 	// {@code false}. This is the backing field for {@link //isPrecedenceDfa},
 	// {@link //setPrecedenceDfa}.
 	this.precedenceDfa = false;
+	// The {@link DFABudget} bounding the number of states, or {@code null} if
+	// the DFA may grow without limit.
+	this.budget = null;
+	// The number of times the states of this DFA were evicted, and the total
+	// number of states evicted.
+	this.evictions = 0;
+	this.evictedStates = 0;
 	return this;
 }
 
@@ -71,7 +152,9 @@ DFA.prototype.getPrecedenceStartState = function(precedence) {
 	if (precedence < 0 || precedence >= this.s0.edges.length) {
 		return null;
 	}
-	return this.s0.edges[precedence];
+	// edges only holds the precedence levels seen so far, which need not
+	// start at 0 once the DFA has been evicted
+	return this.s0.edges[precedence] || null;
 };
 
 // Set the start state for a specific precedence value.
@@ -115,32 +198,44 @@ DFA.prototype.setPrecedenceStartState = function(precedence, startState) {
 // {@code false}
 
 DFA.prototype.setPrecedenceDfa = function(precedenceDfa) {
-	if (!(this.precedenceDfa.equals(precedenceDfa))) {
-		this._states = {};
-		if (precedenceDfa) {
-			var precedenceState = new DFAState(new ATNConfigSet());
-			precedenceState.edges = [];
-			precedenceState.isAcceptState = false;
-			precedenceState.requiresFullContext = false;
-			this.s0 = precedenceState;
-		} else {
-			this.s0 = null;
-		}
+	if (this.precedenceDfa !== precedenceDfa) {
+		this._states.clear();
 		this.precedenceDfa = precedenceDfa;
+		this.s0 = precedenceDfa ? newPrecedenceStartState() : null;
 	}
 };
 
+function newPrecedenceStartState() {
+	var precedenceState = new DFAState(null, new ATNConfigSet());
+	precedenceState.edges = [];
+	precedenceState.isAcceptState = false;
+	precedenceState.requiresFullContext = false;
+	return precedenceState;
+}
+
+// Drop every state of this DFA, leaving it as it was before the first
+// prediction; the next predictions rebuild the states they need through ATN
+// simulation. All states go at once because the edges of any state may lead
+// to any other. A prediction in progress keeps working on the states it
+// already holds, which are simply no longer reachable from {@link //s0}.
+//
+DFA.prototype.evict = function() {
+	this.evictions += 1;
+	this.evictedStates += this._states.length;
+	this._states.clear();
+	this.s0 = this.precedenceDfa ? newPrecedenceStartState() : null;
+};
+
 Object.defineProperty(DFA.prototype, "states", {
 	get : function() {
 		return this._states;
 	}
 });
 
-// Return a list of all states in this DFA, ordered by state number.
+// Return a list of all states in this DFA, ordered by state number. States
+// are numbered as they are added, so this is a copy of the insertion order.
 DFA.prototype.sortedStates = function() {
-	return this._states.sort(function(a, b) {
-		return a.stateNumber - b.stateNumber;
-	});
+	return this._states.values().slice(0);
 };
 
 DFA.prototype.toString = function(tokenNames) {
@@ -150,7 +245,7 @@ DFA.prototype.toString = function(tokenNames) {
 	if (this.s0 === null) {
 		return "";
 	}
-	var serializer = new DFASerializer(tokenNames);
+	var serializer = new DFASerializer(this, tokenNames);
 	return serializer.toString();
 };
 
@@ -158,7 +253,7 @@ DFA.prototype.toLexerString = function() {
 	if (this.s0 === null) {
 		return "";
 	}
-	var serializer = new LexerDFASerializer();
+	var serializer = new LexerDFASerializer(this);
 	return serializer.toString();
 };
 
@@ -0,0 +1,124 @@
+//
+// [The "BSD license"]
+//  Copyright (c) 2012 Terence Parr
+//  Copyright (c) 2012 Sam Harwell
+//  Copyright (c) 2014 Eric Vergnaud
+//  All rights reserved.
+//
+//  Redistribution and use in source and binary forms, with or without
+//  modification, are permitted provided that the following conditions
+//  are met:
+//
+//  1. Redistributions of source code must retain the above copyright
+//     notice, this list of conditions and the following disclaimer.
+//  2. Redistributions in binary form must reproduce the above copyright
+//     notice, this list of conditions and the following disclaimer in the
+//     documentation and/or other materials provided with the distribution.
+//  3. The name of the author may not be used to endorse or promote products
+//     derived from this software without specific prior written permission.
+//
+//  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+//  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+//  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+//  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+//  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+//  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+//  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+//  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+//  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+//  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+// Bounds the memory held by a set of {@link DFA}s, such as the
+// {@code decisionToDFA} of a generated recognizer, which otherwise grows for
+// as long as new input reaches new states.
+//
+// <p>The budget counts states. {@code maxStatesPerDFA} caps each DFA: a DFA
+// which is full is evicted, by {@link DFA//evict}, before its next state is
+// added. {@code maxTotalStates} caps all the DFAs together: when they are
+// full, the largest one is evicted. Either limit may be left at 0 for no
+// limit. Evicted states are rebuilt on demand, so a budget trades some
+// prediction speed for a steady heap.</p>
+//
+// <p>{@code myparser._interp.decisionToDFA} is shared by every parser
+// generated from the same grammar, so one budget applied to it covers them
+// all:</p>
+//
+// <p>
+// {@code new DFABudget(500, 20000).watch(myparser._interp.decisionToDFA);}</p>
+//
+
+function DFABudget(maxStatesPerDFA, maxTotalStates) {
+	this.maxStatesPerDFA = maxStatesPerDFA || 0;
+	this.maxTotalStates = maxTotalStates || 0;
+	// The number of states currently held by the watched DFAs.
+	this.totalStates = 0;
+	this.dfas = [];
+	return this;
+}
+
+// Put every DFA of {@code decisionToDFA} under this budget, counting the
+// states they already hold.
+DFABudget.prototype.watch = function(decisionToDFA) {
+	for (var i = 0; i < decisionToDFA.length; i++) {
+		var dfa = decisionToDFA[i];
+		if (dfa.budget === this) {
+			continue;
+		} else if (dfa.budget !== null) {
+			dfa.budget.unwatch(dfa);
+		}
+		dfa.budget = this;
+		this.dfas.push(dfa);
+		this.totalStates += dfa.states.length;
+	}
+	return this;
+};
+
+DFABudget.prototype.unwatch = function(dfa) {
+	var i = this.dfas.indexOf(dfa);
+	if (i >= 0) {
+		this.dfas.splice(i, 1);
+		this.totalStates -= dfa.states.length;
+		dfa.budget = null;
+	}
+};
+
+// Make room for one more state in {@code dfa}.
+DFABudget.prototype.reserve = function(dfa) {
+	if (this.maxStatesPerDFA > 0 && dfa.states.length >= this.maxStatesPerDFA) {
+		dfa.evict();
+	}
+	if (this.maxTotalStates > 0 && this.totalStates >= this.maxTotalStates) {
+		this.largest().evict();
+	}
+};
+
+DFABudget.prototype.largest = function() {
+	var largest = this.dfas[0];
+	for (var i = 1; i < this.dfas.length; i++) {
+		if (this.dfas[i].states.length > largest.states.length) {
+			largest = this.dfas[i];
+		}
+	}
+	return largest;
+};
+
+// Return the number of times a watched DFA was evicted.
+DFABudget.prototype.getEvictions = function() {
+	var n = 0;
+	for (var i = 0; i < this.dfas.length; i++) {
+		n += this.dfas[i].evictions;
+	}
+	return n;
+};
+
+// Return the number of states evicted from the watched DFAs.
+DFABudget.prototype.getEvictedStates = function() {
+	var n = 0;
+	for (var i = 0; i < this.dfas.length; i++) {
+		n += this.dfas[i].evictedStates;
+	}
+	return n;
+};
+
+exports.DFABudget = DFABudget;
@@ -0,0 +1,125 @@
+//
+// [The "BSD license"]
+//  Copyright (c) 2012 Terence Parr
+//  Copyright (c) 2012 Sam Harwell
+//  Copyright (c) 2014 Eric Vergnaud
+//  All rights reserved.
+//
+//  Redistribution and use in source and binary forms, with or without
+//  modification, are permitted provided that the following conditions
+//  are met:
+//
+//  1. Redistributions of source code must retain the above copyright
+//     notice, this list of conditions and the following disclaimer.
+//  2. Redistributions in binary form must reproduce the above copyright
+//     notice, this list of conditions and the following disclaimer in the
+//     documentation and/or other materials provided with the distribution.
+//  3. The name of the author may not be used to endorse or promote products
+//     derived from this software without specific prior written permission.
+//
+//  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+//  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+//  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+//  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+//  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+//  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+//  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+//  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+//  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+//  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+// A DFA walker that knows how to dump them to serialized strings.
+
+function DFASerializer(dfa, tokenNames) {
+	this.dfa = dfa;
+	this.tokenNames = tokenNames || null;
+	return this;
+}
+
+DFASerializer.prototype.toString = function() {
+	if (this.dfa.s0 === null) {
+		return "";
+	}
+	var buf = "";
+	var states = this.dfa.sortedStates();
+	for (var i = 0; i < states.length; i++) {
+		var s = states[i];
+		buf = buf.concat(this.edgesToString(s, s.edges, 0));
+	}
+	return buf;
+};
+
+// Return one line per edge of {@code s} in {@code edges}, whose first entry
+// is the edge of symbol index {@code first}.
+DFASerializer.prototype.edgesToString = function(s, edges, first) {
+	var buf = "";
+	if (edges === null || edges === undefined) {
+		return buf;
+	}
+	for (var j = 0; j < edges.length; j++) {
+		var t = edges[j] || null;
+		if (t !== null && t.stateNumber !== 0x7FFFFFFF) {
+			buf = buf.concat(this.getStateString(s));
+			buf = buf.concat("-");
+			buf = buf.concat(this.getEdgeLabel(first + j));
+			buf = buf.concat("->");
+			buf = buf.concat(this.getStateString(t));
+			buf = buf.concat('\n');
+		}
+	}
+	return buf;
+};
+
+// Parser edges are shifted up by one, so that EOF is {@code edges[0]}.
+DFASerializer.prototype.getEdgeLabel = function(i) {
+	if (i === 0) {
+		return "EOF";
+	} else if (this.tokenNames !== null) {
+		return this.tokenNames[i - 1];
+	} else {
+		return String.fromCharCode(i - 1);
+	}
+};
+
+DFASerializer.prototype.getStateString = function(s) {
+	var baseStateStr = (s.isAcceptState ? ":" : "") + "s" + s.stateNumber +
+			(s.requiresFullContext ? "^" : "");
+	if (s.isAcceptState) {
+		if (s.predicates !== null) {
+			return baseStateStr + "=>" + s.predicates.toString();
+		} else {
+			return baseStateStr + "=>" + s.prediction.toString();
+		}
+	} else {
+		return baseStateStr;
+	}
+};
+
+// Lexer edges are indexed by character, and characters past the dense
+// {@link DFAState//edges} array are kept in {@link DFAState//edgePages}.
+function LexerDFASerializer(dfa) {
+	DFASerializer.call(this, dfa, null);
+	return this;
+}
+
+LexerDFASerializer.prototype = Object.create(DFASerializer.prototype);
+LexerDFASerializer.prototype.constructor = LexerDFASerializer;
+
+LexerDFASerializer.prototype.edgesToString = function(s, edges, first) {
+	var buf = DFASerializer.prototype.edgesToString.call(this, s, edges, first);
+	if (edges === s.edges && s.edgePages !== null) {
+		var pages = Object.keys(s.edgePages).map(Number).sort(function(a, b) { return a - b; });
+		for (var i = 0; i < pages.length; i++) {
+			var page = s.edgePages[pages[i]];
+			buf = buf.concat(this.edgesToString(s, page, pages[i] * page.length));
+		}
+	}
+	return buf;
+};
+
+LexerDFASerializer.prototype.getEdgeLabel = function(i) {
+	return "'" + String.fromCodePoint(i) + "'";
+};
+
+exports.DFASerializer = DFASerializer;
+exports.LexerDFASerializer = LexerDFASerializer;
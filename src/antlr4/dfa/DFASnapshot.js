@@ -0,0 +1,600 @@
+//
+// [The "BSD license"]
+//  Copyright (c) 2012 Terence Parr
+//  Copyright (c) 2012 Sam Harwell
+//  Copyright (c) 2014 Eric Vergnaud
+//  All rights reserved.
+//
+//  Redistribution and use in source and binary forms, with or without
+//  modification, are permitted provided that the following conditions
+//  are met:
+//
+//  1. Redistributions of source code must retain the above copyright
+//     notice, this list of conditions and the following disclaimer.
+//  2. Redistributions in binary form must reproduce the above copyright
+//     notice, this list of conditions and the following disclaimer in the
+//     documentation and/or other materials provided with the distribution.
+//  3. The name of the author may not be used to endorse or promote products
+//     derived from this software without specific prior written permission.
+//
+//  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+//  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+//  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+//  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+//  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+//  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+//  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+//  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+//  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+//  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+// Saves the DFA built up by a recognizer so that a later process can start
+// with it warm instead of rebuilding it through ATN simulation.
+//
+// <p>{@link //serialize} encodes the states and edges of every {@link DFA} in
+// {@code decisionToDFA} as a buffer of 32-bit integers, configurations
+// included, so that states added after a reload are still matched against
+// the loaded ones by {@link DFA//states}. Prediction contexts, semantic
+// contexts and lexer action executors are written once each to shared
+// tables and referred to by position.</p>
+//
+// <p>The snapshot records the serialization UUID and checksum of the
+// serialized ATN it was taken from, and {@link //deserialize} leaves the DFA
+// untouched when the ATN it is given does not match, for instance after the
+// grammar or the ATN serialization format changed.</p>
+
+var fs = require("fs");
+var DFAState = require('./DFAState').DFAState;
+var PredPrediction = require('./DFAState').PredPrediction;
+var ATNType = require('./../atn/ATNType').ATNType;
+var ATNConfig = require('./../atn/ATNConfig').ATNConfig;
+var LexerATNConfig = require('./../atn/ATNConfig').LexerATNConfig;
+var ATNConfigSet = require('./../atn/ATNConfigSet').ATNConfigSet;
+var OrderedATNConfigSet = require('./../atn/ATNConfigSet').OrderedATNConfigSet;
+var ATNSimulator = require('./../atn/ATNSimulator').ATNSimulator;
+var LexerActionExecutor = require('./../atn/LexerActionExecutor').LexerActionExecutor;
+var LexerIndexedCustomAction = require('./../atn/LexerAction').LexerIndexedCustomAction;
+var SemanticContexts = require('./../atn/SemanticContext');
+var PredictionContexts = require('./../PredictionContext');
+var BitSet = require('./../Utils').BitSet;
+
+var SemanticContext = SemanticContexts.SemanticContext;
+var PredictionContext = PredictionContexts.PredictionContext;
+var SingletonPredictionContext = PredictionContexts.SingletonPredictionContext;
+var ArrayPredictionContext = PredictionContexts.ArrayPredictionContext;
+
+var MAGIC = 0x44464131; // "DFA1"
+var VERSION = 2;
+// The number of words before the tables.
+var HEADER_SIZE = 12;
+
+// Kinds of semantic context records.
+var SEMCTX_NONE = 0;
+var SEMCTX_PREDICATE = 1;
+var SEMCTX_PRECEDENCE = 2;
+var SEMCTX_AND = 3;
+var SEMCTX_OR = 4;
+
+// Edge targets which are not states of the DFA.
+var NO_STATE = -1;
+var ERROR_STATE = -2;
+
+function DFASnapshot() {
+	return this;
+}
+
+// Encode every DFA in {@code decisionToDFA}, which was built for {@code atn}.
+// Return a {@code Buffer}.
+DFASnapshot.serialize = function(atn, decisionToDFA) {
+	if (atn.serializedChecksum === undefined) {
+		throw "Only an ATN read by ATNDeserializer can be snapshotted.";
+	}
+	var writer = new SnapshotWriter(atn);
+	var body = [];
+	body.push(decisionToDFA.length);
+	for (var i = 0; i < decisionToDFA.length; i++) {
+		writer.writeDFA(body, decisionToDFA[i]);
+	}
+	var header = [ MAGIC, VERSION ].concat(uuidWords(atn.serializedUUID),
+		[ atn.serializedChecksum, atn.grammarType, atn.states.length,
+		writer.contextCount, writer.semanticContextCount, writer.executorCount ]);
+	var ints = header.concat(writer.contexts, writer.semanticContexts,
+		writer.executors, body);
+	return Buffer.from(new Int32Array(ints).buffer);
+};
+
+// Load a snapshot taken by {@link //serialize} into {@code decisionToDFA},
+// replacing its states. Return {@code false}, leaving {@code decisionToDFA}
+// as it was, if the snapshot was not taken from {@code atn}.
+DFASnapshot.deserialize = function(atn, decisionToDFA, buffer) {
+	if (buffer.length % 4 !== 0 || buffer.length < 4 * HEADER_SIZE) {
+		return false;
+	}
+	var words = new Int32Array(buffer.buffer.slice(buffer.byteOffset,
+		buffer.byteOffset + buffer.length));
+	if (words[0] !== MAGIC || words[1] !== VERSION) {
+		return false;
+	}
+	var uuid = uuidWords(atn.serializedUUID);
+	for (var u = 0; u < uuid.length; u++) {
+		if (words[2 + u] !== uuid[u]) {
+			return false;
+		}
+	}
+	if (words[6] !== atn.serializedChecksum || words[7] !== atn.grammarType ||
+			words[8] !== atn.states.length) {
+		return false;
+	}
+	var reader = new SnapshotReader(atn, words, 9);
+	reader.readTables();
+	if (reader.readInt() !== decisionToDFA.length) {
+		return false;
+	}
+	var loaded = [];
+	for (var i = 0; i < decisionToDFA.length; i++) {
+		loaded.push(reader.readDFA());
+	}
+	for (var j = 0; j < decisionToDFA.length; j++) {
+		var dfa = decisionToDFA[j];
+		dfa.precedenceDfa = loaded[j].precedenceDfa;
+		dfa.s0 = loaded[j].s0;
+		dfa.states.clear();
+		for (var k = 0; k < loaded[j].states.length; k++) {
+			dfa.states.add(loaded[j].states[k]);
+		}
+	}
+	return true;
+};
+
+DFASnapshot.save = function(fileName, atn, decisionToDFA) {
+	fs.writeFileSync(fileName, DFASnapshot.serialize(atn, decisionToDFA));
+};
+
+// Return {@code false} if the file does not exist or does not match.
+DFASnapshot.load = function(fileName, atn, decisionToDFA) {
+	if (!fs.existsSync(fileName)) {
+		return false;
+	}
+	return DFASnapshot.deserialize(atn, decisionToDFA, fs.readFileSync(fileName));
+};
+
+// The serialization UUID of an ATN as four 32-bit words.
+function uuidWords(uuid) {
+	var hex = uuid.replace(/-/g, "");
+	var words = [];
+	for (var i = 0; i < 32; i += 8) {
+		words.push(parseInt(hex.substr(i, 8), 16) | 0);
+	}
+	return words;
+}
+
+function SnapshotWriter(atn) {
+	this.atn = atn;
+	this.isLexer = atn.grammarType === ATNType.LEXER;
+	this.contexts = [];
+	this.contextCount = 0;
+	this.contextIds = new Map();
+	this.semanticContexts = [];
+	this.semanticContextCount = 0;
+	this.semanticContextIds = new Map();
+	this.executors = [];
+	this.executorCount = 0;
+	this.executorIds = new Map();
+	return this;
+}
+
+// Return the table position of {@code context}, writing it and its parents
+// first if they have not been written yet.
+SnapshotWriter.prototype.contextId = function(context) {
+	if (context === null) {
+		return -1;
+	}
+	var id = this.contextIds.get(context);
+	if (id !== undefined) {
+		return id;
+	}
+	var record = [ context.length ];
+	for (var i = 0; i < context.length; i++) {
+		record.push(this.contextId(context.getParent(i)), context.getReturnState(i));
+	}
+	id = this.contextCount++;
+	this.contextIds.set(context, id);
+	this.contexts.push.apply(this.contexts, record);
+	return id;
+};
+
+SnapshotWriter.prototype.semanticContextId = function(semctx) {
+	var id = this.semanticContextIds.get(semctx);
+	if (id !== undefined) {
+		return id;
+	}
+	var record;
+	if (semctx === SemanticContext.NONE) {
+		record = [ SEMCTX_NONE ];
+	} else if (semctx instanceof SemanticContexts.PrecedencePredicate) {
+		record = [ SEMCTX_PRECEDENCE, semctx.precedence ];
+	} else if (semctx instanceof SemanticContexts.Predicate) {
+		record = [ SEMCTX_PREDICATE, semctx.ruleIndex, semctx.predIndex,
+			semctx.isCtxDependent ? 1 : 0 ];
+	} else {
+		record = [ semctx instanceof SemanticContexts.AND ? SEMCTX_AND : SEMCTX_OR,
+			semctx.opnds.length ];
+		for (var i = 0; i < semctx.opnds.length; i++) {
+			record.push(this.semanticContextId(semctx.opnds[i]));
+		}
+	}
+	id = this.semanticContextCount++;
+	this.semanticContextIds.set(semctx, id);
+	this.semanticContexts.push.apply(this.semanticContexts, record);
+	return id;
+};
+
+SnapshotWriter.prototype.executorId = function(executor) {
+	if (executor === null) {
+		return -1;
+	}
+	var id = this.executorIds.get(executor);
+	if (id !== undefined) {
+		return id;
+	}
+	var record = [ executor.lexerActions.length ];
+	for (var i = 0; i < executor.lexerActions.length; i++) {
+		var action = executor.lexerActions[i];
+		if (action instanceof LexerIndexedCustomAction) {
+			record.push(this.lexerActionIndex(action.action), action.offset);
+		} else {
+			record.push(this.lexerActionIndex(action), -1);
+		}
+	}
+	id = this.executorCount++;
+	this.executorIds.set(executor, id);
+	this.executors.push.apply(this.executors, record);
+	return id;
+};
+
+SnapshotWriter.prototype.lexerActionIndex = function(action) {
+	var actions = this.atn.lexerActions;
+	for (var i = 0; i < actions.length; i++) {
+		if (actions[i] === action || actions[i].equals(action)) {
+			return i;
+		}
+	}
+	throw "Lexer action " + action + " is not part of the ATN.";
+};
+
+SnapshotWriter.prototype.writeDFA = function(out, dfa) {
+	var states = dfa.states.values();
+	var positions = new Map();
+	for (var i = 0; i < states.length; i++) {
+		positions.set(states[i], i);
+	}
+	out.push(dfa.precedenceDfa ? 1 : 0, states.length);
+	for (var j = 0; j < states.length; j++) {
+		this.writeState(out, states[j]);
+	}
+	for (var k = 0; k < states.length; k++) {
+		writeEdges(out, states[k].edges, positions);
+		writePages(out, states[k].edgePages, positions);
+	}
+	if (dfa.precedenceDfa) {
+		writeEdges(out, dfa.s0.edges, positions);
+	} else {
+		out.push(targetId(dfa.s0, positions));
+	}
+};
+
+SnapshotWriter.prototype.writeState = function(out, state) {
+	out.push(state.stateNumber, state.isAcceptState ? 1 : 0,
+		state.requiresFullContext ? 1 : 0, state.prediction,
+		this.executorId(state.lexerActionExecutor));
+	if (state.predicates === null) {
+		out.push(-1);
+	} else {
+		out.push(state.predicates.length);
+		for (var i = 0; i < state.predicates.length; i++) {
+			var p = state.predicates[i];
+			out.push(this.semanticContextId(p.pred), p.alt);
+		}
+	}
+	var configs = state.configs;
+	out.push(configs.fullCtx ? 1 : 0, configs.uniqueAlt,
+		configs.hasSemanticContext ? 1 : 0, configs.dipsIntoOuterContext ? 1 : 0);
+	var alts = conflictingAltList(configs.conflictingAlts);
+	if (alts === null) {
+		out.push(-1);
+	} else {
+		out.push(alts.length);
+		out.push.apply(out, alts);
+	}
+	out.push(configs.configs.length);
+	for (var j = 0; j < configs.configs.length; j++) {
+		var c = configs.configs[j];
+		out.push(c.state.stateNumber, c.alt, this.contextId(c.context),
+			this.semanticContextId(c.semanticContext), c.reachesIntoOuterContext);
+		if (this.isLexer) {
+			out.push(c.passedThroughNonGreedyDecision ? 1 : 0,
+				this.executorId(c.lexerActionExecutor));
+		}
+	}
+};
+
+// The conflicting alternatives as a list of alt numbers, or {@code null}.
+function conflictingAltList(conflictingAlts) {
+	return conflictingAlts === null ? null : conflictingAlts.values();
+}
+
+function targetId(target, positions) {
+	if (target === null || target === undefined) {
+		return NO_STATE;
+	} else if (target === ATNSimulator.ERROR) {
+		return ERROR_STATE;
+	} else {
+		var id = positions.get(target);
+		return id === undefined ? NO_STATE : id;
+	}
+}
+
+// Write the set entries of {@code edges} as a count followed by
+// (symbol, target) pairs.
+function writeEdges(out, edges, positions) {
+	var countAt = out.length;
+	out.push(0);
+	if (edges === null) {
+		return;
+	}
+	var count = 0;
+	for (var i = 0; i < edges.length; i++) {
+		var id = targetId(edges[i], positions);
+		if (id !== NO_STATE) {
+			out.push(i, id);
+			count += 1;
+		}
+	}
+	out[countAt] = count;
+}
+
+function writePages(out, pages, positions) {
+	var countAt = out.length;
+	out.push(0);
+	if (pages === null || pages === undefined) {
+		return;
+	}
+	var count = 0;
+	for (var i = 0; i < pages.length; i++) {
+		if (pages[i] !== undefined) {
+			out.push(i);
+			writeEdges(out, pages[i], positions);
+			count += 1;
+		}
+	}
+	out[countAt] = count;
+}
+
+function SnapshotReader(atn, words, pos) {
+	this.atn = atn;
+	this.isLexer = atn.grammarType === ATNType.LEXER;
+	this.words = words;
+	this.pos = pos;
+	this.contexts = [];
+	this.semanticContexts = [];
+	this.executors = [];
+	return this;
+}
+
+SnapshotReader.prototype.readInt = function() {
+	if (this.pos >= this.words.length) {
+		throw "Truncated DFA snapshot.";
+	}
+	return this.words[this.pos++];
+};
+
+SnapshotReader.prototype.readTables = function() {
+	var contextCount = this.readInt();
+	var semanticContextCount = this.readInt();
+	var executorCount = this.readInt();
+	for (var i = 0; i < contextCount; i++) {
+		this.contexts.push(this.readContext());
+	}
+	for (var j = 0; j < semanticContextCount; j++) {
+		this.semanticContexts.push(this.readSemanticContext());
+	}
+	for (var k = 0; k < executorCount; k++) {
+		this.executors.push(this.readExecutor());
+	}
+};
+
+SnapshotReader.prototype.context = function(id) {
+	return id === -1 ? null : this.contexts[id];
+};
+
+SnapshotReader.prototype.readContext = function() {
+	var length = this.readInt();
+	var parents = [];
+	var returnStates = [];
+	for (var i = 0; i < length; i++) {
+		parents.push(this.context(this.readInt()));
+		returnStates.push(this.readInt());
+	}
+	if (length === 1) {
+		return SingletonPredictionContext.create(parents[0], returnStates[0]);
+	} else {
+		return new ArrayPredictionContext(parents, returnStates);
+	}
+};
+
+SnapshotReader.prototype.readSemanticContext = function() {
+	switch (this.readInt()) {
+	case SEMCTX_NONE:
+		return SemanticContext.NONE;
+	case SEMCTX_PRECEDENCE:
+		return new SemanticContexts.PrecedencePredicate(this.readInt());
+	case SEMCTX_PREDICATE:
+		var ruleIndex = this.readInt();
+		var predIndex = this.readInt();
+		return new SemanticContexts.Predicate(ruleIndex, predIndex, this.readInt() === 1);
+	case SEMCTX_AND:
+		return this.readOperands(SemanticContext.andContext);
+	case SEMCTX_OR:
+		return this.readOperands(SemanticContext.orContext);
+	default:
+		throw "Corrupt DFA snapshot.";
+	}
+};
+
+SnapshotReader.prototype.readOperands = function(combine) {
+	var count = this.readInt();
+	var result = null;
+	for (var i = 0; i < count; i++) {
+		var operand = this.semanticContexts[this.readInt()];
+		result = result === null ? operand : combine(result, operand);
+	}
+	return result;
+};
+
+SnapshotReader.prototype.readExecutor = function() {
+	var count = this.readInt();
+	var actions = [];
+	for (var i = 0; i < count; i++) {
+		var action = this.atn.lexerActions[this.readInt()];
+		var offset = this.readInt();
+		actions.push(offset === -1 ? action : new LexerIndexedCustomAction(offset, action));
+	}
+	return new LexerActionExecutor(actions);
+};
+
+SnapshotReader.prototype.executor = function(id) {
+	return id === -1 ? null : this.executors[id];
+};
+
+SnapshotReader.prototype.readDFA = function() {
+	var precedenceDfa = this.readInt() === 1;
+	var count = this.readInt();
+	var states = [];
+	for (var i = 0; i < count; i++) {
+		states.push(this.readState());
+	}
+	for (var j = 0; j < count; j++) {
+		states[j].edges = this.readEdges(states);
+		states[j].edgePages = this.readPages(states);
+	}
+	var s0;
+	if (precedenceDfa) {
+		s0 = new DFAState(null, new ATNConfigSet());
+		s0.edges = this.readEdges(states) || [];
+		s0.isAcceptState = false;
+		s0.requiresFullContext = false;
+	} else {
+		s0 = this.target(this.readInt(), states);
+	}
+	return { precedenceDfa : precedenceDfa, s0 : s0, states : states };
+};
+
+SnapshotReader.prototype.readState = function() {
+	var stateNumber = this.readInt();
+	var isAcceptState = this.readInt() === 1;
+	var requiresFullContext = this.readInt() === 1;
+	var prediction = this.readInt();
+	var executor = this.executor(this.readInt());
+	var predicateCount = this.readInt();
+	var predicates = null;
+	if (predicateCount >= 0) {
+		predicates = [];
+		for (var i = 0; i < predicateCount; i++) {
+			var pred = this.semanticContexts[this.readInt()];
+			predicates.push(new PredPrediction(pred, this.readInt()));
+		}
+	}
+	var configs = this.readConfigs();
+	var state = new DFAState(stateNumber, configs);
+	state.isAcceptState = isAcceptState;
+	state.requiresFullContext = requiresFullContext;
+	state.prediction = prediction;
+	state.lexerActionExecutor = executor;
+	state.predicates = predicates;
+	return state;
+};
+
+SnapshotReader.prototype.readConfigs = function() {
+	var fullCtx = this.readInt() === 1;
+	var configs = this.isLexer ? new OrderedATNConfigSet() : new ATNConfigSet(fullCtx);
+	configs.fullCtx = fullCtx;
+	var uniqueAlt = this.readInt();
+	var hasSemanticContext = this.readInt() === 1;
+	var dipsIntoOuterContext = this.readInt() === 1;
+	var altCount = this.readInt();
+	var conflictingAlts = null;
+	if (altCount >= 0) {
+		conflictingAlts = new BitSet();
+		for (var i = 0; i < altCount; i++) {
+			conflictingAlts.add(this.readInt());
+		}
+	}
+	var count = this.readInt();
+	for (var j = 0; j < count; j++) {
+		configs.add(this.readConfig());
+	}
+	configs.uniqueAlt = uniqueAlt;
+	configs.conflictingAlts = conflictingAlts;
+	configs.hasSemanticContext = hasSemanticContext;
+	configs.dipsIntoOuterContext = dipsIntoOuterContext;
+	configs.setReadonly(true);
+	return configs;
+};
+
+SnapshotReader.prototype.readConfig = function() {
+	var state = this.atn.states[this.readInt()];
+	var alt = this.readInt();
+	var context = this.context(this.readInt());
+	var semanticContext = this.semanticContexts[this.readInt()];
+	var config;
+	if (this.isLexer) {
+		config = LexerATNConfig.create(state, alt, context);
+		config.semanticContext = semanticContext;
+	} else {
+		config = ATNConfig.create(state, alt, context, semanticContext);
+	}
+	config.reachesIntoOuterContext = this.readInt();
+	if (this.isLexer) {
+		config.passedThroughNonGreedyDecision = this.readInt() === 1;
+		config.lexerActionExecutor = this.executor(this.readInt());
+	}
+	return config;
+};
+
+SnapshotReader.prototype.target = function(id, states) {
+	if (id === NO_STATE) {
+		return null;
+	} else if (id === ERROR_STATE) {
+		return ATNSimulator.ERROR;
+	} else {
+		return states[id];
+	}
+};
+
+SnapshotReader.prototype.readEdges = function(states) {
+	var count = this.readInt();
+	if (count === 0) {
+		return null;
+	}
+	var edges = [];
+	for (var i = 0; i < count; i++) {
+		var symbol = this.readInt();
+		edges[symbol] = this.target(this.readInt(), states);
+	}
+	return edges;
+};
+
+SnapshotReader.prototype.readPages = function(states) {
+	var count = this.readInt();
+	if (count === 0) {
+		return null;
+	}
+	var pages = [];
+	for (var i = 0; i < count; i++) {
+		var index = this.readInt();
+		pages[index] = this.readEdges(states);
+	}
+	return pages;
+};
+
+exports.DFASnapshot = DFASnapshot;
@@ -80,6 +80,12 @@ function DFAState(stateNumber, configs) {
 	// {@code edges[symbol]} points to target of symbol. Shift up by 1 so (-1)
 	// {@link Token//EOF} maps to {@code edges[0]}.
 	this.edges = null;
+	// Lexer edges for symbols above {@link LexerATNSimulator//MAX_DFA_EDGE}.
+	// These are stored in pages of {@link LexerATNSimulator//EDGE_PAGE_SIZE}
+	// targets indexed by {@code symbol >> EDGE_PAGE_BITS}, and a page is only
+	// allocated once one of its symbols has been seen, so sparse use of the
+	// higher code points stays cheap.
+	this.edgePages = null;
 	this.isAcceptState = false;
 	// if accept state, what ttype do we match or alt do we predict?
 	// This is set to {@link ATN//INVALID_ALT_NUMBER} when {@link
@@ -149,9 +155,14 @@ DFAState.prototype.equals = function(other) {
 	}
 };
 
+DFAState.prototype.hashCode = function() {
+	return this.configs.hashCode();
+};
+
 DFAState.prototype.toString = function() {
 	return "" + this.stateNumber + ":" + this.configs +
 			(this.isAcceptState ? "=>" + (this.predicates !== null ? this.predicates : this.prediction) : "");
 };
 
-exports.DFAState = DFAState;
\ No newline at end of file
+exports.DFAState = DFAState;
+exports.PredPrediction = PredPrediction;
\ No newline at end of file
@@ -1 +1,3 @@
 exports.DFA = require('./DFA').DFA;
+exports.DFASnapshot = require('./DFASnapshot').DFASnapshot;
+exports.DFABudget = require('./DFABudget').DFABudget;
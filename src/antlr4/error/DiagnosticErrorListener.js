@@ -49,6 +49,7 @@
 // </ul>
 
 var ErrorListener = require('./ErrorListener').ErrorListener;
+var BitSet = require('./../Utils').BitSet;
 var Interval = require('./../IntervalSet').Interval;
 
 function DiagnosticErrorListener(exactOnly) {
@@ -126,7 +127,7 @@ DiagnosticErrorListener.prototype.getConflictingAlts = function(reportedAlts,
 	if (reportedAlts !== null) {
 		return reportedAlts;
 	}
-	var result = new Set();
+	var result = new BitSet();
 	for (var i = 0; i < configs.items.length; i++) {
 		result.add(configs.items[i].alt);
 	}
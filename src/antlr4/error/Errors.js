@@ -98,7 +98,7 @@ LexerNoViableAltException.prototype.constructor = LexerNoViableAltException;
 LexerNoViableAltException.prototype.toString = function() {
     var symbol = "";
     if (this.startIndex >= 0 && this.startIndex < this.input.size) {
-        symbol = this.input.getText((this.startIndex,this.startIndex));
+        symbol = this.input.getText(this.startIndex, this.startIndex);
     }
     return "LexerNoViableAltException" + symbol;
 };
@@ -109,18 +109,10 @@ LexerNoViableAltException.prototype.toString = function() {
 // in the various paths when the error. Reported by reportNoViableAlternative()
 //
 function NoViableAltException(recognizer, input, startToken, offendingToken, deadEndConfigs, ctx) {
-    if (ctx === null) {
-        ctx = recognizer._ctx;
-    }
-    if (offendingToken === null) {
-        offendingToken = recognizer.getCurrentToken();
-    }
-    if (startToken === null) {
-        startToken = recognizer.getCurrentToken();
-    }
-    if (input === null) {
-        input = recognizer.getInputStream();
-    }
+    ctx = ctx || recognizer._ctx;
+    offendingToken = offendingToken || recognizer.getCurrentToken();
+    startToken = startToken || recognizer.getCurrentToken();
+    input = input || recognizer.getInputStream();
 	RecognitionException.call(this, {message:"", recognizer:recognizer, input:input, ctx:ctx});
     // Which configurations did we try at input.index() that couldn't match
 	// input.LT(1)?//
@@ -180,9 +172,13 @@ FailedPredicateException.prototype.formatMessage = function(predicate, message)
     }
 };
 
-function ParseCancellationException() {
+// Thrown by {@link BailErrorStrategy} to abort the parse at the first syntax
+// error. {@code cause} holds the original {@link RecognitionException}.
+//
+function ParseCancellationException(cause) {
 	Error.call(this);
 	Error.captureStackTrace(this, ParseCancellationException);
+	this.cause = cause || null;
 	return this;
 }
 
@@ -194,3 +190,4 @@ exports.NoViableAltException = NoViableAltException;
 exports.LexerNoViableAltException = LexerNoViableAltException;
 exports.InputMismatchException = InputMismatchException;
 exports.FailedPredicateException = FailedPredicateException;
+exports.ParseCancellationException = ParseCancellationException;
@@ -3,4 +3,7 @@ exports.NoViableAltException = require('./Errors').NoViableAltException;
 exports.LexerNoViableAltException = require('./Errors').LexerNoViableAltException;
 exports.InputMismatchException = require('./Errors').InputMismatchException;
 exports.FailedPredicateException = require('./Errors').FailedPredicateException;
+exports.ParseCancellationException = require('./Errors').ParseCancellationException;
+exports.DefaultErrorStrategy = require('./ErrorStrategy').DefaultErrorStrategy;
+exports.BailErrorStrategy = require('./ErrorStrategy').BailErrorStrategy;
 exports.DiagnosticErrorListener = require('./DiagnosticErrorListener').DiagnosticErrorListener;
\ No newline at end of file
@@ -3,10 +3,16 @@ exports.dfa = require('./dfa');
 exports.tree = require('./tree');
 exports.error = require('./error');
 exports.Token = require('./Token').Token;
+exports.InputStream = require('./InputStream').InputStream;
 exports.FileStream = require('./FileStream').FileStream;
+exports.UnbufferedCharStream = require('./UnbufferedCharStream').UnbufferedCharStream;
+exports.ChunkedCharStream = require('./ChunkedCharStream').ChunkedCharStream;
+exports.LexerStream = require('./LexerStream').LexerStream;
 exports.CommonTokenStream = require('./CommonTokenStream').CommonTokenStream;
+exports.UnbufferedTokenStream = require('./UnbufferedTokenStream').UnbufferedTokenStream;
 exports.Lexer = require('./Lexer').Lexer;
 exports.Parser = require('./Parser').Parser;
+exports.ParsePool = require('./ParsePool').ParsePool;
 var pc = require('./PredictionContext');
 exports.PredictionContextCache = pc.PredictionContextCache;
 exports.ParserRuleContext = require('./ParserRuleContext').ParserRuleContext;
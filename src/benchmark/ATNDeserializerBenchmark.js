@@ -0,0 +1,189 @@
+//
+// [The "BSD license"]
+//  Copyright (c) 2012 Terence Parr
+//  Copyright (c) 2012 Sam Harwell
+//  Copyright (c) 2014 Eric Vergnaud
+//  All rights reserved.
+//
+//  Redistribution and use in source and binary forms, with or without
+//  modification, are permitted provided that the following conditions
+//  are met:
+//
+//  1. Redistributions of source code must retain the above copyright
+//     notice, this list of conditions and the following disclaimer.
+//  2. Redistributions in binary form must reproduce the above copyright
+//     notice, this list of conditions and the following disclaimer in the
+//     documentation and/or other materials provided with the distribution.
+//  3. The name of the author may not be used to endorse or promote products
+//     derived from this software without specific prior written permission.
+//
+//  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+//  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+//  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+//  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+//  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+//  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+//  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+//  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+//  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+//  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+//
+
+// Measures how long it takes to deserialize an ATN, which is most of the cost
+// of requiring a generated recognizer before the first parse.
+//
+// <p>Run with the path of a generated lexer or parser module to measure its
+// serialized ATN, or with {@code -} or no arguments to measure the ATN of a
+// synthetic parser with 1500 rules:</p>
+//
+// <pre>
+// node ATNDeserializerBenchmark.js [MyParser.js] [iterations]
+// </pre>
+//
+// <p>Besides the full deserialization, this measures deserialization with
+// {@link ATNDeserializationOptions//lazyRules}, with and without building
+// every rule afterwards, and the decoding of the serialized string against
+// the former {@code split("").map(adjust)} decoding.</p>
+///
+
+var fs = require('fs');
+var ATNDeserializer = require('./../antlr4/atn/ATNDeserializer').ATNDeserializer;
+var ATNDeserializationOptions = require('./../antlr4/atn/ATNDeserializationOptions').ATNDeserializationOptions;
+
+var lazyOptions = new ATNDeserializationOptions();
+lazyOptions.lazyRules = true;
+
+var UUID = [ 0xAADB, 0x8D7E, 0xAEEF, 0x4415, 0xAD2B, 0x8204, 0xD6CF, 0x042E ];
+
+// Build the serialized ATN of a parser with {@code nrules} rules, where each
+// rule chooses between matching a token, matching a set of tokens any number
+// of times and calling the next rule.
+function syntheticATN(nrules) {
+	var values = [ 3 ];
+	for (var i = UUID.length - 1; i >= 0; i--) {
+		values.push(UUID[i]);
+	}
+	values.push(1, nrules); // parser, max token type
+	// rule r: start, block start, the three alternatives, block end, stop,
+	// the state following the call, then the (set)* loop: entry, block start,
+	// the alternative, block end, loop back and loop end, numbered from 14r
+	values.push(14 * nrules);
+	for (var r = 0; r < nrules; r++) {
+		var s = 14 * r;
+		values.push(2, r, 3, r, s + 5, 1, r, 1, r, 1, r, 8, r, 7, r, 1, r);
+		values.push(10, r, 5, r, s + 11, 1, r, 8, r, 9, r, 12, r, s + 12);
+	}
+	values.push(0, 0); // non-greedy and precedence states
+	values.push(nrules);
+	for (var r = 0; r < nrules; r++) {
+		values.push(14 * r);
+	}
+	values.push(0); // modes
+	values.push(1, 1, 0, 1, nrules); // one set of all the tokens
+	values.push(16 * nrules);
+	for (var r = 0; r < nrules; r++) {
+		var s = 14 * r;
+		values.push(s, s + 1, 1, 0, 0, 0);
+		values.push(s + 1, s + 2, 1, 0, 0, 0);
+		values.push(s + 1, s + 3, 1, 0, 0, 0);
+		values.push(s + 1, s + 4, 1, 0, 0, 0);
+		values.push(s + 2, s + 5, 5, r + 1, 0, 0);
+		values.push(s + 3, s + 8, 1, 0, 0, 0);
+		if (r + 1 < nrules) {
+			values.push(s + 4, s + 7, 3, s + 14, r + 1, 0);
+		} else {
+			values.push(s + 4, s + 7, 1, 0, 0, 0);
+		}
+		values.push(s + 7, s + 5, 1, 0, 0, 0);
+		values.push(s + 5, s + 6, 1, 0, 0, 0);
+		values.push(s + 8, s + 9, 1, 0, 0, 0);
+		values.push(s + 8, s + 13, 1, 0, 0, 0);
+		values.push(s + 9, s + 10, 1, 0, 0, 0);
+		values.push(s + 10, s + 11, 7, 0, 0, 0);
+		values.push(s + 11, s + 12, 1, 0, 0, 0);
+		values.push(s + 12, s + 8, 1, 0, 0, 0);
+		values.push(s + 13, s + 5, 1, 0, 0, 0);
+	}
+	values.push(3 * nrules); // decisions
+	for (var r = 0; r < nrules; r++) {
+		values.push(14 * r + 1, 14 * r + 8, 14 * r + 9);
+	}
+	var chars = [];
+	for (var i = 0; i < values.length; i++) {
+		chars.push(String.fromCharCode(i === 0 ? values[i] : (values[i] + 2) & 0xFFFF));
+	}
+	return chars.join("");
+}
+
+// Read the {@code serializedATN} of a generated recognizer module.
+function moduleATN(path) {
+	var source = fs.readFileSync(path, "utf8");
+	var match = /var serializedATN = (\[[\s\S]*?\]\.join\(""\));/.exec(source);
+	if (match === null) {
+		throw "No serialized ATN found in " + path;
+	}
+	return new Function("return " + match[1] + ";")();
+}
+
+function legacyDecode(data) {
+	var adjust = function(c) {
+		var v = c.charCodeAt(0);
+		return v>1 ? v-2 : -1;
+	};
+	var temp = data.split("").map(adjust);
+	temp[0] = data.charCodeAt(0);
+	return temp;
+}
+
+function decode(data) {
+	var deserializer = new ATNDeserializer();
+	deserializer.reset(data);
+	return deserializer.data;
+}
+
+function deserialize(data) {
+	return new ATNDeserializer().deserialize(data);
+}
+
+function deserializeLazily(data) {
+	return new ATNDeserializer(lazyOptions).deserialize(data);
+}
+
+function deserializeLazilyThenAll(data) {
+	var atn = new ATNDeserializer(lazyOptions).deserialize(data);
+	if (atn.lazyRules !== null) {
+		atn.lazyRules.materializeAll();
+	}
+	return atn;
+}
+
+// Run {@code fn} for {@code iterations} rounds after as many warm-up rounds,
+// and return the mean time per round in milliseconds.
+function measure(fn, data, iterations) {
+	for (var i = 0; i < iterations; i++) {
+		fn(data);
+	}
+	var start = process.hrtime();
+	for (var i = 0; i < iterations; i++) {
+		fn(data);
+	}
+	var elapsed = process.hrtime(start);
+	return (elapsed[0] * 1e3 + elapsed[1] / 1e6) / iterations;
+}
+
+function main(args) {
+	var data = args.length > 0 && args[0] !== "-" ? moduleATN(args[0]) : syntheticATN(1500);
+	var iterations = args.length > 1 ? parseInt(args[1], 10) : 50;
+	var start = process.hrtime();
+	var atn = deserialize(data);
+	var first = process.hrtime(start);
+	console.log("serialized ATN: " + data.length + " chars, " + atn.states.length + " states");
+	console.log("first deserialize: " + (first[0] * 1e3 + first[1] / 1e6).toFixed(3) + " ms");
+	console.log("deserialize:       " + measure(deserialize, data, iterations).toFixed(3) + " ms");
+	console.log("lazy:              " + measure(deserializeLazily, data, iterations).toFixed(3) + " ms");
+	console.log("lazy, then all:    " + measure(deserializeLazilyThenAll, data, iterations).toFixed(3) + " ms");
+	console.log("decode:            " + measure(decode, data, iterations).toFixed(3) + " ms");
+	console.log("legacy decode:     " + measure(legacyDecode, data, iterations).toFixed(3) + " ms");
+}
+
+main(process.argv.slice(2));
@@ -30,13 +30,31 @@
 
 package org.antlr.v4.codegen;
 
+import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.Token;
+import org.antlr.v4.parse.ANTLRParser;
+import org.antlr.v4.parse.ActionSplitter;
+import org.antlr.v4.runtime.misc.IntervalSet;
+import org.antlr.v4.semantics.BlankActionSplitterListener;
+import org.antlr.v4.tool.ErrorType;
+import org.antlr.v4.tool.Grammar;
+import org.antlr.v4.tool.GrammarSemanticsMessage;
+import org.antlr.v4.tool.LabelElementPair;
+import org.antlr.v4.tool.LabelType;
+import org.antlr.v4.tool.LeftRecursiveRule;
+import org.antlr.v4.tool.Rule;
+import org.antlr.v4.tool.ast.ActionAST;
 import org.antlr.v4.tool.ast.GrammarAST;
+import org.stringtemplate.v4.ST;
 import org.stringtemplate.v4.STGroup;
 import org.stringtemplate.v4.StringRenderer;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -59,8 +77,237 @@ public class JavaScriptTarget extends Target {
 	/** Avoid grammar symbols in this set to prevent conflicts in gen'd code. */
 	protected final Set<String> badWords = new HashSet<String>();
 
+	/**
+	 * The system property which sets the default of
+	 * {@link #setRecognizerOnly}, so that it can be enabled from the command
+	 * line with {@code -Dantlr4.javascript.recognizerOnly=true}.
+	 */
+	public static final String RECOGNIZER_ONLY_PROPERTY = "antlr4.javascript.recognizerOnly";
+
+	/**
+	 * The system property which sets the default of
+	 * {@link #setInlinePrediction}, so that it can be disabled from the
+	 * command line with {@code -Dantlr4.javascript.inlinePrediction=false}.
+	 */
+	public static final String INLINE_PREDICTION_PROPERTY = "antlr4.javascript.inlinePrediction";
+
+	/**
+	 * The system property which sets the default of {@link #setLazyRules},
+	 * so that it can be enabled from the command line with
+	 * {@code -Dantlr4.javascript.lazyRules=true}.
+	 */
+	public static final String LAZY_RULES_PROPERTY = "antlr4.javascript.lazyRules";
+
+	/**
+	 * The code generation options of this target, which the templates see as
+	 * the {@code codegenOptions} dictionary.
+	 */
+	protected final Map<String, Object> codegenOptions = new HashMap<String, Object>();
+
+	/**
+	 * The grammar last checked by {@link #checkRecognizerOnly}, and whether
+	 * it passed, so that each grammar is only reported once no matter how
+	 * many files are generated for it.
+	 */
+	protected Grammar recognizerOnlyChecked;
+	protected boolean recognizerOnlyValid;
+
 	public JavaScriptTarget(CodeGenerator gen) {
 		super(gen, "JavaScript");
+		setRecognizerOnly(Boolean.getBoolean(RECOGNIZER_ONLY_PROPERTY));
+		setInlinePrediction(Boolean.parseBoolean(System.getProperty(INLINE_PREDICTION_PROPERTY, "true")));
+		setLazyRules(Boolean.getBoolean(LAZY_RULES_PROPERTY));
+	}
+
+	public boolean isRecognizerOnly() {
+		return Boolean.TRUE.equals(codegenOptions.get("recognizerOnly"));
+	}
+
+	/**
+	 * Generate parsers which only recognize their input. Their rules reuse a
+	 * plain context per invocation depth instead of allocating a context of
+	 * their own type, do not capture start and stop tokens, and never build
+	 * a parse tree. Rule return values, labels, arguments and locals are not
+	 * available to actions, and left-recursive rules are generated as
+	 * usual. Grammars which use them are rejected, see
+	 * {@link #checkRecognizerOnly}.
+	 */
+	public void setRecognizerOnly(boolean recognizerOnly) {
+		codegenOptions.put("recognizerOnly", recognizerOnly);
+	}
+
+	public boolean isInlinePrediction() {
+		return Boolean.TRUE.equals(codegenOptions.get("inlinePrediction"));
+	}
+
+	/**
+	 * Look the alternative of each adaptive decision up in the decision's DFA
+	 * from the generated code, following at most two tokens of lookahead,
+	 * and only call {@code adaptivePredict} when the DFA does not predict an
+	 * alternative by then. This is on by default.
+	 */
+	public void setInlinePrediction(boolean inlinePrediction) {
+		codegenOptions.put("inlinePrediction", inlinePrediction);
+	}
+
+	public boolean isLazyRules() {
+		return Boolean.TRUE.equals(codegenOptions.get("lazyRules"));
+	}
+
+	/**
+	 * Deserialize the ATN of generated recognizers with the runtime's
+	 * {@code lazyRules} option, so that the transitions of each rule are
+	 * only built the first time the rule is used. Other deserialization
+	 * options are copied from {@code ATNDeserializationOptions.defaultOptions}.
+	 */
+	public void setLazyRules(boolean lazyRules) {
+		codegenOptions.put("lazyRules", lazyRules);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p/>
+	 * When generating recognizer-only parsers, nothing is written for a
+	 * grammar which {@link #checkRecognizerOnly} rejects.
+	 */
+	@Override
+	protected void genFile(Grammar g, ST outputFileST, String fileName) {
+		if (isRecognizerOnly() && !g.isLexer() && !checkRecognizerOnly(g)) {
+			return;
+		}
+
+		super.genFile(g, outputFileST, fileName);
+	}
+
+	/**
+	 * Report everything in a parser grammar which relies on the context of
+	 * a rule invocation, which a recognizer-only parser reuses for the next
+	 * invocation at the same depth. That is a label, argument, return value
+	 * or local of a rule, an action reference to a rule or to a rule
+	 * property such as {@code $start}, and a label on or reference to
+	 * another rule from a left-recursive rule, which otherwise keeps its
+	 * own context, see {@link #checkRecognizerOnly(Grammar, LeftRecursiveRule)}.
+	 *
+	 * @return {@code true} if the grammar can be generated as a
+	 * recognizer-only parser
+	 */
+	protected boolean checkRecognizerOnly(Grammar g) {
+		if (recognizerOnlyChecked == g) {
+			return recognizerOnlyValid;
+		}
+
+		int errors = g.tool.errMgr.getNumErrors();
+		for (Rule r : g.rules.values()) {
+			if (r instanceof LeftRecursiveRule) {
+				checkRecognizerOnly(g, (LeftRecursiveRule)r);
+				continue;
+			}
+
+			Token ruleName = ((GrammarAST)r.ast.getChild(0)).getToken();
+			if (r.args != null && r.args.size() > 0) {
+				reportRecognizerOnly(g, ruleName, "arguments", r.name);
+			}
+			if (r.retvals != null && r.retvals.size() > 0) {
+				reportRecognizerOnly(g, ruleName, "return values", r.name);
+			}
+			if (r.locals != null && r.locals.size() > 0) {
+				reportRecognizerOnly(g, ruleName, "locals", r.name);
+			}
+
+			for (List<LabelElementPair> pairs : r.getElementLabelDefs().values()) {
+				for (LabelElementPair pair : pairs) {
+					reportRecognizerOnly(g, pair.label.getToken(), "labels", pair.label.getText());
+				}
+			}
+
+			for (ActionAST action : r.actions) {
+				checkRecognizerOnlyAction(g, true, action);
+			}
+		}
+
+		recognizerOnlyChecked = g;
+		recognizerOnlyValid = g.tool.errMgr.getNumErrors() == errors;
+		return recognizerOnlyValid;
+	}
+
+	/**
+	 * The rule is rewritten before code generation, which leaves the tokens
+	 * of its labels and actions without their positions in the grammar, so
+	 * this looks them up in the rule as it was written instead.
+	 */
+	protected void checkRecognizerOnly(Grammar g, LeftRecursiveRule r) {
+		IntervalSet labels = new IntervalSet(ANTLRParser.ASSIGN, ANTLRParser.PLUS_ASSIGN);
+		for (GrammarAST assign : r.getOriginalAST().getNodesWithType(labels)) {
+			GrammarAST label = (GrammarAST)assign.getChild(0);
+			GrammarAST element = (GrammarAST)assign.getChild(1);
+			if (element.getType() == ANTLRParser.RULE_REF && isPooled(g, element.getText())) {
+				reportRecognizerOnly(g, label.getToken(), "labels", label.getText());
+			}
+		}
+
+		IntervalSet actions = new IntervalSet(ANTLRParser.ACTION, ANTLRParser.SEMPRED);
+		for (GrammarAST action : r.getOriginalAST().getNodesWithType(actions)) {
+			checkRecognizerOnlyAction(g, false, action);
+		}
+	}
+
+	protected void checkRecognizerOnlyAction(final Grammar g, final boolean pooled, final GrammarAST action) {
+		BlankActionSplitterListener listener = new BlankActionSplitterListener() {
+			@Override
+			public void attr(String expr, Token x) {
+				check(expr, x.getText());
+			}
+
+			@Override
+			public void qualifiedAttr(String expr, Token x, Token y) {
+				check(expr, x.getText());
+			}
+
+			@Override
+			public void setAttr(String expr, Token x, Token rhs) {
+				check(expr, x.getText());
+			}
+
+			private void check(String expr, String name) {
+				boolean property = Rule.predefinedRulePropertiesDict.get(name) != null;
+				if (isPooled(g, name) || (pooled && property)) {
+					reportRecognizerOnly(g, action.getToken(), "rule attributes", expr.trim());
+				}
+			}
+		};
+
+		new ActionSplitter(new ANTLRStringStream(action.getText()), listener).getActionTokens();
+	}
+
+	protected boolean isPooled(Grammar g, String ruleName) {
+		Rule r = g.getRule(ruleName);
+		return r != null && !(r instanceof LeftRecursiveRule);
+	}
+
+	protected void reportRecognizerOnly(Grammar g, Token token, String what, String name) {
+		g.tool.errMgr.emit(ErrorType.ATTRIBUTE_IN_LEXER_ACTION,
+						   new RecognizerOnlyMessage(g.fileName, token, what, name));
+	}
+
+	/**
+	 * Reports a grammar element which is not available in a recognizer-only
+	 * parser. There is no error type of its own for this target option, so
+	 * it borrows the closest one and replaces its message.
+	 */
+	protected static class RecognizerOnlyMessage extends GrammarSemanticsMessage {
+
+		public RecognizerOnlyMessage(String fileName, Token offendingToken, Object... args) {
+			super(ErrorType.ATTRIBUTE_IN_LEXER_ACTION, fileName, offendingToken, args);
+		}
+
+		@Override
+		public ST getMessageTemplate(boolean verbose) {
+			ST messageST = new ST("<what> are not available in recognizer-only parsers: <name>");
+			messageST.add("what", getArgs()[0]);
+			messageST.add("name", getArgs()[1]);
+			return messageST;
+		}
+
 	}
 
     @Override
@@ -185,6 +432,17 @@ public class JavaScriptTarget extends Target {
 		return 2 ^ 31;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p/>
+	 * JavaScript bitwise operators work on 32-bit integers, so inline set
+	 * tests use 32-bit words.
+	 */
+	@Override
+	public int getInlineTestSetWordSize() {
+		return 32;
+	}
+
 	@Override
 	protected boolean visibleGrammarSymbolCausesIssueInGeneratedCode(GrammarAST idNode) {
 		return getBadWords().contains(idNode.getText());
@@ -194,6 +452,7 @@ public class JavaScriptTarget extends Target {
 	protected STGroup loadTemplates() {
 		STGroup result = super.loadTemplates();
 		result.registerRenderer(String.class, new JavaStringRenderer(), true);
+		result.defineDictionary("codegenOptions", codegenOptions);
 		return result;
 	}
 
@@ -0,0 +1,251 @@
+/*
+ * [The "BSD license"]
+ *  Copyright (c) 2012 Terence Parr
+ *  Copyright (c) 2012 Sam Harwell
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions
+ *  are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.antlr.v4.js.test;
+
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.ActionTransition;
+import org.antlr.v4.runtime.atn.BlockEndState;
+import org.antlr.v4.runtime.atn.BlockStartState;
+import org.antlr.v4.runtime.atn.DecisionState;
+import org.antlr.v4.runtime.atn.LexerAction;
+import org.antlr.v4.runtime.atn.LexerCustomAction;
+import org.antlr.v4.runtime.atn.LoopEndState;
+import org.antlr.v4.runtime.atn.PlusBlockStartState;
+import org.antlr.v4.runtime.atn.PrecedencePredicateTransition;
+import org.antlr.v4.runtime.atn.PredicateTransition;
+import org.antlr.v4.runtime.atn.RuleStartState;
+import org.antlr.v4.runtime.atn.RuleTransition;
+import org.antlr.v4.runtime.atn.StarLoopEntryState;
+import org.antlr.v4.runtime.atn.Transition;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.IntervalSet;
+import org.antlr.v4.tool.Grammar;
+import org.antlr.v4.tool.LexerGrammar;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Deserializes the ATN of a generated recognizer and compares it, state by
+ * state and transition by transition, with the ATN the Java runtime reads
+ * back from the same serialization.
+ */
+public class TestATNDeserializer extends BaseTest {
+	@Test public void testLexerATN() throws Exception {
+		String grammar =
+			"lexer grammar L;\n" +
+			"A : 'a' ('b' | 'c')* 'd'+ ;\n" +
+			"B : [\\uFFF0-\\uFFFF]+ ;\n" +
+			"C : ~[a\\uFFFF] ;\n" +
+			"D : '{' .*? '}' {} ;\n" +
+			"E : '<' -> pushMode(M) ;\n" +
+			"WS : ' ' -> skip ;\n" +
+			"mode M;\n" +
+			"F : '>' -> popMode ;\n" +
+			"G : [a-z]+ -> type(A) ;\n";
+		boolean success = rawGenerateAndBuildRecognizer("L.g4", grammar, null, "L", "-no-listener");
+		assertTrue(success);
+		String expecting = dump(createATN(new LexerGrammar(grammar), true));
+		assertTrue(expecting.contains("SetTransition 65520..65535"));
+		assertTrue(expecting.contains("NotSetTransition 97..97,65535..65535"));
+		assertTrue(expecting.contains("LoopEndState"));
+		String found = execDump("var L = require('./L').L;\n" +
+								"var atn = new L(null)._interp.atn;\n");
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	@Test public void testParserATN() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : (ID | INT)+ {} x* EOF ;\n" +
+			"x : ~(ID | INT) | ID {true}? | e ;\n" +
+			"e : e '*' e | '(' e ')' | INT ;\n" +
+			"ID : 'a'..'z'+ ;\n" +
+			"INT : '0'..'9'+ ;\n" +
+			"OP : '+' | '-' ;\n" +
+			"WS : (' '|'\\n')+ -> skip ;\n";
+		boolean success = rawGenerateAndBuildRecognizer("T.g4", grammar, "TParser", "TLexer", "-no-listener");
+		assertTrue(success);
+		String expecting = dump(createATN(new Grammar(grammar), true));
+		assertTrue(expecting.contains("ActionTransition rule 0 action -1"));
+		assertTrue(expecting.contains("PrecedencePredicateTransition"));
+		assertTrue(expecting.contains("precedenceDecision"));
+		String found = execDump("var TParser = require('./TParser').TParser;\n" +
+								"var atn = new TParser(null).atn;\n");
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/** Lists the ATN the way the script written by {@link #execDump} does. */
+	protected String dump(ATN atn) {
+		StringBuilder buf = new StringBuilder();
+		buf.append("type ").append(atn.grammarType.ordinal()).append(" maxTokenType ").append(atn.maxTokenType).append('\n');
+		for (ATNState s : atn.states) {
+			if (s == null) {
+				buf.append("null\n");
+				continue;
+			}
+			buf.append(s.stateNumber).append(' ').append(s.getClass().getSimpleName()).append(" rule ").append(s.ruleIndex);
+			if (s instanceof DecisionState) buf.append(" decision ").append(((DecisionState)s).decision);
+			if (s instanceof DecisionState && ((DecisionState)s).nonGreedy) buf.append(" nonGreedy");
+			if (s instanceof BlockStartState) buf.append(" end ").append(((BlockStartState)s).endState.stateNumber);
+			if (s instanceof BlockEndState) buf.append(" start ").append(((BlockEndState)s).startState.stateNumber);
+			if (s instanceof LoopEndState) buf.append(" loopBack ").append(((LoopEndState)s).loopBackState.stateNumber);
+			if (s instanceof PlusBlockStartState) buf.append(" loopBack ").append(((PlusBlockStartState)s).loopBackState.stateNumber);
+			if (s instanceof StarLoopEntryState) buf.append(" loopBack ").append(((StarLoopEntryState)s).loopBackState.stateNumber);
+			if (s instanceof StarLoopEntryState && ((StarLoopEntryState)s).precedenceRuleDecision) buf.append(" precedenceDecision");
+			if (s instanceof RuleStartState) buf.append(" stop ").append(((RuleStartState)s).stopState.stateNumber);
+			if (s instanceof RuleStartState && ((RuleStartState)s).isPrecedenceRule) buf.append(" precedenceRule");
+			buf.append('\n');
+			for (int i = 0; i < s.getNumberOfTransitions(); i++) {
+				Transition t = s.transition(i);
+				buf.append("  -> ").append(t.target.stateNumber).append(' ').append(t.getClass().getSimpleName());
+				IntervalSet label = t.label();
+				if (label != null) {
+					buf.append(' ');
+					for (int j = 0; j < label.getIntervals().size(); j++) {
+						Interval interval = label.getIntervals().get(j);
+						buf.append(j > 0 ? "," : "").append(interval.a).append("..").append(interval.b);
+					}
+				}
+				if (t instanceof RuleTransition) {
+					RuleTransition rt = (RuleTransition)t;
+					buf.append(" rule ").append(rt.ruleIndex).append(" follow ").append(rt.followState.stateNumber).append(" precedence ").append(rt.precedence);
+				}
+				if (t instanceof PredicateTransition) {
+					PredicateTransition pt = (PredicateTransition)t;
+					buf.append(" rule ").append(pt.ruleIndex).append(" pred ").append(pt.predIndex).append(" ctx ").append(pt.isCtxDependent);
+				}
+				if (t instanceof PrecedencePredicateTransition) {
+					buf.append(" precedence ").append(((PrecedencePredicateTransition)t).precedence);
+				}
+				if (t instanceof ActionTransition) {
+					ActionTransition at = (ActionTransition)t;
+					// the Java runtime reads the -1 of parser actions back as 0xFFFF
+					int actionIndex = at.actionIndex == 0xFFFF ? -1 : at.actionIndex;
+					buf.append(" rule ").append(at.ruleIndex).append(" action ").append(actionIndex).append(" ctx ").append(at.isCtxDependent);
+				}
+				buf.append('\n');
+			}
+		}
+		for (DecisionState s : atn.decisionToState) {
+			buf.append("decision ").append(s.decision).append(" state ").append(s.stateNumber).append('\n');
+		}
+		for (int i = 0; i < atn.ruleToStartState.length; i++) {
+			buf.append("rule ").append(i).append(" start ").append(atn.ruleToStartState[i].stateNumber)
+			   .append(" stop ").append(atn.ruleToStopState[i].stateNumber);
+			if (atn.ruleToTokenType != null) buf.append(" token ").append(atn.ruleToTokenType[i]);
+			buf.append('\n');
+		}
+		for (int i = 0; i < atn.modeToStartState.size(); i++) {
+			buf.append("mode ").append(i).append(" start ").append(atn.modeToStartState.get(i).stateNumber).append('\n');
+		}
+		if (atn.lexerActions != null) {
+			for (LexerAction action : atn.lexerActions) {
+				buf.append("lexerAction ").append(action.getActionType().ordinal());
+				if (action instanceof LexerCustomAction) {
+					LexerCustomAction custom = (LexerCustomAction)action;
+					buf.append(" rule ").append(custom.getRuleIndex()).append(" action ").append(custom.getActionIndex());
+				}
+				buf.append('\n');
+			}
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Runs {@code setUp}, which must declare {@code atn}, and prints the
+	 * listing of {@link #dump} for it.
+	 */
+	protected String execDump(String setUp) throws Exception {
+		writeFile(tmpdir, "input", "");
+		writeFile(tmpdir, "Test.js",
+			"var antlr4 = require('antlr4');\n" +
+			"var states = require('antlr4/atn/ATNState');\n" +
+			"var transitions = require('antlr4/atn/Transition');\n" +
+			"var LexerCustomAction = require('antlr4/atn/LexerAction').LexerCustomAction;\n" +
+			setUp +
+			"var lines = ['type ' + atn.grammarType + ' maxTokenType ' + atn.maxTokenType];\n" +
+			"atn.states.forEach(function(s) {\n" +
+			"    if (s === null) { lines.push('null'); return; }\n" +
+			"    var line = s.stateNumber + ' ' + s.constructor.name + ' rule ' + s.ruleIndex;\n" +
+			"    if (s instanceof states.DecisionState) { line += ' decision ' + s.decision; }\n" +
+			"    if (s instanceof states.DecisionState && s.nonGreedy) { line += ' nonGreedy'; }\n" +
+			"    if (s instanceof states.BlockStartState) { line += ' end ' + s.endState.stateNumber; }\n" +
+			"    if (s instanceof states.BlockEndState) { line += ' start ' + s.startState.stateNumber; }\n" +
+			"    if (s instanceof states.LoopEndState) { line += ' loopBack ' + s.loopBackState.stateNumber; }\n" +
+			"    if (s instanceof states.PlusBlockStartState) { line += ' loopBack ' + s.loopBackState.stateNumber; }\n" +
+			"    if (s instanceof states.StarLoopEntryState) { line += ' loopBack ' + s.loopBackState.stateNumber; }\n" +
+			"    if (s instanceof states.StarLoopEntryState && s.precedenceRuleDecision) { line += ' precedenceDecision'; }\n" +
+			"    if (s instanceof states.RuleStartState) { line += ' stop ' + s.stopState.stateNumber; }\n" +
+			"    if (s instanceof states.RuleStartState && s.isPrecedenceRule) { line += ' precedenceRule'; }\n" +
+			"    lines.push(line);\n" +
+			"    s.transitions.forEach(function(t) {\n" +
+			"        var line = '  -> ' + t.target.stateNumber + ' ' + t.constructor.name;\n" +
+			"        if (t.label !== null) {\n" +
+			"            line += ' ' + t.label.intervals.map(function(i) { return i.start + '..' + (i.stop - 1); }).join(',');\n" +
+			"        }\n" +
+			"        if (t instanceof transitions.RuleTransition) {\n" +
+			"            line += ' rule ' + t.ruleIndex + ' follow ' + t.followState.stateNumber + ' precedence ' + t.precedence;\n" +
+			"        }\n" +
+			"        if (t instanceof transitions.PredicateTransition) {\n" +
+			"            line += ' rule ' + t.ruleIndex + ' pred ' + t.predIndex + ' ctx ' + t.isCtxDependent;\n" +
+			"        }\n" +
+			"        if (t instanceof transitions.PrecedencePredicateTransition) { line += ' precedence ' + t.precedence; }\n" +
+			"        if (t instanceof transitions.ActionTransition) {\n" +
+			"            line += ' rule ' + t.ruleIndex + ' action ' + t.actionIndex + ' ctx ' + t.isCtxDependent;\n" +
+			"        }\n" +
+			"        lines.push(line);\n" +
+			"    });\n" +
+			"});\n" +
+			"atn.decisionToState.forEach(function(s) { lines.push('decision ' + s.decision + ' state ' + s.stateNumber); });\n" +
+			"atn.ruleToStartState.forEach(function(s, i) {\n" +
+			"    var line = 'rule ' + i + ' start ' + s.stateNumber + ' stop ' + atn.ruleToStopState[i].stateNumber;\n" +
+			"    if (atn.ruleToTokenType !== null) { line += ' token ' + atn.ruleToTokenType[i]; }\n" +
+			"    lines.push(line);\n" +
+			"});\n" +
+			"atn.modeToStartState.forEach(function(s, i) { lines.push('mode ' + i + ' start ' + s.stateNumber); });\n" +
+			"if (atn.lexerActions !== null) {\n" +
+			"    atn.lexerActions.forEach(function(action) {\n" +
+			"        var line = 'lexerAction ' + action.actionType;\n" +
+			"        if (action instanceof LexerCustomAction) { line += ' rule ' + action.ruleIndex + ' action ' + action.actionIndex; }\n" +
+			"        lines.push(line);\n" +
+			"    });\n" +
+			"}\n" +
+			"console.log(lines.join('\\n'));\n");
+		stderrDuringParse = null;
+		return execRecognizer();
+	}
+}
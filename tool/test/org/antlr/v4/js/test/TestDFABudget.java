@@ -0,0 +1,263 @@
+/*
+ * [The "BSD license"]
+ *  Copyright (c) 2012 Terence Parr
+ *  Copyright (c) 2012 Sam Harwell
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions
+ *  are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.antlr.v4.js.test;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestDFABudget extends BaseTest {
+	/**
+	 * {@code stat} needs up to four tokens of lookahead, and {@code e} is
+	 * left recursive, so its loop decision has a precedence DFA.
+	 */
+	protected static final String GRAMMAR =
+		"grammar T;\n" +
+		"s : stat+ EOF ;\n" +
+		"stat : ID '=' e ';' | ID '=' ID '(' ')' ';' | ID ID ';' ;\n" +
+		"e : e '*' e | e '+' e | INT | ID | '(' e ')' ;\n" +
+		"ID : 'a'..'z'+ ;\n" +
+		"INT : '0'..'9'+ ;\n" +
+		"WS : (' '|'\\n')+ -> skip ;\n";
+
+	protected static final String INPUT = "x = y; x = y(); a b; x = 1 + 2 * 3; x = (a + b) * c;";
+
+	protected static final String TREE =
+		"(s (stat x = (e y) ;) (stat x = y ( ) ;) (stat a b ;)" +
+		" (stat x = (e (e 1) + (e (e 2) * (e 3))) ;)" +
+		" (stat x = (e (e ( (e (e a) + (e b)) )) * (e c)) ;) <EOF>)";
+
+	@Test public void testNoBudget() throws Exception {
+		String found = execBudget(
+			"print(parse(INPUT) === TREE);\n" +
+			"sizes();\n");
+		String expecting =
+			"true\n" +
+			"decision 1: 9 states, 0 evictions of 0\n" +
+			"decision 3: 3 states, 0 evictions of 0\n" +
+			"decision 4 (precedence): 7 states, 0 evictions of 0\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * Watching counts the states the DFAs already hold, a second budget
+	 * takes the DFAs over from the first, and evicting a DFA updates the
+	 * counters.
+	 */
+	@Test public void testWatch() throws Exception {
+		String found = execBudget(
+			"parse(INPUT);\n" +
+			"var first = new DFABudget().watch(parserDFA);\n" +
+			"print('first: ' + first.totalStates);\n" +
+			"var second = new DFABudget().watch(parserDFA);\n" +
+			"print('first: ' + first.totalStates + ', second: ' + second.totalStates);\n" +
+			"parserDFA[1].evict();\n" +
+			"print('second: ' + second.totalStates + ', evictions: ' + second.getEvictions() + ' of ' + second.getEvictedStates());\n" +
+			"print(parse(INPUT) === TREE);\n" +
+			"print('second: ' + second.totalStates);\n" +
+			"sizes();\n");
+		String expecting =
+			"first: 19\n" +
+			"first: 0, second: 19\n" +
+			"second: 10, evictions: 1 of 9\n" +
+			"true\n" +
+			"second: 19\n" +
+			"decision 1: 9 states, 1 evictions of 9\n" +
+			"decision 3: 3 states, 0 evictions of 0\n" +
+			"decision 4 (precedence): 7 states, 0 evictions of 0\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	@Test public void testStatesPerDFA() throws Exception {
+		String found = execBudget(
+			"var budget = new DFABudget(4).watch(parserDFA);\n" +
+			"print(parse(INPUT) === TREE);\n" +
+			"print(parse(INPUT) === TREE);\n" +
+			"print('most: ' + most + ', total: ' + budget.totalStates + ', evictions: ' + budget.getEvictions() + ' of ' + budget.getEvictedStates());\n" +
+			"sizes();\n");
+		String expecting =
+			"true\n" +
+			"true\n" +
+			"most: 4, total: 6, evictions: 18 of 72\n" +
+			"decision 1: 1 states, 10 evictions of 40\n" +
+			"decision 3: 3 states, 0 evictions of 0\n" +
+			"decision 4 (precedence): 2 states, 8 evictions of 32\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * When all the DFAs together are full, the largest one is evicted.
+	 */
+	@Test public void testTotalStates() throws Exception {
+		String found = execBudget(
+			"var budget = new DFABudget(0, 10).watch(parserDFA);\n" +
+			"print(parse(INPUT) === TREE);\n" +
+			"print(parse(INPUT) === TREE);\n" +
+			"print('most: ' + mostTotal + ', total: ' + budget.totalStates + ', evictions: ' + budget.getEvictions() + ' of ' + budget.getEvictedStates());\n" +
+			"sizes();\n");
+		String expecting =
+			"true\n" +
+			"true\n" +
+			"most: 10, total: 10, evictions: 8 of 46\n" +
+			"decision 1: 0 states, 5 evictions of 27\n" +
+			"decision 3: 3 states, 0 evictions of 0\n" +
+			"decision 4 (precedence): 7 states, 3 evictions of 19\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * Evicting a precedence DFA keeps it a precedence DFA, with a new empty
+	 * start state for the precedence levels.
+	 */
+	@Test public void testPrecedenceDFA() throws Exception {
+		String found = execBudget(
+			"var dfa = parserDFA[4];\n" +
+			"parse(INPUT);\n" +
+			"var s0 = dfa.s0;\n" +
+			"print('levels: ' + s0.edges.filter(function(s) { return s !== undefined; }).length);\n" +
+			"dfa.evict();\n" +
+			"print('precedence: ' + dfa.precedenceDfa + ', new start state: ' + (dfa.s0 !== s0) + ', levels: ' + dfa.s0.edges.length);\n" +
+			"new DFABudget(2).watch([dfa]);\n" +
+			"print(parse(INPUT) === TREE);\n" +
+			"print(parse('x = 1 * 2 + 3 * 4 + (5 + 6) * 7;'));\n" +
+			"sizes();\n");
+		String expecting =
+			"levels: 3\n" +
+			"precedence: true, new start state: true, levels: 0\n" +
+			"true\n" +
+			"(s (stat x = (e (e (e (e 1) * (e 2)) + (e (e 3) * (e 4))) + (e (e ( (e (e 5) + (e 6)) )) * (e 7))) ;) <EOF>)\n" +
+			"decision 1: 9 states, 0 evictions of 0\n" +
+			"decision 3: 3 states, 0 evictions of 0\n" +
+			"decision 4 (precedence): 2 states, 21 evictions of 47\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * With room for a single state, every state added evicts the DFA,
+	 * including the states a prediction in progress is walking, and the
+	 * parses must still be right.
+	 */
+	@Test public void testEvictionDuringPrediction() throws Exception {
+		String found = execBudget(
+			"var budget = new DFABudget(1, 1).watch(parserDFA);\n" +
+			"print(parse(INPUT) === TREE);\n" +
+			"print(parse(INPUT) === TREE);\n" +
+			"print('most: ' + most + ', total: ' + budget.totalStates + ', evictions: ' + budget.getEvictions() + ' of ' + budget.getEvictedStates());\n" +
+			"sizes();\n");
+		String expecting =
+			"true\n" +
+			"true\n" +
+			"most: 1, total: 1, evictions: 105 of 105\n" +
+			"decision 1: 0 states, 42 evictions of 42\n" +
+			"decision 3: 0 states, 16 evictions of 16\n" +
+			"decision 4 (precedence): 1 states, 47 evictions of 47\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	@Test public void testLexerDFA() throws Exception {
+		String found = execBudget(
+			"var budget = new DFABudget(2).watch(lexerDFA);\n" +
+			"print(parse(INPUT) === TREE);\n" +
+			"print(parse(INPUT) === TREE);\n" +
+			"print('lexer: ' + lexerDFA[0].states.length + ' states, ' + budget.getEvictions() + ' evictions of ' + budget.getEvictedStates());\n");
+		String expecting =
+			"true\n" +
+			"true\n" +
+			"lexer: 1 states, 103 evictions of 206\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * Generates T and runs {@code script} with helpers: {@code parse(input)}
+	 * parses {@code input} with a new parser and returns the tree,
+	 * {@code sizes()} prints the states and eviction counts of every parser
+	 * DFA which was used, {@code parserDFA} and {@code lexerDFA} are the DFAs
+	 * shared by the generated recognizers, and {@code most} and
+	 * {@code mostTotal} are the most states held by one parser DFA and by all
+	 * of them at once.
+	 */
+	protected String execBudget(String script) throws Exception {
+		boolean success = rawGenerateAndBuildRecognizer("T.g4", GRAMMAR, "TParser", "TLexer", "-no-listener");
+		assertTrue(success);
+		writeFile(tmpdir, "input", "");
+		writeFile(tmpdir, "Test.js",
+			"var antlr4 = require('antlr4');\n" +
+			"var TLexer = require('./TLexer').TLexer;\n" +
+			"var TParser = require('./TParser').TParser;\n" +
+			"var DFABudget = antlr4.dfa.DFABudget;\n" +
+			"var INPUT = '" + INPUT + "';\n" +
+			"var TREE = '" + TREE + "';\n" +
+			"var print = console.log;\n" +
+			"function tree(t, parser) {\n" +
+			"    if (t.symbol !== undefined) {\n" +
+			"        return t.symbol.type === antlr4.Token.EOF ? '<EOF>' : t.symbol.text;\n" +
+			"    }\n" +
+			"    var s = parser.ruleNames[t.ruleIndex];\n" +
+			"    return t.children === null ? s : '(' + s + ' ' + t.children.map(function(c) { return tree(c, parser); }).join(' ') + ')';\n" +
+			"}\n" +
+			"function parse(input) {\n" +
+			"    var parser = new TParser(new antlr4.CommonTokenStream(new TLexer(new antlr4.InputStream(input))));\n" +
+			"    parser.buildParseTrees = true;\n" +
+			"    return tree(parser.s(), parser);\n" +
+			"}\n" +
+			"var parserDFA = new TParser(null)._interp.decisionToDFA;\n" +
+			"var lexerDFA = new TLexer(null)._interp.decisionToDFA;\n" +
+			"var most = 0, mostTotal = 0;\n" +
+			"parserDFA.forEach(function(dfa) {\n" +
+			"    var add = dfa.states.add;\n" +
+			"    dfa.states.add = function(state) {\n" +
+			"        var added = add.call(this, state);\n" +
+			"        most = Math.max(most, dfa.states.length);\n" +
+			"        mostTotal = Math.max(mostTotal, parserDFA.reduce(function(n, d) { return n + d.states.length; }, 0));\n" +
+			"        return added;\n" +
+			"    };\n" +
+			"});\n" +
+			"function sizes() {\n" +
+			"    parserDFA.forEach(function(dfa) {\n" +
+			"        if (dfa.states.length > 0 || dfa.evictions > 0) {\n" +
+			"            print('decision ' + dfa.decision + (dfa.precedenceDfa ? ' (precedence)' : '') + ': ' +\n" +
+			"                dfa.states.length + ' states, ' + dfa.evictions + ' evictions of ' + dfa.evictedStates);\n" +
+			"        }\n" +
+			"    });\n" +
+			"}\n" +
+			script);
+		stderrDuringParse = null;
+		return execRecognizer();
+	}
+}
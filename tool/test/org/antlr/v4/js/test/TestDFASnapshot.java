@@ -0,0 +1,240 @@
+/*
+ * [The "BSD license"]
+ *  Copyright (c) 2012 Terence Parr
+ *  Copyright (c) 2012 Sam Harwell
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions
+ *  are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.antlr.v4.js.test;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Warms the DFA of a recognizer, takes a DFASnapshot of it and loads the
+ * snapshot into a fresh copy of the generated module, as a new process
+ * would. The loaded DFA must serialize to the same snapshot, and parsing
+ * the same input again must reuse it rather than add states.
+ */
+public class TestDFASnapshot extends BaseTest {
+	/**
+	 * The first two alternatives of stat conflict and are told apart by the
+	 * predicate, so their accept state carries predicates, and e is a
+	 * precedence DFA.
+	 */
+	@Test public void testParserRoundTrip() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : stat+ EOF ;\n" +
+			"stat : {this.p}? ID '=' e ';' {console.log('pred');}\n" +
+			"     | ID '=' e ';' {console.log('plain');}\n" +
+			"     | e ';' {console.log('expr');}\n" +
+			"     ;\n" +
+			"e : e '*' e | e '+' e | INT | ID ;\n" +
+			"ID : 'a'..'z'+ ;\n" +
+			"INT : '0'..'9'+ ;\n" +
+			"WS : (' '|'\\n')+ -> skip ;\n";
+		String found = execRoundTrip(grammar, "TParser", "TLexer",
+			"function startStates(dfas) {\n" +
+			"    return dfas.filter(function(d) { return d.precedenceDfa; }).map(function(d) {\n" +
+			"        return d.s0.edges.filter(function(e) { return e; }).length;\n" +
+			"    }).join(' ');\n" +
+			"}\n" +
+			"function parse(modules, p) {\n" +
+			"    var lexer = new modules.TLexer(new antlr4.InputStream('x = 1 + 2 * y; 3 * 4 + z; y = 5;'));\n" +
+			"    var parser = new modules.TParser(new antlr4.CommonTokenStream(lexer));\n" +
+			"    parser.p = p;\n" +
+			"    parser.s();\n" +
+			"    return parser;\n" +
+			"}\n" +
+			"var warm = parse(load(), true);\n" +
+			"var dfas = warm._interp.decisionToDFA;\n" +
+			"console.log('precedence start states: ' + startStates(dfas));\n" +
+			"console.log('predicated states: ' + dfas.reduce(function(n, d) {\n" +
+			"    return n + d.states.values().filter(function(s) { return s.predicates !== null; }).length;\n" +
+			"}, 0));\n" +
+			"roundTrip(warm, function(modules) {\n" +
+			"    console.log('loaded start states: ' + startStates(new modules.TParser(null)._interp.decisionToDFA));\n" +
+			"    return parse(modules, false);\n" +
+			"});\n");
+		String expecting =
+			"pred\n" +
+			"expr\n" +
+			"pred\n" +
+			"precedence start states: 3\n" +
+			"predicated states: 4\n" +
+			"fresh states: 0\n" +
+			"loaded: true\n" +
+			"same snapshot: true\n" +
+			"loaded start states: 3\n" +
+			"plain\n" +
+			"expr\n" +
+			"plain\n" +
+			"states added: 0\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * The accept states of ID and NUM have lexer action executors, NUM's
+	 * with an action indexed by its position in the token, which only sees
+	 * the digits before the '.'.
+	 */
+	@Test public void testLexerRoundTrip() throws Exception {
+		String grammar =
+			"lexer grammar L;\n" +
+			"ID : 'a'..'z'+ {console.log('id');} ;\n" +
+			"NUM : '0'..'9'+ {console.log('num ' + this.text);} ('.' '0'..'9'+)? ;\n" +
+			"OPEN : '<' -> pushMode(TAG) ;\n" +
+			"WS : ' '+ -> skip ;\n" +
+			"mode TAG;\n" +
+			"NAME : 'a'..'z'+ -> type(ID) ;\n" +
+			"CLOSE : '>' -> popMode ;\n";
+		String found = execRoundTrip(grammar, null, "L",
+			"function lex(modules) {\n" +
+			"    var lexer = new modules.L(new antlr4.InputStream('ab 1.5 <cd> 7'));\n" +
+			"    console.log(lexer.getAllTokens().map(function(t) { return t.type; }).join(' '));\n" +
+			"    return lexer;\n" +
+			"}\n" +
+			"var warm = lex(load());\n" +
+			"console.log('executors: ' + warm._interp.decisionToDFA[0].states.values().filter(function(s) {\n" +
+			"    return s.lexerActionExecutor !== null;\n" +
+			"}).length);\n" +
+			"roundTrip(warm, lex);\n");
+		String expecting =
+			"id\n" +
+			"num 1\n" +
+			"num 7\n" +
+			"1 2 3 1 5 2\n" +
+			"executors: 5\n" +
+			"fresh states: 0\n" +
+			"loaded: true\n" +
+			"same snapshot: true\n" +
+			"id\n" +
+			"num 1\n" +
+			"num 7\n" +
+			"1 2 3 1 5 2\n" +
+			"states added: 0\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * A snapshot taken from another ATN, here with one word of its UUID or
+	 * its checksum changed, or taken from the lexer, is not loaded.
+	 */
+	@Test public void testMismatchedSnapshotRejected() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : (ID INT | ID ID)+ EOF ;\n" +
+			"ID : 'a'..'z'+ ;\n" +
+			"INT : '0'..'9'+ ;\n" +
+			"WS : ' '+ -> skip ;\n";
+		String found = execRoundTrip(grammar, "TParser", "TLexer",
+			"var lexer = new TLexer(new antlr4.InputStream('a 1 b c'));\n" +
+			"var parser = new TParser(new antlr4.CommonTokenStream(lexer));\n" +
+			"parser.s();\n" +
+			"console.log('warm states: ' + states(parser));\n" +
+			"var snapshot = DFASnapshot.serialize(parser.atn, parser._interp.decisionToDFA);\n" +
+			"function tryLoad(what, buffer) {\n" +
+			"    var fresh = new (load().TParser)(null);\n" +
+			"    var loaded = DFASnapshot.deserialize(fresh.atn, fresh._interp.decisionToDFA, buffer);\n" +
+			"    console.log(what + ': ' + loaded + ', states: ' + states(fresh));\n" +
+			"}\n" +
+			"function changed(word) {\n" +
+			"    var copy = Buffer.from(snapshot);\n" +
+			"    copy.writeInt32LE(copy.readInt32LE(4 * word) ^ 1, 4 * word);\n" +
+			"    return copy;\n" +
+			"}\n" +
+			"tryLoad('uuid', changed(2));\n" +
+			"tryLoad('uuid', changed(5));\n" +
+			"tryLoad('checksum', changed(6));\n" +
+			"tryLoad('lexer', DFASnapshot.serialize(lexer._interp.atn, lexer._interp.decisionToDFA));\n" +
+			"tryLoad('original', snapshot);\n");
+		String expecting =
+			"warm states: 4\n" +
+			"uuid: false, states: 0\n" +
+			"uuid: false, states: 0\n" +
+			"checksum: false, states: 0\n" +
+			"lexer: false, states: 0\n" +
+			"original: true, states: 4\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * Generates the recognizers and runs {@code script}. {@code load()}
+	 * requires a fresh copy of the generated modules, with DFAs of their
+	 * own, and {@code roundTrip(warm, run)} snapshots the DFA of the
+	 * recognizer {@code warm}, loads it into fresh modules and calls
+	 * {@code run} with them, which returns its recognizer.
+	 */
+	protected String execRoundTrip(String grammar, String parserName, String lexerName, String script) throws Exception {
+		String grammarFileName = parserName != null ? "T.g4" : "L.g4";
+		boolean success = rawGenerateAndBuildRecognizer(grammarFileName, grammar, parserName, lexerName, "-no-listener");
+		assertTrue(success);
+		String modules = "'./" + lexerName + "'" + (parserName != null ? ", './" + parserName + "'" : "");
+		writeFile(tmpdir, "input", "");
+		writeFile(tmpdir, "Test.js",
+			"var antlr4 = require('antlr4');\n" +
+			"var DFASnapshot = antlr4.dfa.DFASnapshot;\n" +
+			"function load() {\n" +
+			"    var modules = {};\n" +
+			"    [" + modules + "].forEach(function(name) {\n" +
+			"        delete require.cache[require.resolve(name)];\n" +
+			"    });\n" +
+			"    [" + modules + "].forEach(function(name) {\n" +
+			"        var m = require(name);\n" +
+			"        for (var k in m) { modules[k] = m[k]; }\n" +
+			"    });\n" +
+			"    return modules;\n" +
+			"}\n" +
+			"var first = load();\n" +
+			(parserName != null ? "var " + parserName + " = first." + parserName + ";\n" : "") +
+			"var " + lexerName + " = first." + lexerName + ";\n" +
+			"function states(recognizer) {\n" +
+			"    return recognizer._interp.decisionToDFA.reduce(function(n, d) { return n + d.states.values().length; }, 0);\n" +
+			"}\n" +
+			"function roundTrip(warm, run) {\n" +
+			"    var snapshot = DFASnapshot.serialize(warm._interp.atn, warm._interp.decisionToDFA);\n" +
+			"    var modules = load();\n" +
+			"    var fresh = new modules." + (parserName != null ? parserName : lexerName) + "(null);\n" +
+			"    console.log('fresh states: ' + states(fresh));\n" +
+			"    console.log('loaded: ' + DFASnapshot.deserialize(fresh._interp.atn, fresh._interp.decisionToDFA, snapshot));\n" +
+			"    var again = DFASnapshot.serialize(fresh._interp.atn, fresh._interp.decisionToDFA);\n" +
+			"    console.log('same snapshot: ' + again.equals(snapshot));\n" +
+			"    var before = states(fresh);\n" +
+			"    var recognizer = run(modules);\n" +
+			"    console.log('states added: ' + (states(recognizer) - before));\n" +
+			"}\n" +
+			script);
+		stderrDuringParse = null;
+		return execRecognizer();
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * [The "BSD license"]
+ *  Copyright (c) 2012 Terence Parr
+ *  Copyright (c) 2012 Sam Harwell
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions
+ *  are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.antlr.v4.js.test;
+
+import org.antlr.v4.codegen.JavaScriptTarget;
+import org.antlr.v4.runtime.misc.Utils;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The generated parsers look each decision up in its DFA before calling
+ * adaptivePredict. These tests parse several inputs with one parser class,
+ * so that the later parses run against the DFA states the earlier ones
+ * added, and print how often adaptivePredict was called for each parse.
+ */
+public class TestInlinePrediction extends BaseTest {
+	@Test public void testUniqueAltPredictedInline() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : (ID ID {console.log('ids');} | ID INT {console.log('int');})+ EOF ;\n" +
+			"ID : 'a'..'z'+ ;\n" +
+			"INT : '0'..'9'+ ;\n" +
+			"WS : (' '|'\\n')+ -> skip ;\n";
+		String found = execParses(grammar, "'a b c 1'", "'d 2 e f'");
+		String expecting =
+			"ids\n" +
+			"int\n" +
+			"adaptivePredict: 2\n" +
+			"int\n" +
+			"ids\n" +
+			"adaptivePredict: 0\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * An accept state with predicates is only valid for the predicates' values
+	 * at the time it was added, so it must go through adaptivePredict.
+	 */
+	@Test public void testPredicatedStateFallsBack() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : a a ;\n" +
+			"a : {this.p}? ID {console.log('pred');} | ID {console.log('plain');} ;\n" +
+			"ID : 'a'..'z'+ ;\n" +
+			"WS : (' '|'\\n')+ -> skip ;\n";
+		String found = execParses(grammar,
+			"'x y', function(parser) { parser.p = true; }",
+			"'x y', function(parser) { parser.p = false; }");
+		String expecting =
+			"pred\n" +
+			"pred\n" +
+			"adaptivePredict: 2\n" +
+			"plain\n" +
+			"plain\n" +
+			"adaptivePredict: 2\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * The SLL conflict in e is only resolved by the invoking rule, so its DFA
+	 * state requires full context and the second token reaches it.
+	 */
+	@Test public void testFullContextStateFallsBack() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : '$' a | '@' b ;\n" +
+			"a : e ID ;\n" +
+			"b : e INT ID ;\n" +
+			"e : INT {console.log('int');} | {console.log('empty');} ;\n" +
+			"ID : 'a'..'z'+ ;\n" +
+			"INT : '0'..'9'+ ;\n" +
+			"WS : (' '|'\\n')+ -> skip ;\n";
+		String found = execParses(grammar, "'$ 34 abc'", "'@ 34 abc'", "'$ 34 abc'");
+		String expecting =
+			"int\n" +
+			"adaptivePredict: 1\n" +
+			"empty\n" +
+			"adaptivePredict: 1\n" +
+			"int\n" +
+			"adaptivePredict: 1\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * Precedence DFAs have a start state per precedence level. The actions
+	 * print the operands of each operator as it is reduced.
+	 */
+	@Test public void testPrecedenceDFAFallsBack() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : e EOF ;\n" +
+			"e : e '*' e {console.log('* ' + this._input.getText(new antlr4.Interval(localctx.start, this._input.LT(-1))));}\n" +
+			"  | e '+' e {console.log('+ ' + this._input.getText(new antlr4.Interval(localctx.start, this._input.LT(-1))));}\n" +
+			"  | INT\n" +
+			"  ;\n" +
+			"INT : '0'..'9'+ ;\n" +
+			"WS : (' '|'\\n')+ -> skip ;\n";
+		String found = execParses(grammar, "'1+2*3'", "'1*2+3'", "'1+2*3'");
+		String expecting =
+			"* 2*3\n" +
+			"+ 1+2*3\n" +
+			"adaptivePredict: 7\n" +
+			"* 1*2\n" +
+			"+ 1*2+3\n" +
+			"adaptivePredict: 7\n" +
+			"* 2*3\n" +
+			"+ 1+2*3\n" +
+			"adaptivePredict: 7\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	@Test public void testWithoutInlinePrediction() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : (ID ID {console.log('ids');} | ID INT {console.log('int');})+ EOF ;\n" +
+			"ID : 'a'..'z'+ ;\n" +
+			"INT : '0'..'9'+ ;\n" +
+			"WS : (' '|'\\n')+ -> skip ;\n";
+		String found;
+		System.setProperty(JavaScriptTarget.INLINE_PREDICTION_PROPERTY, "false");
+		try {
+			found = execParses(grammar, "'a b c 1'", "'d 2 e f'");
+		}
+		finally {
+			System.clearProperty(JavaScriptTarget.INLINE_PREDICTION_PROPERTY);
+		}
+		String parser = new String(Utils.readFile(tmpdir + File.separator + "TParser.js"));
+		assertFalse(parser.contains("inlineDFAs"));
+		assertTrue(parser.contains("this._interp.adaptivePredict(this._input,"));
+		String expecting =
+			"ids\n" +
+			"int\n" +
+			"adaptivePredict: 2\n" +
+			"int\n" +
+			"ids\n" +
+			"adaptivePredict: 2\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * Generates T and parses each input in turn with a new parser. An input
+	 * is a JavaScript string literal, optionally followed by a function which
+	 * sets the parser up.
+	 */
+	protected String execParses(String grammar, String... inputs) throws Exception {
+		boolean success = rawGenerateAndBuildRecognizer("T.g4", grammar, "TParser", "TLexer", "-no-listener");
+		assertTrue(success);
+		StringBuilder parses = new StringBuilder();
+		for (String input : inputs) {
+			parses.append("parse(").append(input).append(");\n");
+		}
+		writeFile(tmpdir, "input", "");
+		writeFile(tmpdir, "Test.js",
+			"var antlr4 = require('antlr4');\n" +
+			"var TLexer = require('./TLexer').TLexer;\n" +
+			"var TParser = require('./TParser').TParser;\n" +
+			"function parse(text, setUp) {\n" +
+			"    var lexer = new TLexer(new antlr4.InputStream(text));\n" +
+			"    var parser = new TParser(new antlr4.CommonTokenStream(lexer));\n" +
+			"    if (setUp) { setUp(parser); }\n" +
+			"    var calls = 0;\n" +
+			"    var adaptivePredict = parser._interp.adaptivePredict;\n" +
+			"    parser._interp.adaptivePredict = function() {\n" +
+			"        calls++;\n" +
+			"        return adaptivePredict.apply(this, arguments);\n" +
+			"    };\n" +
+			"    parser.s();\n" +
+			"    console.log('adaptivePredict: ' + calls);\n" +
+			"}\n" +
+			parses);
+		stderrDuringParse = null;
+		return execRecognizer();
+	}
+}
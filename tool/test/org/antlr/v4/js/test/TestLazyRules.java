@@ -0,0 +1,193 @@
+/*
+ * [The "BSD license"]
+ *  Copyright (c) 2012 Terence Parr
+ *  Copyright (c) 2012 Sam Harwell
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions
+ *  are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.antlr.v4.js.test;
+
+import org.antlr.v4.codegen.JavaScriptTarget;
+import org.antlr.v4.runtime.misc.Utils;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Generates the same grammar as T with eager deserialization and as U with
+ * {@code lazyRules}, and checks that the lazy ATN behaves like the eager
+ * one.
+ */
+public class TestLazyRules extends BaseTest {
+	protected static final String RULES =
+		"s : stat+ EOF ;\n" +
+		"stat : ID '=' e ';' | 'if' e 'then' stat ('else' stat)? | '{' stat* '}' | call ';' ;\n" +
+		"call : ID '(' (e (',' e)*)? ')' ;\n" +
+		"e : e ('*'|'/') e | e ('+'|'-') e | '-' e | call | ID | INT | '(' e ')' ;\n" +
+		"ID : [a-z]+ ;\n" +
+		"INT : [0-9]+ ;\n" +
+		"WS : [ \\n]+ -> skip ;\n";
+
+	protected static final String INPUT =
+		"x = 1 + 2 * -f(y, 3); if x then { g(); y = (x - 1) / 2; } else z = x;";
+
+	@Test public void testGeneratedOption() throws Exception {
+		generate();
+		String eager = new String(Utils.readFile(tmpdir + File.separator + "TParser.js"));
+		String lazy = new String(Utils.readFile(tmpdir + File.separator + "UParser.js"));
+		String lexer = new String(Utils.readFile(tmpdir + File.separator + "ULexer.js"));
+		assertFalse(eager.contains("lazyRules"));
+		assertTrue(lazy.contains("deserializationOptions.lazyRules = true;"));
+		assertTrue(lexer.contains("deserializationOptions.lazyRules = true;"));
+	}
+
+	/**
+	 * Reads the fields and transitions of every state from a lazy ATN in
+	 * which that state is the first one used, then asks one lazy ATN for the
+	 * tokens following every state, last state first so that rules are
+	 * materialized out of order, and compares both to the eager ATN.
+	 */
+	@Test public void testNextTokens() throws Exception {
+		String found = execLazy(
+			"var eager = new TParser(null).atn;\n" +
+			"var lazy = new UParser(null).atn;\n" +
+			"print('lazy: ' + (eager.lazyRules === null) + ' ' + (lazy.lazyRules !== null));\n" +
+			"function intervals(set) {\n" +
+			"    return set.intervals === null ? '' : set.intervals.map(function(i) { return i.start + '..' + i.stop; }).join(' ');\n" +
+			"}\n" +
+			"function number(state) {\n" +
+			"    return state === undefined || state === null ? '-' : state.stateNumber;\n" +
+			"}\n" +
+			"function fields(state) {\n" +
+			"    return [ state.stateType, state.precedenceRuleDecision, number(state.loopBackState), number(state.startState),\n" +
+			"        number(state.endState), state.epsilonOnlyTransitions ].join(' ') + ' ' +\n" +
+			"        state.transitions.map(function(t) { return t.serializationType + '>' + number(t.target); }).join(' ');\n" +
+			"}\n" +
+			"function freshLazyState(i) {\n" +
+			"    delete require.cache[require.resolve('./UParser')];\n" +
+			"    return new (require('./UParser').UParser)(null).atn.states[i];\n" +
+			"}\n" +
+			"var differ = 0, fieldsDiffer = 0;\n" +
+			"for (var i = lazy.states.length - 1; i >= 0; i--) {\n" +
+			"    if (fields(freshLazyState(i)) !== fields(eager.states[i])) {\n" +
+			"        fieldsDiffer++;\n" +
+			"    }\n" +
+			"    var expected = intervals(eager.nextTokens(eager.states[i]));\n" +
+			"    if (intervals(lazy.nextTokens(lazy.states[i])) !== expected) {\n" +
+			"        differ++;\n" +
+			"    }\n" +
+			"}\n" +
+			"print('states: ' + lazy.states.length + ', fields differ: ' + fieldsDiffer + ', next tokens differ: ' + differ +\n" +
+			"    ', all materialized: ' + (lazy.lazyRules === null));\n");
+		String expecting =
+			"lazy: true true\n" +
+			"states: 79, fields differ: 0, next tokens differ: 0, all materialized: true\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * A lazy parser starts with no rule materialized and parses like the
+	 * eager one, syntax errors included.
+	 */
+	@Test public void testParse() throws Exception {
+		String found = execLazy(
+			"var lazy = new UParser(null).atn;\n" +
+			"function materialized() {\n" +
+			"    return lazy.lazyRules === null ? 'all' : Array.prototype.join.call(lazy.lazyRules.materialized, ' ');\n" +
+			"}\n" +
+			"print('materialized: ' + materialized());\n" +
+			"print(parse(TLexer, TParser, INPUT) === parse(ULexer, UParser, INPUT));\n" +
+			"print('materialized: ' + materialized());\n" +
+			"var bad = '{ x = 1; if x y = 2; }';\n" +
+			"var result = parse(ULexer, UParser, bad);\n" +
+			"print(result === parse(TLexer, TParser, bad));\n" +
+			"print(result.split('\\n').slice(1).join('\\n'));\n");
+		String expecting =
+			"materialized: 0 0 0 0\n" +
+			"true\n" +
+			"materialized: all\n" +
+			"true\n" +
+			"1:14 missing 'then' at 'y'\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	protected void generate() {
+		boolean success = rawGenerateAndBuildRecognizer("T.g4", "grammar T;\n" + RULES, "TParser", "TLexer", "-no-listener");
+		assertTrue(success);
+		System.setProperty(JavaScriptTarget.LAZY_RULES_PROPERTY, "true");
+		try {
+			success = rawGenerateAndBuildRecognizer("U.g4", "grammar U;\n" + RULES, "UParser", "ULexer", "-no-listener");
+		}
+		finally {
+			System.clearProperty(JavaScriptTarget.LAZY_RULES_PROPERTY);
+		}
+		assertTrue(success);
+	}
+
+	/**
+	 * Generates T and U and runs {@code script}, where
+	 * {@code parse(Lexer, Parser, input)} returns the tree of {@code input}
+	 * followed by any syntax errors.
+	 */
+	protected String execLazy(String script) throws Exception {
+		generate();
+		writeFile(tmpdir, "input", "");
+		writeFile(tmpdir, "Test.js",
+			"var antlr4 = require('antlr4');\n" +
+			"var TLexer = require('./TLexer').TLexer;\n" +
+			"var TParser = require('./TParser').TParser;\n" +
+			"var ULexer = require('./ULexer').ULexer;\n" +
+			"var UParser = require('./UParser').UParser;\n" +
+			"var ErrorListener = require('antlr4/error/ErrorListener').ErrorListener;\n" +
+			"var INPUT = '" + INPUT + "';\n" +
+			"var print = console.log;\n" +
+			"function tree(t, parser) {\n" +
+			"    if (t.symbol !== undefined) {\n" +
+			"        return t.symbol.type === antlr4.Token.EOF ? '<EOF>' : t.symbol.text;\n" +
+			"    }\n" +
+			"    var s = parser.ruleNames[t.ruleIndex];\n" +
+			"    return t.children === null ? s : '(' + s + ' ' + t.children.map(function(c) { return tree(c, parser); }).join(' ') + ')';\n" +
+			"}\n" +
+			"function parse(Lexer, Parser, input) {\n" +
+			"    var parser = new Parser(new antlr4.CommonTokenStream(new Lexer(new antlr4.InputStream(input))));\n" +
+			"    var errors = new ErrorListener();\n" +
+			"    errors.messages = [];\n" +
+			"    errors.syntaxError = function(recognizer, symbol, line, column, msg) { this.messages.push(line + ':' + column + ' ' + msg); };\n" +
+			"    parser._listeners = [ errors ];\n" +
+			"    parser.buildParseTrees = true;\n" +
+			"    return tree(parser.s(), parser) + (errors.messages.length > 0 ? '\\n' + errors.messages.join('\\n') : '');\n" +
+			"}\n" +
+			script);
+		stderrDuringParse = null;
+		return execRecognizer();
+	}
+}
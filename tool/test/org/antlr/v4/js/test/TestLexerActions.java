@@ -115,6 +115,33 @@ public class TestLexerActions extends BaseTest {
 		assertEquals(expecting, found);
 	}
 
+	/**
+	 * Lexer DFA states which only differ by the custom action of their
+	 * configurations must not be merged, or the action of the first one is
+	 * executed for both.
+	 */
+	@Test public void testDifferentCustomActionsInDFA() throws Exception {
+		String grammar =
+			"lexer grammar L;\n"+
+			"I : ( 'a' {console.log(\"a\");} | 'b' {console.log(\"b\");} ) 'c' ;\n"+
+			"J : 'd' {console.log(\"d\");} 'c' ;\n"+
+			"WS : (' '|'\\n') -> skip ;";
+		String found = execLexer("L.g4", grammar, "L", "ac bc dc bc ac");
+		String expecting =
+			"a\n" +
+			"b\n" +
+			"d\n" +
+			"b\n" +
+			"a\n" +
+			"[@0,0:1='ac',<1>,1:0]\n" +
+			"[@1,3:4='bc',<1>,1:3]\n" +
+			"[@2,6:7='dc',<2>,1:6]\n" +
+			"[@3,9:10='bc',<1>,1:9]\n" +
+			"[@4,12:13='ac',<1>,1:12]\n" +
+			"[@5,14:13='<EOF>',<-1>,1:14]\n";
+		assertEquals(expecting, found);
+	}
+
 	@Test public void testActionPlusCommand() throws Exception {
 		String grammar =
 			"lexer grammar L;\n"+
@@ -39,6 +39,7 @@ import java.io.InputStreamReader;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class TestLexerExec extends BaseTest {
 	
@@ -663,6 +664,152 @@ public class TestLexerExec extends BaseTest {
 		assertEquals(expecting, found);
 	}
 
+	/**
+	 * An unbuffered char stream only holds the text of the current token, so
+	 * a token's text must be copied when the token is created.
+	 */
+	@Test public void testTokenTextFromUnbufferedCharStream() throws Exception {
+		String grammar =
+			"lexer grammar L;\n"+
+			"ID : [a-z]+ ;\n"+
+			"INT : [0-9]+ ;\n"+
+			"WS : [ \\n]+ -> skip ;";
+		boolean success = rawGenerateAndBuildRecognizer("L.g4", grammar, null, "L", "-no-listener");
+		assertTrue(success);
+		writeFile(tmpdir, "input", "abc 34 defghijkl\n5678 x");
+		writeFile(tmpdir, "Test.js",
+			"var antlr4 = require('antlr4');\n" +
+			"var CommonTokenFactory = require('antlr4/CommonTokenFactory').CommonTokenFactory;\n" +
+			"var L = require('./L');\n" +
+			"var lexer = new L.L(new antlr4.UnbufferedCharStream(process.argv[2], 4));\n" +
+			"lexer._factory = new CommonTokenFactory(true);\n" +
+			"for (var t = lexer.nextToken(); t.type !== antlr4.Token.EOF; t = lexer.nextToken()) {\n" +
+			"    console.log(t.text);\n" +
+			"}\n");
+		stderrDuringParse = null;
+		String found = execRecognizer();
+		String expecting =
+			"abc\n" +
+			"34\n" +
+			"defghijkl\n" +
+			"5678\n" +
+			"x\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * Wildcards and negated sets have to match the whole code point range,
+	 * not just the BMP, when the input is read as code points.
+	 */
+	@Test public void testNotSetMatchesSupplementaryCodePoint() throws Exception {
+		String grammar =
+			"lexer grammar L;\n"+
+			"Q : '\"' ;\n"+
+			"ANY : ~'\"' ;";
+		String found = execCodePointLexer(grammar,
+			"new antlr4.InputStream('a\"\\u{1F600}\"b', true)");
+		String expecting =
+			"2 61\n" +
+			"1 22\n" +
+			"2 1f600\n" +
+			"1 22\n" +
+			"2 62\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	@Test public void testWildcardMatchesSupplementaryCodePoint() throws Exception {
+		String grammar =
+			"lexer grammar L;\n"+
+			"A : 'a' ;\n"+
+			"PAIR : '<' . . '>' ;";
+		String found = execCodePointLexer(grammar,
+			"new antlr4.InputStream('a<\\u{1F600}\\u{10FFFF}>a', true)");
+		String expecting =
+			"1 61\n" +
+			"2 3c 1f600 10ffff 3e\n" +
+			"1 61\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/** A string without surrogate pairs is read in place in code point mode. */
+	@Test public void testCodePointStringWithoutSurrogates() throws Exception {
+		String grammar =
+			"lexer grammar L;\n"+
+			"Q : '\"' ;\n"+
+			"ANY : ~'\"' ;";
+		String found = execCodePointLexer(grammar,
+			"new antlr4.InputStream('a\\u00e9\"\\u4e2d\\uffff', true)");
+		String expecting =
+			"2 61\n" +
+			"2 e9\n" +
+			"1 22\n" +
+			"2 4e2d\n" +
+			"2 ffff\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	@Test public void testAsciiBufferInput() throws Exception {
+		String grammar =
+			"lexer grammar L;\n"+
+			"ID : [a-z]+ ;\n"+
+			"ANY : ~[a-z] ;";
+		String found = execCodePointLexer(grammar,
+			"new antlr4.InputStream(Buffer.from('ab\"c'))");
+		String expecting =
+			"1 61 62\n" +
+			"2 22\n" +
+			"1 63\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	@Test public void testUtf8BufferInput() throws Exception {
+		String grammar =
+			"lexer grammar L;\n"+
+			"Q : '\"' ;\n"+
+			"ANY : ~'\"' ;";
+		String found = execCodePointLexer(grammar,
+			"new antlr4.InputStream(Buffer.from('a\\u00e9\"\\u4e2d\\u{1F600}\"', 'utf8'))");
+		String expecting =
+			"2 61\n" +
+			"2 e9\n" +
+			"1 22\n" +
+			"2 4e2d\n" +
+			"2 1f600\n" +
+			"1 22\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * Lexes the stream built by {@code streamExpr} and prints each token's
+	 * type followed by the code points of its text in hex.
+	 */
+	protected String execCodePointLexer(String grammar, String streamExpr) throws Exception {
+		boolean success = rawGenerateAndBuildRecognizer("L.g4", grammar, null, "L", "-no-listener");
+		assertTrue(success);
+		writeFile(tmpdir, "input", "");
+		writeFile(tmpdir, "Test.js",
+			"var antlr4 = require('antlr4');\n" +
+			"var L = require('./L');\n" +
+			"var lexer = new L.L(" + streamExpr + ");\n" +
+			"for (var t = lexer.nextToken(); t.type !== antlr4.Token.EOF; t = lexer.nextToken()) {\n" +
+			"    var cps = [];\n" +
+			"    for (var i = 0; i < t.text.length; i++) {\n" +
+			"        var c = t.text.codePointAt(i);\n" +
+			"        cps.push(c.toString(16));\n" +
+			"        if (c > 0xFFFF) { i++; }\n" +
+			"    }\n" +
+			"    console.log(t.type + ' ' + cps.join(' '));\n" +
+			"}\n");
+		stderrDuringParse = null;
+		return execRecognizer();
+	}
+
 	protected String load(String fileName, @Nullable String encoding)
 		throws IOException
 	{
@@ -0,0 +1,262 @@
+/*
+ * [The "BSD license"]
+ *  Copyright (c) 2012 Terence Parr
+ *  Copyright (c) 2012 Sam Harwell
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions
+ *  are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.antlr.v4.js.test;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Lexes input which arrives in chunks with a LexerStream, printing the type,
+ * text, line and column of each token it emits.
+ */
+public class TestLexerStream extends BaseTest {
+	@Test public void testTokensSplitAcrossChunks() throws Exception {
+		String grammar =
+			"lexer grammar L;\n" +
+			"ID : 'a'..'z'+ ;\n" +
+			"INT : '0'..'9'+ ;\n" +
+			"WS : (' '|'\\n')+ -> skip ;\n";
+		String found = execLexerStream(grammar,
+			"chunks(['ab', 'c 12', '3\\n d', 'ef', '', 'g 4'])", "{}");
+		String expecting =
+			"1 'abc' 1:0\n" +
+			"2 '123' 1:4\n" +
+			"1 'defg' 2:1\n" +
+			"2 '4' 2:6\n" +
+			"-1 '<EOF>' 2:7\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	@Test public void testReadableInput() throws Exception {
+		String grammar =
+			"lexer grammar L;\n" +
+			"ID : 'a'..'z'+ ;\n" +
+			"WS : ' '+ -> skip ;\n";
+		String found = execLexerStream(grammar,
+			"require('stream').Readable.from(['a', 'b c', 'd'], { objectMode : true })", "{}");
+		String expecting =
+			"1 'ab' 1:0\n" +
+			"1 'cd' 1:3\n" +
+			"-1 '<EOF>' 1:5\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * U+00E9 is two bytes in UTF-8 and U+20AC three, each split across
+	 * buffers. The script prints characters outside ASCII escaped.
+	 */
+	@Test public void testUTF8CharacterSplitAcrossBuffers() throws Exception {
+		String grammar =
+			"lexer grammar L;\n" +
+			"WORD : ~[ ]+ ;\n" +
+			"WS : ' '+ -> skip ;\n";
+		String found = execLexerStream(grammar,
+			"(function() {\n" +
+			"    var bytes = Buffer.from('a\\u00e9b \\u20ac', 'utf8');\n" +
+			"    return chunks([bytes.slice(0, 2), bytes.slice(2, 6), bytes.slice(6, 7), bytes.slice(7)]);\n" +
+			"})()", "{}");
+		String expecting =
+			"1 'a\\u00e9b' 1:0\n" +
+			"1 '\\u20ac' 1:4\n" +
+			"-1 '<EOF>' 1:5\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * The skipped tokens change mode, and then the token after them runs out
+	 * of input, so the retry has to start from the mode before them.
+	 */
+	@Test public void testModeStackRestoredAfterStarvedAttempt() throws Exception {
+		String grammar =
+			"lexer grammar L;\n" +
+			"OPEN : '<' -> pushMode(TAG), skip ;\n" +
+			"TEXT : ~'<'+ ;\n" +
+			"mode TAG;\n" +
+			"NAME : 'a'..'z'+ ;\n" +
+			"CLOSE : '>' -> popMode, skip ;\n";
+		String found = execLexerStream(grammar,
+			"chunks(['<a', 'b>c', 'd<', 'e', '>f', 'g'])", "{}");
+		String expecting =
+			"3 'ab' 1:1\n" +
+			"2 'cd' 1:4\n" +
+			"3 'e' 1:7\n" +
+			"2 'fg' 1:9\n" +
+			"-1 '<EOF>' 1:11\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * The attempt at the string runs out of input on the second line, so
+	 * the retry has to start from the line and column before it.
+	 */
+	@Test public void testLineAndColumnRestoredAfterStarvedAttempt() throws Exception {
+		String grammar =
+			"lexer grammar L;\n" +
+			"STRING : '\"' ~'\"'* '\"' ;\n" +
+			"ID : 'a'..'z'+ ;\n" +
+			"WS : (' '|'\\n')+ -> skip ;\n";
+		String found = execLexerStream(grammar,
+			"chunks(['x \"a\\nbc', 'd\\ne', 'f\" y'])", "{}");
+		String expecting =
+			"2 'x' 1:0\n" +
+			"1 '\"a\\nbcd\\nef\"' 1:2\n" +
+			"2 'y' 3:4\n" +
+			"-1 '<EOF>' 3:5\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * '-' alone is an error, but the attempt which sees it at the end of a
+	 * chunk is undone, so only the errors of kept attempts are reported,
+	 * once each. As usual, the error on "-c" consumes the 'c'.
+	 */
+	@Test public void testErrorsReportedOnce() throws Exception {
+		String grammar =
+			"lexer grammar L;\n" +
+			"ARROW : '->' ;\n" +
+			"ID : 'a'..'z'+ ;\n" +
+			"WS : ' '+ -> skip ;\n";
+		String found = execLexerStream(grammar,
+			"chunks(['a -', '> b -', 'c', ' #', 'd'])", "{}");
+		String expecting =
+			"2 'a' 1:0\n" +
+			"1 '->' 1:2\n" +
+			"2 'b' 1:5\n" +
+			"2 'd' 1:11\n" +
+			"-1 '<EOF>' 1:12\n";
+		assertEquals(expecting, found);
+		assertEquals(
+			"line 1:7 token recognition error at: '-c'\n" +
+			"line 1:10 token recognition error at: '#'\n",
+			stderrDuringParse);
+	}
+
+	/**
+	 * Reading one token at a time, with the consumer's buffer limited to
+	 * two tokens, pauses the source until the consumer catches up.
+	 */
+	@Test public void testPausesSourceForSlowConsumer() throws Exception {
+		String grammar =
+			"lexer grammar L;\n" +
+			"ID : 'a'..'z'+ ;\n" +
+			"WS : ' '+ -> skip ;\n";
+		String found = execLexerStream(grammar,
+			"(function() {\n" +
+			"    var source = new (require('stream').PassThrough)();\n" +
+			"    source.on('pause', function() { pauses++; });\n" +
+			"    for (var i = 0; i < 20; i++) { source.write('x' + String.fromCharCode(97 + i) + ' '); }\n" +
+			"    source.end();\n" +
+			"    return source;\n" +
+			"})()", "{ highWaterMark : 2, slow : true }");
+		String expecting =
+			"1 'xa' 1:0\n" +
+			"1 'xb' 1:3\n" +
+			"1 'xc' 1:6\n" +
+			"1 'xd' 1:9\n" +
+			"1 'xe' 1:12\n" +
+			"1 'xf' 1:15\n" +
+			"1 'xg' 1:18\n" +
+			"1 'xh' 1:21\n" +
+			"1 'xi' 1:24\n" +
+			"1 'xj' 1:27\n" +
+			"1 'xk' 1:30\n" +
+			"1 'xl' 1:33\n" +
+			"1 'xm' 1:36\n" +
+			"1 'xn' 1:39\n" +
+			"1 'xo' 1:42\n" +
+			"1 'xp' 1:45\n" +
+			"1 'xq' 1:48\n" +
+			"1 'xr' 1:51\n" +
+			"1 'xs' 1:54\n" +
+			"1 'xt' 1:57\n" +
+			"-1 '<EOF>' 1:60\n" +
+			"paused: true\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * Generates lexer L and lexes {@code source} with a LexerStream created
+	 * with {@code options}. {@code chunks(list)} makes an async iterable of
+	 * the elements of {@code list}, each yielded after the previous one has
+	 * been lexed as far as it goes. The option {@code slow} reads one token
+	 * at a time, waiting between them.
+	 */
+	protected String execLexerStream(String grammar, String source, String options) throws Exception {
+		boolean success = rawGenerateAndBuildRecognizer("L.g4", grammar, null, "L");
+		assertTrue(success);
+		writeFile(tmpdir, "input", "");
+		writeFile(tmpdir, "Test.js",
+			"var antlr4 = require('antlr4');\n" +
+			"var L = require('./L').L;\n" +
+			"var pauses = 0;\n" +
+			"async function* chunks(list) {\n" +
+			"    for (var i = 0; i < list.length; i++) {\n" +
+			"        await new Promise(function(resolve) { setImmediate(resolve); });\n" +
+			"        yield list[i];\n" +
+			"    }\n" +
+			"}\n" +
+			"var options = " + options + ";\n" +
+			"var tokens = new antlr4.LexerStream(new L(null), " + source + ", options);\n" +
+			"function show(t) {\n" +
+			"    var text = t.text.replace(/[^ -~]/g, function(c) {\n" +
+			"        return c === '\\n' ? '\\\\n' : '\\\\u' + ('000' + c.charCodeAt(0).toString(16)).slice(-4);\n" +
+			"    });\n" +
+			"    if (t.type === antlr4.Token.EOF) { text = '<EOF>'; }\n" +
+			"    console.log(t.type + \" '\" + text + \"' \" + t.line + ':' + t.column);\n" +
+			"}\n" +
+			"function done() {\n" +
+			"    if (options.slow) { console.log('paused: ' + (pauses > 0)); }\n" +
+			"}\n" +
+			"if (options.slow) {\n" +
+			"    var read = function() {\n" +
+			"        var t = tokens.read();\n" +
+			"        if (t !== null) { show(t); }\n" +
+			"        if (t === null || t.type !== antlr4.Token.EOF) { setTimeout(read, 2); }\n" +
+			"    };\n" +
+			"    tokens.on('end', done);\n" +
+			"    read();\n" +
+			"} else {\n" +
+			"    tokens.on('data', show);\n" +
+			"    tokens.on('end', done);\n" +
+			"}\n");
+		stderrDuringParse = null;
+		return execRecognizer();
+	}
+}
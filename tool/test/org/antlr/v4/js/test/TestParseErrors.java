@@ -32,6 +32,7 @@ package org.antlr.v4.js.test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 
@@ -388,4 +389,112 @@ public class TestParseErrors extends BaseTest {
 		String result = stderrDuringParse;
 		assertEquals(expecting, result);
 	}
+
+	/**
+	 * SLL prediction merges the follow of {@code e} from both {@code a} and
+	 * {@code b}, so it picks the first alternative of {@code e} for "@ 34 abc"
+	 * and the first stage fails. The second stage must start over from the
+	 * first token of a stream which had not been read before the call.
+	 */
+	@Test public void testTwoStageFallsBackToLL() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : '$' a | '@' b ;\n" +
+			"a : e ID ;\n" +
+			"b : e INT ID ;\n" +
+			"e : INT | ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"INT : [0-9]+ ;\n" +
+			"WS : [ \\t\\n]+ -> skip ;\n";
+		boolean success = rawGenerateAndBuildRecognizer("T.g4", grammar, "TParser", "TLexer", "-no-listener");
+		assertTrue(success);
+		writeFile(tmpdir, "input", "@ 34 abc");
+		writeFile(tmpdir, "Test.js",
+			"var antlr4 = require('antlr4');\n" +
+			"var TLexer = require('./TLexer');\n" +
+			"var TParser = require('./TParser');\n" +
+			"var PredictionMode = require('antlr4/atn/PredictionMode').PredictionMode;\n" +
+			"var input = new antlr4.FileStream(process.argv[2]);\n" +
+			"var stream = new antlr4.CommonTokenStream(new TLexer.TLexer(input));\n" +
+			"var parser = new TParser.TParser(stream);\n" +
+			"parser.buildParseTrees = true;\n" +
+			"var result = parser.parseTwoStage(\"s\");\n" +
+			"console.log(result.predictionMode === PredictionMode.LL ? \"LL\" : \"SLL\");\n" +
+			"console.log(result.tree.getChild(1).getChild(1).getText());\n");
+		stderrDuringParse = null;
+		String found = execRecognizer();
+		assertEquals("LL\n34\n", found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * Parse listeners must see the events of one parse only, whether the
+	 * first stage succeeds or the parse falls back to the second, including
+	 * the calls to the rule-specific listener methods, and exit events must
+	 * go to the listeners in reverse order.
+	 */
+	@Test public void testTwoStageParseListenerEventsOnce() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : '$' a | '@' b ;\n" +
+			"a : e ID ;\n" +
+			"b : e INT ID ;\n" +
+			"e : INT | ;\n" +
+			"ID : [a-z]+ ;\n" +
+			"INT : [0-9]+ ;\n" +
+			"WS : [ \\t\\n]+ -> skip ;\n";
+		boolean success = rawGenerateAndBuildRecognizer("T.g4", grammar, "TParser", "TLexer", "-listener");
+		assertTrue(success);
+		writeFile(tmpdir, "input", "");
+		writeFile(tmpdir, "Test.js",
+			"var antlr4 = require('antlr4');\n" +
+			"var TLexer = require('./TLexer').TLexer;\n" +
+			"var TParser = require('./TParser').TParser;\n" +
+			"var TListener = require('./TListener').TListener;\n" +
+			"var PredictionMode = require('antlr4/atn/PredictionMode').PredictionMode;\n" +
+			"function Events() {\n" +
+			"    TListener.call(this);\n" +
+			"    this.events = [];\n" +
+			"    return this;\n" +
+			"}\n" +
+			"Events.prototype = Object.create(TListener.prototype);\n" +
+			"Events.prototype.enterEveryRule = function(ctx) { this.events.push('>' + ctx.ruleIndex); };\n" +
+			"Events.prototype.exitEveryRule = function(ctx) { this.events.push('<' + ctx.ruleIndex); };\n" +
+			"Events.prototype.visitTerminal = function(node) { this.events.push(node.getText()); };\n" +
+			"Events.prototype.enterE = function(ctx) { this.events.push('enterE'); };\n" +
+			"Events.prototype.exitE = function(ctx) { this.events.push('exitE ' + ctx.getText()); };\n" +
+			"function parse(input, twoStage) {\n" +
+			"    var parser = new TParser(new antlr4.CommonTokenStream(new TLexer(new antlr4.InputStream(input))));\n" +
+			"    var events = new Events();\n" +
+			"    parser.addParseListener(events);\n" +
+			"    var last = new antlr4.tree.ParseTreeListener();\n" +
+			"    last.exitEveryRule = function(ctx) { events.events.push('.'); };\n" +
+			"    parser.addParseListener(last);\n" +
+			"    var mode = '';\n" +
+			"    if (twoStage) {\n" +
+			"        mode = parser.parseTwoStage('s').predictionMode === PredictionMode.LL ? 'LL: ' : 'SLL: ';\n" +
+			"    } else {\n" +
+			"        parser.s();\n" +
+			"    }\n" +
+			"    console.log(mode + events.events.join(' '));\n" +
+			"    console.log('listeners: ' + parser.getParseListeners().length);\n" +
+			"}\n" +
+			"parse('$ 34 abc', false);\n" +
+			"parse('$ 34 abc', true);\n" +
+			"parse('@ 34 abc', false);\n" +
+			"parse('@ 34 abc', true);\n");
+		stderrDuringParse = null;
+		String found = execRecognizer();
+		String expecting =
+			">0 $ >1 >3 enterE 34 . exitE 34 <3 abc . <1 . <0\n" +
+			"listeners: 2\n" +
+			"SLL: >0 $ >1 >3 enterE 34 . exitE 34 <3 abc . <1 . <0\n" +
+			"listeners: 2\n" +
+			">0 @ >2 >3 enterE . exitE  <3 34 abc . <2 . <0\n" +
+			"listeners: 2\n" +
+			"LL: >0 @ >2 >3 enterE . exitE  <3 34 abc . <2 . <0\n" +
+			"listeners: 2\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
 }
@@ -0,0 +1,169 @@
+/*
+ * [The "BSD license"]
+ *  Copyright (c) 2012 Terence Parr
+ *  Copyright (c) 2012 Sam Harwell
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions
+ *  are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.antlr.v4.js.test;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Parses documents on a ParsePool running a job module which, depending on
+ * the name of the document, makes its worker exit or die while parsing it.
+ */
+public class TestParsePool extends BaseTest {
+	@Test public void testDispatch() throws Exception {
+		String found = execPool("{ size : 2 }",
+			"pool.parseAll(['a', 'a b', '', 'a b c', 'b']).then(function(results) {\n" +
+			"    console.log(results.join(' '));\n" +
+			"    console.log('workers: ' + pool.workers.length + ', idle: ' + pool.idle.length);\n" +
+			"})");
+		String expecting =
+			"0:1 1:2 2:0 3:3 4:1\n" +
+			"workers: 2, idle: 2\n" +
+			"closed, workers: 0\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	@Test public void testWorkersReplaced() throws Exception {
+		String found = execPool("{ size : 1, maxRestarts : 2 }",
+			"show(pool.parse('a', 'exit'))\n" +
+			".then(function() { return show(pool.parse('a b', 'x')); })\n" +
+			".then(function() { return show(pool.parse('a', 'throw')); })\n" +
+			".then(function() { return show(pool.parse('a b c', 'y')); })\n" +
+			".then(function() { console.log('restarts: ' + pool.restarts); })");
+		String expecting =
+			"failed: A parse pool worker exited with code 3.\n" +
+			"x:2\n" +
+			"failed: thrown while cloning\n" +
+			"y:3\n" +
+			"restarts: 2\n" +
+			"closed, workers: 0\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * Once the last worker is gone and may not be replaced, the queued and
+	 * later documents fail with the error which took it down.
+	 */
+	@Test public void testRestartsExhausted() throws Exception {
+		String found = execPool("{ size : 1, maxRestarts : 0 }",
+			"Promise.all([show(pool.parse('a', 'exit')), show(pool.parse('a b', 'queued'))])\n" +
+			".then(function() { return show(pool.parse('a', 'later')); })");
+		String expecting =
+			"failed: A parse pool worker exited with code 3.\n" +
+			"failed: A parse pool worker exited with code 3.\n" +
+			"failed: A parse pool worker exited with code 3.\n" +
+			"closed, workers: 0\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	@Test public void testCloseWaitsForQueuedDocuments() throws Exception {
+		String found = execPool("{ size : 1 }",
+			"(function() {\n" +
+			"    var parses = Promise.all([show(pool.parse('a', 'x')), show(pool.parse('a b', 'y'))]);\n" +
+			"    var closing = pool.close();\n" +
+			"    console.log('same promise: ' + (pool.close() === closing));\n" +
+			"    return show(pool.parse('a', 'z')).then(function() { return parses; });\n" +
+			"})()");
+		String expecting =
+			"same promise: true\n" +
+			"failed: The parse pool is closed.\n" +
+			"x:1\n" +
+			"y:2\n" +
+			"closed, workers: 0\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * The pool used to wait for a worker which had already exited to send
+	 * its result.
+	 */
+	@Test public void testCloseAfterWorkerExit() throws Exception {
+		String found = execPool("{ size : 2, maxRestarts : 0 }",
+			"show(pool.parse('a', 'exit'))\n" +
+			".then(function() { return show(pool.parse('a b', 'x')); })");
+		String expecting =
+			"failed: A parse pool worker exited with code 3.\n" +
+			"x:2\n" +
+			"closed, workers: 0\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * Generates T and a job module for it, and runs {@code script}, a promise
+	 * of the parses on {@code pool}, then closes the pool. The job module
+	 * returns the name of each document and the number of IDs in it. The
+	 * worker exits while parsing a document named {@code exit}, and dies
+	 * while sending the result of one named {@code throw}.
+	 */
+	protected String execPool(String options, String script) throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : ID* EOF ;\n" +
+			"ID : 'a'..'z'+ ;\n" +
+			"WS : ' '+ -> skip ;\n";
+		boolean success = rawGenerateAndBuildRecognizer("T.g4", grammar, "TParser", "TLexer", "-no-listener");
+		assertTrue(success);
+		writeFile(tmpdir, "job.js",
+			"exports.Lexer = require('./TLexer').TLexer;\n" +
+			"exports.Parser = require('./TParser').TParser;\n" +
+			"exports.startRule = 's';\n" +
+			"exports.process = function(tree, parser, name) {\n" +
+			"    if (name === 'exit') { process.exit(3); }\n" +
+			"    if (name === 'throw') { return { get n() { throw new Error('thrown while cloning'); } }; }\n" +
+			"    return name + ':' + (tree.getChildCount() - 1);\n" +
+			"};\n");
+		writeFile(tmpdir, "input", "");
+		writeFile(tmpdir, "Test.js",
+			"var path = require('path');\n" +
+			"var ParsePool = require('antlr4').ParsePool;\n" +
+			"var pool = new ParsePool(path.join(__dirname, 'job.js'), " + options + ");\n" +
+			"function show(parse) {\n" +
+			"    return parse.then(function(result) {\n" +
+			"        console.log(result);\n" +
+			"    }, function(e) {\n" +
+			"        console.log('failed: ' + e.message);\n" +
+			"    });\n" +
+			"}\n" +
+			script + "\n" +
+			".then(function() { return pool.close(); })\n" +
+			".then(function() { console.log('closed, workers: ' + pool.workers.length); });\n");
+		stderrDuringParse = null;
+		return execRecognizer();
+	}
+}
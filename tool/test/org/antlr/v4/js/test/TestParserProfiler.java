@@ -0,0 +1,170 @@
+/*
+ * [The "BSD license"]
+ *  Copyright (c) 2012 Terence Parr
+ *  Copyright (c) 2012 Sam Harwell
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions
+ *  are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.antlr.v4.js.test;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestParserProfiler extends BaseTest {
+	/**
+	 * {@code stat} needs three tokens of SLL lookahead to tell its first
+	 * two alternatives apart, {@code e} falls back to full context after
+	 * {@code '$'} and {@code '@'}, and {@code c} is decided by a predicate.
+	 */
+	protected static final String GRAMMAR =
+		"grammar T;\n" +
+		"s : stat+ EOF ;\n" +
+		"stat : ID '=' INT ';' | ID '=' ID ';' | '$' a | '@' b | '!' c ;\n" +
+		"a : e ID ;\n" +
+		"b : e INT ID ;\n" +
+		"e : INT | ;\n" +
+		"c : {false}? ID | ID ;\n" +
+		"ID : 'a'..'z'+ ;\n" +
+		"INT : '0'..'9'+ ;\n" +
+		"WS : (' '|'\\n')+ -> skip ;\n";
+
+	protected static final String INPUT = "x = 1; y = z; $ 34 abc @ 34 abc ! q";
+
+	@Test public void testDecisionInfo() throws Exception {
+		String found = execProfiler(
+			"var parser = parse();\n" +
+			"dump(parser);\n");
+		String expecting =
+			"stat {decision=1, contextSensitivities=0, errors=0, ambiguities=0, SLL_lookahead=9, SLL_ATNTransitions=7, SLL_DFATransitions=2, LL_Fallback=0, LL_lookahead=0, LL_ATNTransitions=0} invocations=5 SLL_MaxLook=3 predicateEvals=\n" +
+			"e {decision=2, contextSensitivities=1, errors=0, ambiguities=0, SLL_lookahead=4, SLL_ATNTransitions=2, SLL_DFATransitions=2, LL_Fallback=2, LL_lookahead=3, LL_ATNTransitions=3} invocations=2 SLL_MaxLook=2 predicateEvals=\n" +
+			"c {decision=3, contextSensitivities=0, errors=0, ambiguities=0, SLL_lookahead=1, SLL_ATNTransitions=1, SLL_DFATransitions=0, LL_Fallback=0, LL_lookahead=0, LL_ATNTransitions=0} invocations=1 SLL_MaxLook=1 predicateEvals=false\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * A second parser shares the DFA of the first, so SLL prediction walks
+	 * existing DFA edges instead of the ATN, but the full-context fallback
+	 * and the predicate are needed again.
+	 */
+	@Test public void testWarmDFA() throws Exception {
+		String found = execProfiler(
+			"parse();\n" +
+			"dump(parse());\n");
+		String expecting =
+			"stat {decision=1, contextSensitivities=0, errors=0, ambiguities=0, SLL_lookahead=9, SLL_ATNTransitions=0, SLL_DFATransitions=9, LL_Fallback=0, LL_lookahead=0, LL_ATNTransitions=0} invocations=5 SLL_MaxLook=3 predicateEvals=\n" +
+			"e {decision=2, contextSensitivities=1, errors=0, ambiguities=0, SLL_lookahead=4, SLL_ATNTransitions=0, SLL_DFATransitions=4, LL_Fallback=2, LL_lookahead=3, LL_ATNTransitions=3} invocations=2 SLL_MaxLook=2 predicateEvals=\n" +
+			"c {decision=3, contextSensitivities=0, errors=0, ambiguities=0, SLL_lookahead=1, SLL_ATNTransitions=0, SLL_DFATransitions=1, LL_Fallback=0, LL_lookahead=0, LL_ATNTransitions=0} invocations=1 SLL_MaxLook=1 predicateEvals=false\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	@Test public void testParseInfoTotals() throws Exception {
+		String found = execProfiler(
+			"var info = parse().getParseInfo();\n" +
+			"console.log('LL decisions: ' + info.getLLDecisions());\n" +
+			"console.log('SLL lookahead: ' + info.getTotalSLLLookaheadOps() + ', LL lookahead: ' + info.getTotalLLLookaheadOps());\n" +
+			"console.log('ATN lookahead: ' + info.getTotalSLLATNLookaheadOps() + ' + ' + info.getTotalLLATNLookaheadOps() +\n" +
+			"    ' = ' + info.getTotalATNLookaheadOps());\n" +
+			"console.log('DFA states: ' + info.getDFASize(1) + ' of ' + info.getDFASize());\n" +
+			"console.log('timed: ' + (info.getTotalTimeInPrediction() > 0));\n");
+		String expecting =
+			"LL decisions: 2\n" +
+			"SLL lookahead: 14, LL lookahead: 3\n" +
+			"ATN lookahead: 10 + 3 = 13\n" +
+			"DFA states: 8 of 13\n" +
+			"timed: true\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * Turning profiling on and off keeps the prediction mode and the DFA,
+	 * and getParseInfo returns null once profiling is off.
+	 */
+	@Test public void testSetProfile() throws Exception {
+		String found = execProfiler(
+			"var lexer = new TLexer(new antlr4.InputStream('x = 1;'));\n" +
+			"var parser = new TParser(new antlr4.CommonTokenStream(lexer));\n" +
+			"var dfa = parser._interp.decisionToDFA;\n" +
+			"parser._interp.predictionMode = antlr4.atn.PredictionMode.SLL;\n" +
+			"console.log('off: ' + parser.getParseInfo());\n" +
+			"parser.setProfile(true);\n" +
+			"parser.setProfile(true);\n" +
+			"console.log('on: ' + (parser._interp instanceof antlr4.atn.ProfilingATNSimulator) + ' ' +\n" +
+			"    (parser._interp.predictionMode === antlr4.atn.PredictionMode.SLL) + ' ' + (parser._interp.decisionToDFA === dfa));\n" +
+			"parser.s();\n" +
+			"console.log('invocations: ' + parser.getParseInfo().getDecisionInfo()[1].invocations);\n" +
+			"parser.setProfile(false);\n" +
+			"console.log('off: ' + parser.getParseInfo() + ' ' + (parser._interp instanceof antlr4.atn.ProfilingATNSimulator) + ' ' +\n" +
+			"    (parser._interp.predictionMode === antlr4.atn.PredictionMode.SLL) + ' ' + (parser._interp.decisionToDFA === dfa));\n");
+		String expecting =
+			"off: null\n" +
+			"on: true true true\n" +
+			"invocations: 1\n" +
+			"off: null false true true\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * Generates T and runs {@code script}, where {@code parse()} parses
+	 * {@link #INPUT} with a new profiling parser and returns it, and
+	 * {@code dump(parser)} prints the statistics of every decision which
+	 * was predicted at least once.
+	 */
+	protected String execProfiler(String script) throws Exception {
+		boolean success = rawGenerateAndBuildRecognizer("T.g4", GRAMMAR, "TParser", "TLexer", "-no-listener");
+		assertTrue(success);
+		writeFile(tmpdir, "input", "");
+		writeFile(tmpdir, "Test.js",
+			"var antlr4 = require('antlr4');\n" +
+			"var TLexer = require('./TLexer').TLexer;\n" +
+			"var TParser = require('./TParser').TParser;\n" +
+			"function parse(profile) {\n" +
+			"    var lexer = new TLexer(new antlr4.InputStream('" + INPUT + "'));\n" +
+			"    var parser = new TParser(new antlr4.CommonTokenStream(lexer));\n" +
+			"    parser.setProfile(profile !== false);\n" +
+			"    parser.s();\n" +
+			"    return parser;\n" +
+			"}\n" +
+			"function dump(parser) {\n" +
+			"    var atn = parser._interp.atn;\n" +
+			"    parser.getParseInfo().getDecisionInfo().forEach(function(d) {\n" +
+			"        if (d.invocations > 0) {\n" +
+			"            console.log(parser.ruleNames[atn.decisionToState[d.decision].ruleIndex] + ' ' + d.toString() +\n" +
+			"                ' invocations=' + d.invocations + ' SLL_MaxLook=' + d.SLL_MaxLook +\n" +
+			"                ' predicateEvals=' + d.predicateEvals.map(function(p) { return p.evalResult; }).join(','));\n" +
+			"        }\n" +
+			"    });\n" +
+			"}\n" +
+			script);
+		stderrDuringParse = null;
+		return execRecognizer();
+	}
+}
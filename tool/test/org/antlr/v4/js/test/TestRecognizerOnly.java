@@ -0,0 +1,193 @@
+/*
+ * [The "BSD license"]
+ *  Copyright (c) 2012 Terence Parr
+ *  Copyright (c) 2012 Sam Harwell
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions
+ *  are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.antlr.v4.js.test;
+
+import org.antlr.v4.codegen.JavaScriptTarget;
+import org.antlr.v4.runtime.misc.Utils;
+import org.antlr.v4.test.ErrorQueue;
+import org.antlr.v4.tool.ErrorType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Recognizer-only parsers reuse one context per rule invocation depth, so
+ * the tool rejects grammars which keep anything in a rule's context, and
+ * the parsers still report syntax errors where they occur.
+ */
+public class TestRecognizerOnly extends BaseTest {
+	@Before
+	public void setRecognizerOnly() {
+		System.setProperty(JavaScriptTarget.RECOGNIZER_ONLY_PROPERTY, "true");
+	}
+
+	@After
+	public void clearRecognizerOnly() {
+		System.clearProperty(JavaScriptTarget.RECOGNIZER_ONLY_PROPERTY);
+	}
+
+	@Test public void testLabelsRejected() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : a=e b=e {console.log($a.text + $b.text);} ;\n" +
+			"t : x=ID ys+=ID* ;\n" +
+			"e : INT ;\n" +
+			"ID : 'a'..'z'+ ;\n" +
+			"INT : '0'..'9'+ ;\n";
+		String expecting =
+			error(2, 4, "labels", "a") +
+			error(2, 8, "labels", "b") +
+			error(3, 4, "labels", "x") +
+			error(3, 9, "labels", "ys");
+		assertRejected(grammar, expecting);
+	}
+
+	@Test public void testArgsReturnsAndLocalsRejected() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : e[1] f ;\n" +
+			"e[int n] : INT ;\n" +
+			"f returns [int v] locals [int w] : INT {$v = 1;} ;\n" +
+			"INT : '0'..'9'+ ;\n";
+		String expecting =
+			error(3, 0, "arguments", "e") +
+			error(4, 0, "return values", "f") +
+			error(4, 0, "locals", "f");
+		assertRejected(grammar, expecting);
+	}
+
+	@Test public void testRuleAttributesRejected() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : e {console.log($start, $stop);} ;\n" +
+			"t : e {console.log($e.text);} ;\n" +
+			"e : INT {console.log($text);} ;\n" +
+			"INT : '0'..'9'+ ;\n";
+		String expecting =
+			error(2, 6, "rule attributes", "$start") +
+			error(2, 6, "rule attributes", "$stop") +
+			error(3, 6, "rule attributes", "$e.text") +
+			error(4, 8, "rule attributes", "$text");
+		assertRejected(grammar, expecting);
+	}
+
+	/**
+	 * A left-recursive rule is generated with a context of its own, so only
+	 * labels on and references to the other rules are rejected in it.
+	 */
+	@Test public void testLeftRecursiveRule() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : e ;\n" +
+			"e : e '*' e {console.log($f.text);}\n" +
+			"  | INT {console.log($INT.text + $start.text);}\n" +
+			"  | x=f\n" +
+			"  | e '+' y=e\n" +
+			"  ;\n" +
+			"f : ID ;\n" +
+			"ID : 'a'..'z'+ ;\n" +
+			"INT : '0'..'9'+ ;\n";
+		String expecting =
+			error(5, 4, "labels", "x") +
+			error(3, 12, "rule attributes", "$f.text");
+		assertRejected(grammar, expecting);
+	}
+
+	@Test public void testSyntaxErrors() throws Exception {
+		String grammar =
+			"grammar T;\n" +
+			"s : (a | b)+ EOF ;\n" +
+			"a : ID '=' e ';' ;\n" +
+			"b : 'print' e ';' {console.log('print');} ;\n" +
+			"e : e '*' e | INT | ID | '(' e ')' ;\n" +
+			"ID : 'a'..'z'+ ;\n" +
+			"INT : '0'..'9'+ ;\n" +
+			"WS : (' '|'\\n')+ -> skip ;\n";
+		boolean success = rawGenerateAndBuildRecognizer("T.g4", grammar, "TParser", "TLexer", "-no-listener");
+		assertTrue(success);
+		String parser = new String(Utils.readFile(tmpdir + File.separator + "TParser.js"));
+		assertTrue(parser.contains("this.enterRecognizerRule("));
+		assertFalse(parser.contains("new AContext("));
+		writeFile(tmpdir, "input", "");
+		writeFile(tmpdir, "Test.js",
+			"var antlr4 = require('antlr4');\n" +
+			"var TLexer = require('./TLexer').TLexer;\n" +
+			"var TParser = require('./TParser').TParser;\n" +
+			"function parse(text) {\n" +
+			"    var lexer = new TLexer(new antlr4.InputStream(text));\n" +
+			"    var parser = new TParser(new antlr4.CommonTokenStream(lexer));\n" +
+			"    parser.s();\n" +
+			"    console.log('errors: ' + parser._syntaxErrors + ', depth: ' + parser._recognizerDepth);\n" +
+			"}\n" +
+			"parse('x = 1; print (y * 2);');\n" +
+			"parse('x = ; print 3;');\n" +
+			"parse('x = 1\\nprint 2;');\n" +
+			"parse('x = (1; y = 2;');\n" +
+			"parse('print ) ;');\n");
+		stderrDuringParse = null;
+		String found = execRecognizer();
+		String expecting =
+			"print\n" +
+			"errors: 0, depth: 0\n" +
+			"print\n" +
+			"errors: 1, depth: 0\n" +
+			"print\n" +
+			"errors: 1, depth: 0\n" +
+			"errors: 1, depth: 0\n" +
+			"print\n" +
+			"errors: 1, depth: 0\n";
+		String expectingErrors =
+			"line 1:4 no viable alternative at input ';'\n" +
+			"line 2:0 missing ';' at 'print'\n" +
+			"line 1:6 missing ')' at ';'\n" +
+			"line 1:6 no viable alternative at input ')'\n";
+		assertEquals(expecting, found);
+		assertEquals(expectingErrors, stderrDuringParse);
+	}
+
+	protected void assertRejected(String grammar, String expecting) {
+		ErrorQueue equeue = antlr("T.g4", "T.g4", grammar, false, "-no-listener");
+		String found = equeue.toString(true).replace(tmpdir + File.separator, "");
+		assertEquals(expecting, found);
+		assertFalse(new File(tmpdir, "TParser.js").exists());
+	}
+
+	protected static String error(int line, int column, String what, String name) {
+		return "error(" + ErrorType.ATTRIBUTE_IN_LEXER_ACTION.code + "): T.g4:" + line + ":" + column + ": " +
+			what + " are not available in recognizer-only parsers: " + name + "\n";
+	}
+}
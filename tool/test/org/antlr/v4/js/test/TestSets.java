@@ -280,4 +280,51 @@ public class TestSets extends BaseTest {
 					 "B\n" +
 					 "b\n", found);
 	}
+
+	/**
+	 * Sets spanning more than one 32-bit word are tested one word at a time,
+	 * and a negated set must reject exactly the token types of the set.
+	 */
+	@Test public void testParserSetsBeyond32TokenTypes() throws Exception {
+		StringBuilder grammar = new StringBuilder(
+			"grammar T;\n" +
+			"s : (K1|K3|K5|K33|K36|K38) ~(K0|K2|K34|K39|ID) EOF {console.log('ok');} ;\n");
+		for (int i = 0; i < 40; i++) {
+			grammar.append("K").append(i).append(" : 'k").append(i).append("' ;\n");
+		}
+		grammar.append("ID : 'a'..'z'+ ;\n");
+		grammar.append("WS : ' '+ -> skip ;\n");
+		boolean success = rawGenerateAndBuildRecognizer("T.g4", grammar.toString(), "TParser", "TLexer", "-no-listener");
+		assertTrue(success);
+		writeFile(tmpdir, "input", "");
+		writeFile(tmpdir, "Test.js",
+			"var antlr4 = require('antlr4');\n" +
+			"var TLexer = require('./TLexer').TLexer;\n" +
+			"var TParser = require('./TParser').TParser;\n" +
+			"['k5 k33', 'k33 k1', 'k38 k35', 'k1 k38', 'k6 k1', 'k1 k2', 'k1 k34', 'k33 k39', 'k1 abc'].forEach(function(text) {\n" +
+			"    var lexer = new TLexer(new antlr4.InputStream(text));\n" +
+			"    var parser = new TParser(new antlr4.CommonTokenStream(lexer));\n" +
+			"    parser._errHandler = new antlr4.error.BailErrorStrategy();\n" +
+			"    try {\n" +
+			"        process.stdout.write(text + ': ');\n" +
+			"        parser.s();\n" +
+			"    } catch (e) {\n" +
+			"        console.log('rejected');\n" +
+			"    }\n" +
+			"});\n");
+		stderrDuringParse = null;
+		String found = execRecognizer();
+		String expecting =
+			"k5 k33: ok\n" +
+			"k33 k1: ok\n" +
+			"k38 k35: ok\n" +
+			"k1 k38: ok\n" +
+			"k6 k1: rejected\n" +
+			"k1 k2: rejected\n" +
+			"k1 k34: rejected\n" +
+			"k33 k39: rejected\n" +
+			"k1 abc: rejected\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
 }
@@ -0,0 +1,165 @@
+/*
+ * [The "BSD license"]
+ *  Copyright (c) 2012 Terence Parr
+ *  Copyright (c) 2012 Sam Harwell
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions
+ *  are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.antlr.v4.js.test;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the same script over a CommonTokenStream keeping its tokens in a
+ * list and in a TokenArena. Apart from token identity, which the arena
+ * does not preserve, both must print the same.
+ */
+public class TestTokenArena extends BaseTest {
+	protected static final String GRAMMAR =
+		"grammar T;\n" +
+		"s : stat+ EOF ;\n" +
+		"stat : ID '=' STRING ';' ;\n" +
+		"ID : 'a'..'z'+ ;\n" +
+		"STRING : '\"' ~'\"'* '\"' {this.text = this.text.slice(1, -1);} ;\n" +
+		"COMMENT : '/*' .*? '*/' -> channel(HIDDEN) ;\n" +
+		"WS : (' '|'\\n')+ -> channel(HIDDEN) ;\n";
+
+	protected static final String INPUT = "/* a */ x = \\\"one\\\";\\n/* b */ y = \\\"two\\\";";
+
+	@Test public void testGetText() throws Exception {
+		String found = execBothModes(
+			"out('all: ' + tokens.getText());\n" +
+			"out('stat: ' + tokens.getText(new antlr4.Interval(2, 8)));\n" +
+			"out('tokens: ' + tokens.getText(new antlr4.Interval(tokens.get(2), tokens.get(8))));\n");
+		String expecting =
+			"all: /* a */ x = one;\\n/* b */ y = two;\n" +
+			"stat: x = one;\\n\n" +
+			"tokens: x = one;\\n\n";
+		assertEquals(expecting + expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	@Test public void testHiddenChannelLookback() throws Exception {
+		String found = execBothModes(
+			"for (var i = 0; i < tokens.tokens.length; i++) {\n" +
+			"    var hidden = tokens.getHiddenTokensToLeft(i, antlr4.Token.HIDDEN_CHANNEL);\n" +
+			"    if (tokens.get(i).channel === antlr4.Token.DEFAULT_CHANNEL && hidden !== null) {\n" +
+			"        out(tokens.get(i).text + ' after ' + hidden.map(function(t) { return t.text; }).join('|'));\n" +
+			"    }\n" +
+			"}\n" +
+			"var right = tokens.getHiddenTokensToRight(7);\n" +
+			"out('right of ' + tokens.get(7).text + ': ' + right.map(function(t) { return t.tokenIndex; }).join(' '));\n" +
+			"tokens.seek(13);\n" +
+			"out('LT(1) ' + tokens.LT(1).text + ', LT(-1) ' + tokens.LT(-1).text + ', LT(-2) ' + tokens.LT(-2).text);\n");
+		String expecting =
+			"x after /* a */| \n" +
+			"= after  \n" +
+			"one after  \n" +
+			"y after \\n|/* b */| \n" +
+			"= after  \n" +
+			"two after  \n" +
+			"right of ;: 8 9 10\n" +
+			"LT(1) =, LT(-1) y, LT(-2) ;\n";
+		assertEquals(expecting + expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * The lexer sets the text of the strings, and the script sets and then
+	 * clears the text of one of them.
+	 */
+	@Test public void testExplicitText() throws Exception {
+		String found = execBothModes(
+			"var t = tokens.get(6);\n" +
+			"out('lexer: ' + t.text + ' ' + tokens.get(15).text);\n" +
+			"t.text = 'ONE';\n" +
+			"out('set: ' + tokens.get(6).text + ', ' + tokens.getText(new antlr4.Interval(2, 7)));\n" +
+			"t.text = null;\n" +
+			"out('cleared: ' + tokens.get(6).text);\n");
+		String expecting =
+			"lexer: one two\n" +
+			"set: ONE, x = ONE;\n" +
+			"cleared: \"one\"\n";
+		assertEquals(expecting + expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	@Test public void testClone() throws Exception {
+		String found = execBothModes(
+			"var c = tokens.get(15).clone();\n" +
+			"out('clone: ' + c.toString() + ' ' + (c instanceof CommonToken));\n" +
+			"c.text = 'changed';\n" +
+			"c.type = 1;\n" +
+			"out('original: ' + tokens.get(15).toString());\n");
+		String expecting =
+			"clone: [@15,31:35='two',<4>,2:12] true\n" +
+			"original: [@15,31:35='two',<4>,2:12]\n";
+		assertEquals(expecting + expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	@Test public void testTokenIdentity() throws Exception {
+		String found = execBothModes(
+			"tokens.seek(4);\n" +
+			"out('get: ' + (tokens.get(4) === tokens.get(4)) + ', LT: ' + (tokens.LT(1) === tokens.LT(1)) +\n" +
+			"    ', index: ' + (tokens.get(4).tokenIndex === tokens.LT(1).tokenIndex));\n");
+		String expecting =
+			"get: true, LT: true, index: true\n" +
+			"get: false, LT: false, index: true\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * Generates T and, for a list and then an arena, parses the input and
+	 * runs {@code script} over the token stream {@code tokens}.
+	 */
+	protected String execBothModes(String script) throws Exception {
+		boolean success = rawGenerateAndBuildRecognizer("T.g4", GRAMMAR, "TParser", "TLexer", "-no-listener");
+		assertTrue(success);
+		writeFile(tmpdir, "input", "");
+		writeFile(tmpdir, "Test.js",
+			"var antlr4 = require('antlr4');\n" +
+			"var TLexer = require('./TLexer').TLexer;\n" +
+			"var TParser = require('./TParser').TParser;\n" +
+			"var CommonToken = require('antlr4/Token').CommonToken;\n" +
+			"function out(s) { console.log(s.replace(/\\n/g, '\\\\n')); }\n" +
+			"function run(useTokenArena) {\n" +
+			"    var lexer = new TLexer(new antlr4.InputStream(\"" + INPUT + "\"));\n" +
+			"    var tokens = new antlr4.CommonTokenStream(lexer, undefined, useTokenArena);\n" +
+			"    new TParser(tokens).s();\n" +
+			script +
+			"}\n" +
+			"run(false);\n" +
+			"run(true);\n");
+		stderrDuringParse = null;
+		return execRecognizer();
+	}
+}
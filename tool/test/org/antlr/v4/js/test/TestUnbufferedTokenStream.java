@@ -0,0 +1,125 @@
+/*
+ * [The "BSD license"]
+ *  Copyright (c) 2012 Terence Parr
+ *  Copyright (c) 2012 Sam Harwell
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions
+ *  are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.antlr.v4.js.test;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestUnbufferedTokenStream extends BaseTest {
+	/**
+	 * {@code stat} needs three tokens of lookahead and {@code e} falls back
+	 * to full context, so prediction marks the stream, looks ahead and seeks
+	 * back.
+	 */
+	protected static final String GRAMMAR =
+		"grammar T;\n" +
+		"s : stat+ EOF ;\n" +
+		"stat : ID '=' INT ';' | ID '=' ID ';' | '$' a | '@' b ;\n" +
+		"a : e ID ;\n" +
+		"b : e INT ID ;\n" +
+		"e : INT | ;\n" +
+		"ID : 'a'..'z'+ ;\n" +
+		"INT : '0'..'9'+ ;\n" +
+		"WS : (' '|'\\n')+ -> skip ;\n";
+
+	@Test public void testParse() throws Exception {
+		String found = execParse("x = 1; y = z; $ 34 abc @ 34 abc $ abc", 1);
+		String expecting =
+			"(s (stat x = 1 ;) (stat y = z ;) (stat $ (a (e 34) abc)) (stat @ (b e 34 abc)) (stat $ (a e abc)) <EOF>)\n" +
+			"same tree: true\n" +
+			"marks: 4, seeks: 5\n" +
+			"live tokens: 1, most: 3\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * The window never holds more tokens than the longest lookahead, however
+	 * long the input is.
+	 */
+	@Test public void testWindowStaysSmall() throws Exception {
+		String found = execParse("x = 1; y = z; $ 34 abc @ 34 abc $ abc", 200);
+		String expecting =
+			"same tree: true\n" +
+			"marks: 800, seeks: 1000\n" +
+			"live tokens: 1, most: 3\n";
+		assertEquals(expecting, found);
+		assertNull(stderrDuringParse);
+	}
+
+	/**
+	 * Generates T, parses {@code input} repeated {@code times} times
+	 * through a CommonTokenStream and an UnbufferedTokenStream, and prints
+	 * the tree, how often prediction marked and seeked the unbuffered
+	 * stream, and how many tokens its window still references at the end
+	 * and at most after a consume.
+	 */
+	protected String execParse(String input, int times) throws Exception {
+		boolean success = rawGenerateAndBuildRecognizer("T.g4", GRAMMAR, "TParser", "TLexer", "-no-listener");
+		assertTrue(success);
+		writeFile(tmpdir, "input", "");
+		writeFile(tmpdir, "Test.js",
+			"var antlr4 = require('antlr4');\n" +
+			"var TLexer = require('./TLexer').TLexer;\n" +
+			"var TParser = require('./TParser').TParser;\n" +
+			"var input = new Array(" + times + " + 1).join('" + input + " ');\n" +
+			"function tree(t, parser) {\n" +
+			"    if (t.symbol !== undefined) {\n" +
+			"        return t.symbol.type === antlr4.Token.EOF ? '<EOF>' : t.symbol.text;\n" +
+			"    }\n" +
+			"    var s = parser.ruleNames[t.ruleIndex];\n" +
+			"    return t.children === null ? s : '(' + s + ' ' + t.children.map(function(c) { return tree(c, parser); }).join(' ') + ')';\n" +
+			"}\n" +
+			"function live(tokens) {\n" +
+			"    return tokens.tokens.filter(function(t) { return t !== null; }).length;\n" +
+			"}\n" +
+			"var buffered = new TParser(new antlr4.CommonTokenStream(new TLexer(new antlr4.InputStream(input))));\n" +
+			"buffered.buildParseTrees = true;\n" +
+			"var expected = tree(buffered.s(), buffered);\n" +
+			"var tokens = new antlr4.UnbufferedTokenStream(new TLexer(new antlr4.InputStream(input)), 4);\n" +
+			"var marks = 0, seeks = 0, most = 0;\n" +
+			"var mark = tokens.mark, seek = tokens.seek, consume = tokens.consume;\n" +
+			"tokens.mark = function() { marks++; return mark.call(this); };\n" +
+			"tokens.seek = function(index) { if (index !== this.index) { seeks++; } seek.call(this, index); };\n" +
+			"tokens.consume = function() { consume.call(this); most = Math.max(most, live(this)); };\n" +
+			"var parser = new TParser(tokens);\n" +
+			"parser.buildParseTrees = true;\n" +
+			"var found = tree(parser.s(), parser);\n" +
+			"if (" + times + " === 1) { console.log(found); }\n" +
+			"console.log('same tree: ' + (found === expected));\n" +
+			"console.log('marks: ' + marks + ', seeks: ' + seeks);\n" +
+			"console.log('live tokens: ' + live(tokens) + ', most: ' + most);\n");
+		stderrDuringParse = null;
+		return execRecognizer();
+	}
+}